@@ -0,0 +1,338 @@
+package prism.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Compact binary encoding of a graph, sent instead of JSON if a client accepts MEDIA_TYPE_BINARY. All numbers are
+ * little endian, so clients can read columns directly into typed arrays.
+ *
+ * The stream starts with the bytes "PMCG" and the format version (int32), followed by blocks that start with a type
+ * byte: INFO (1) holds the Info as JSON string and is sent once. STATES (2) and TRANSITIONS (3) hold up to BLOCK_SIZE
+ * nodes column by column, see writeStates and writeTransitions. END (0) closes the stream.
+ *
+ * Strings are an int32 byte length (-1 for null) followed by UTF-8 bytes. Identifier columns start with a flag byte,
+ * 0 for int64 values and 1 for strings. Missing numbers are NaN. Edges are not sent, as they follow from the source
+ * and distribution of each transition.
+ */
+public class BinaryGraphWriter extends GraphWriter {
+
+    private static final int FORMAT = 1;
+    private static final int BLOCK_SIZE = 4096;
+
+    private static final byte BLOCK_END = 0;
+    private static final byte BLOCK_INFO = 1;
+    private static final byte BLOCK_STATES = 2;
+    private static final byte BLOCK_TRANSITIONS = 3;
+
+    private static final byte VALUE_INT = 0;
+    private static final byte VALUE_BOOL = 1;
+    private static final byte VALUE_DOUBLE = 2;
+    private static final byte VALUE_STRING = 3;
+
+    private final OutputStream out;
+    private final ObjectMapper mapper;
+
+    private final List<State> states = new ArrayList<>();
+    private final List<Transition> transitions = new ArrayList<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    BinaryGraphWriter(OutputStream out, ObjectMapper mapper) {
+        this.out = out;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void begin(Info info) throws IOException {
+        ensure(8);
+        buffer.put("PMCG".getBytes(StandardCharsets.US_ASCII)).putInt(FORMAT);
+        ensure(1);
+        buffer.put(BLOCK_INFO);
+        putString(mapper.writeValueAsString(info));
+        flush();
+    }
+
+    @Override
+    public void node(Node node) throws IOException {
+        if (node instanceof State) {
+            if (!transitions.isEmpty()) {
+                writeTransitions();
+            }
+            states.add((State) node);
+            if (states.size() >= BLOCK_SIZE) {
+                writeStates();
+            }
+        } else if (node instanceof Transition) {
+            if (!states.isEmpty()) {
+                writeStates();
+            }
+            transitions.add((Transition) node);
+            if (transitions.size() >= BLOCK_SIZE) {
+                writeTransitions();
+            }
+        }
+    }
+
+    @Override
+    public void beginEdges() throws IOException {
+        writeStates();
+        writeTransitions();
+    }
+
+    @Override
+    public void edge(Edge edge) {
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeStates();
+        writeTransitions();
+        ensure(1);
+        buffer.put(BLOCK_END);
+        flush();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Block layout: count (int32), ids, names (strings), variable columns, reward columns, result columns and label
+     * columns. Every column starts with its name and a value type byte (only variables, other columns are numbers),
+     * labels are bitsets of (count + 7) / 8 bytes.
+     */
+    private void writeStates() throws IOException {
+        if (states.isEmpty()) {
+            return;
+        }
+        int n = states.size();
+        ensure(5);
+        buffer.put(BLOCK_STATES).putInt(n);
+        putIds(states, State::getId);
+        for (State state : states) {
+            putString(state.getName());
+        }
+        putValueColumns(states, State::getParameters);
+        putNumberColumns(states, State::getRewards);
+        putNumberColumns(states, State::getProperties);
+
+        SortedSet<String> labels = new TreeSet<>();
+        for (State state : states) {
+            if (state.getAtomicPropositions() != null) {
+                labels.addAll(state.getAtomicPropositions().keySet());
+            }
+        }
+        ensure(4);
+        buffer.putInt(labels.size());
+        for (String label : labels) {
+            putString(label);
+            byte[] bits = new byte[(n + 7) / 8];
+            for (int i = 0; i < n; i++) {
+                Map<String, AP> aps = states.get(i).getAtomicPropositions();
+                if (aps != null && aps.get(label) != null) {
+                    bits[i / 8] |= 1 << (i % 8);
+                }
+            }
+            ensure(bits.length);
+            buffer.put(bits);
+        }
+        states.clear();
+        flush();
+    }
+
+    /**
+     * Block layout: count (int32), ids without the "t" prefix of the node ids, source ids, action table (int32 count
+     * and strings) with one int32 index per transition, distribution offsets (count + 1 int32), target ids and
+     * probabilities (float64), followed by the reward, result and scheduler columns.
+     */
+    private void writeTransitions() throws IOException {
+        if (transitions.isEmpty()) {
+            return;
+        }
+        int n = transitions.size();
+        ensure(5);
+        buffer.put(BLOCK_TRANSITIONS).putInt(n);
+        putIds(transitions, Transition::getNumId);
+        putIds(transitions, Transition::getSource);
+
+        Map<String, Integer> actions = new LinkedHashMap<>();
+        int[] actionIndices = new int[n];
+        for (int i = 0; i < n; i++) {
+            actionIndices[i] = actions.computeIfAbsent(String.valueOf(transitions.get(i).getAction()), a -> actions.size());
+        }
+        ensure(4);
+        buffer.putInt(actions.size());
+        for (String action : actions.keySet()) {
+            putString(action);
+        }
+        ensure(4L * n);
+        for (int index : actionIndices) {
+            buffer.putInt(index);
+        }
+
+        List<String> targets = new ArrayList<>();
+        List<Double> probabilities = new ArrayList<>();
+        ensure(4L * (n + 1));
+        buffer.putInt(0);
+        for (Transition transition : transitions) {
+            for (Map.Entry<String, Double> e : transition.getProbabilityDistribution().entrySet()) {
+                targets.add(e.getKey());
+                probabilities.add(e.getValue());
+            }
+            buffer.putInt(targets.size());
+        }
+        putIds(targets, Function.identity());
+        ensure(8L * probabilities.size());
+        for (double probability : probabilities) {
+            buffer.putDouble(probability);
+        }
+
+        putNumberColumns(transitions, Transition::getRewards);
+        putNumberColumns(transitions, Transition::getResults);
+        putNumberColumns(transitions, Transition::getScheduler);
+        transitions.clear();
+        flush();
+    }
+
+    private <T> void putIds(List<T> nodes, Function<T, String> id) {
+        long[] numeric = new long[nodes.size()];
+        try {
+            for (int i = 0; i < numeric.length; i++) {
+                numeric[i] = Long.parseLong(id.apply(nodes.get(i)));
+            }
+        } catch (NumberFormatException e) {
+            ensure(1);
+            buffer.put((byte) 1);
+            for (T node : nodes) {
+                putString(id.apply(node));
+            }
+            return;
+        }
+        ensure(1 + 8L * numeric.length);
+        buffer.put((byte) 0);
+        for (long value : numeric) {
+            buffer.putLong(value);
+        }
+    }
+
+    private <T> void putNumberColumns(List<T> nodes, Function<T, Map<String, Double>> values) {
+        SortedSet<String> names = new TreeSet<>();
+        for (T node : nodes) {
+            names.addAll(values.apply(node).keySet());
+        }
+        ensure(4);
+        buffer.putInt(names.size());
+        for (String name : names) {
+            putString(name);
+            ensure(8L * nodes.size());
+            for (T node : nodes) {
+                Double value = values.apply(node).get(name);
+                buffer.putDouble(value == null ? Double.NaN : value);
+            }
+        }
+    }
+
+    private <T> void putValueColumns(List<T> nodes, Function<T, Map<String, Object>> values) {
+        SortedSet<String> names = new TreeSet<>();
+        for (T node : nodes) {
+            names.addAll(values.apply(node).keySet());
+        }
+        ensure(4);
+        buffer.putInt(names.size());
+        for (String name : names) {
+            putString(name);
+            byte type = -1;
+            for (T node : nodes) {
+                Object value = values.apply(node).get(name);
+                if (value != null) {
+                    type = type < 0 ? valueType(value) : combine(type, valueType(value));
+                }
+            }
+            if (type < 0) {
+                type = VALUE_INT;
+            }
+            ensure(1 + 8L * nodes.size());
+            buffer.put(type);
+            for (T node : nodes) {
+                Object value = values.apply(node).get(name);
+                switch (type) {
+                    case VALUE_INT:
+                        buffer.putInt(value == null ? Integer.MIN_VALUE : (Integer) value);
+                        break;
+                    case VALUE_BOOL:
+                        buffer.put((byte) (value == null ? -1 : (Boolean) value ? 1 : 0));
+                        break;
+                    case VALUE_DOUBLE:
+                        buffer.putDouble(value == null ? Double.NaN : ((Number) value).doubleValue());
+                        break;
+                    default:
+                        putString(value == null ? null : value.toString());
+                }
+            }
+        }
+    }
+
+    private static byte valueType(Object value) {
+        if (value instanceof Integer) {
+            return VALUE_INT;
+        }
+        if (value instanceof Boolean) {
+            return VALUE_BOOL;
+        }
+        if (value instanceof Number) {
+            return VALUE_DOUBLE;
+        }
+        return VALUE_STRING;
+    }
+
+    // Columns mixing types fall back to the most general one
+    private static byte combine(byte type, byte other) {
+        if (type == other) {
+            return type;
+        }
+        if ((type == VALUE_INT || type == VALUE_DOUBLE) && (other == VALUE_INT || other == VALUE_DOUBLE)) {
+            return VALUE_DOUBLE;
+        }
+        return VALUE_STRING;
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(4);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4L + bytes.length);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private void ensure(long bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        long capacity = Math.max(2L * buffer.capacity(), buffer.position() + bytes);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Block of " + capacity + " bytes is too large");
+        }
+        ByteBuffer grown = ByteBuffer.allocate((int) capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
@@ -0,0 +1,173 @@
+package prism.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes a graph part by part while it is read, so that even the graphs of large models never have to be held in
+ * memory. Nodes have to be written before all edges.
+ *
+ * The JSON format has the same fields as a serialized Graph. In the NDJSON format every line holds one object,
+ * either {"info": ...}, {"node": ...} or {"edge": ...}. The binary format is described in BinaryGraphWriter.
+ */
+public abstract class GraphWriter implements Closeable {
+
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final String MEDIA_TYPE_BINARY = "application/x-pmc-graph";
+
+    public static GraphWriter json(OutputStream out, ObjectMapper mapper) throws IOException {
+        return new Json(mapper.getFactory().createGenerator(out));
+    }
+
+    public static GraphWriter ndjson(OutputStream out, ObjectMapper mapper) throws IOException {
+        JsonGenerator generator = mapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        return new Ndjson(generator);
+    }
+
+    public static GraphWriter binary(OutputStream out, ObjectMapper mapper) {
+        return new BinaryGraphWriter(out, mapper);
+    }
+
+    /**
+     * Writer for one of the media types above, JSON for any other type
+     */
+    public static GraphWriter create(String mediaType, OutputStream out, ObjectMapper mapper) throws IOException {
+        switch (mediaType) {
+            case MEDIA_TYPE_NDJSON:
+                return ndjson(out, mapper);
+            case MEDIA_TYPE_BINARY:
+                return binary(out, mapper);
+            default:
+                return json(out, mapper);
+        }
+    }
+
+    public abstract void begin(Info info) throws IOException;
+
+    public abstract void node(Node node) throws IOException;
+
+    /**
+     * Ends the nodes, all following calls write edges
+     */
+    public abstract void beginEdges() throws IOException;
+
+    public abstract void edge(Edge edge) throws IOException;
+
+    public abstract void end() throws IOException;
+
+    public void edges(Transition transition) throws IOException {
+        for (Edge edge : transition.createEdges()) {
+            edge(edge);
+        }
+    }
+
+    /**
+     * Writes a graph that is already in memory
+     */
+    public void write(Graph graph) throws IOException {
+        begin(graph.getInfo());
+        for (Node node : graph.getNodes()) {
+            node(node);
+        }
+        beginEdges();
+        for (Edge edge : graph.getEdges()) {
+            edge(edge);
+        }
+        end();
+    }
+
+    private abstract static class Jackson extends GraphWriter {
+
+        protected final JsonGenerator generator;
+
+        private Jackson(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static class Json extends Jackson {
+
+        private Json(JsonGenerator generator) {
+            super(generator);
+        }
+
+        @Override
+        public void begin(Info info) throws IOException {
+            generator.writeStartObject();
+            generator.writeObjectField("info", info);
+            generator.writeArrayFieldStart("nodes");
+        }
+
+        @Override
+        public void node(Node node) throws IOException {
+            generator.writeObject(node);
+        }
+
+        @Override
+        public void beginEdges() throws IOException {
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("edges");
+        }
+
+        @Override
+        public void edge(Edge edge) throws IOException {
+            generator.writeObject(edge);
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+        }
+    }
+
+    private static class Ndjson extends Jackson {
+
+        private Ndjson(JsonGenerator generator) {
+            super(generator);
+        }
+
+        private void line(String field, Object value) throws IOException {
+            generator.writeStartObject();
+            generator.writeObjectField(field, value);
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void begin(Info info) throws IOException {
+            line("info", info);
+        }
+
+        @Override
+        public void node(Node node) throws IOException {
+            line("node", node);
+        }
+
+        @Override
+        public void beginEdges() {
+        }
+
+        @Override
+        public void edge(Edge edge) throws IOException {
+            line("edge", edge);
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package prism.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description="State, progress and timings of a task queued on the server")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Job {
+
+    public enum State {queued, running, finished, failed, cancelled}
+
+    private final String id;
+    private final String name;
+    private final String project;
+    private final String version;
+    private final String type;
+    private final State state;
+    private final String status;
+    private final Double progress;
+    private final long queued;
+    private final Long started;
+    private final Long finished;
+    private final String error;
+    private final long revision;
+
+    public Job(String id, String name, String project, String version, String type, State state, String status, double progress, long queued, long started, long finished, String error, long revision) {
+        this.id = id;
+        this.name = name;
+        this.project = project;
+        this.version = version;
+        this.type = type;
+        this.state = state;
+        this.status = status;
+        this.progress = progress < 0 ? null : Math.min(1, progress);
+        this.queued = queued;
+        this.started = started > 0 ? started : null;
+        this.finished = finished > 0 ? finished : null;
+        this.error = error;
+        this.revision = revision;
+    }
+
+    @Schema(description = "Identifier of the job")
+    @JsonProperty
+    public String getId() {
+        return id;
+    }
+
+    @Schema(description = "Name of the task")
+    @JsonProperty
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "Project of the task")
+    @JsonProperty
+    public String getProject() {
+        return project;
+    }
+
+    @Schema(description = "Version of the model of the task")
+    @JsonProperty
+    public String getVersion() {
+        return version;
+    }
+
+    @Schema(description = "Build, Check or Misc")
+    @JsonProperty
+    public String getType() {
+        return type;
+    }
+
+    @Schema(description = "queued, running, finished, failed or cancelled")
+    @JsonProperty
+    public State getState() {
+        return state;
+    }
+
+    @Schema(description = "Status message of the task")
+    @JsonProperty
+    public String getStatus() {
+        return status;
+    }
+
+    @Schema(description = "Completed fraction between 0 and 1, missing if the task does not report it")
+    @JsonProperty
+    public Double getProgress() {
+        return progress;
+    }
+
+    @Schema(description = "Time the job was queued, in milliseconds since the epoch")
+    @JsonProperty
+    public long getQueued() {
+        return queued;
+    }
+
+    @Schema(description = "Time the job started, in milliseconds since the epoch")
+    @JsonProperty
+    public Long getStarted() {
+        return started;
+    }
+
+    @Schema(description = "Time the job ended, in milliseconds since the epoch")
+    @JsonProperty
+    public Long getFinished() {
+        return finished;
+    }
+
+    @Schema(description = "Milliseconds the job has been running")
+    @JsonProperty
+    public Long getElapsed() {
+        if (started == null) {
+            return null;
+        }
+        return (finished != null ? finished : System.currentTimeMillis()) - started;
+    }
+
+    @Schema(description = "Estimated milliseconds until the job is finished, extrapolated from its progress")
+    @JsonProperty
+    public Long getEta() {
+        Long elapsed = getElapsed();
+        if (state != State.running || elapsed == null || progress == null || progress <= 0 || progress >= 1) {
+            return null;
+        }
+        return Math.round(elapsed * (1 - progress) / progress);
+    }
+
+    @Schema(description = "Error of a failed job")
+    @JsonProperty
+    public String getError() {
+        return error;
+    }
+
+    @Schema(description = "Revision of the last change of the job, increasing over all jobs of the server")
+    @JsonProperty
+    public long getRevision() {
+        return revision;
+    }
+}
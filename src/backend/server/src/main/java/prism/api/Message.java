@@ -1,17 +1,32 @@
 package prism.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.util.List;
+
 @Schema(description="Simple Message returned with a response")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Message {
     private String content;
 
+    private List<String> jobs;
+
     public Message(String content){
         this.content = content;
     }
 
+    public Message(String content, List<String> jobs){
+        this.content = content;
+        this.jobs = jobs;
+    }
+
     @Schema(description = "content of the Message")
     @JsonProperty
     public String getContent() { return content; }
+
+    @Schema(description = "identifiers of the jobs started by the request")
+    @JsonProperty
+    public List<String> getJobs() { return jobs; }
 }
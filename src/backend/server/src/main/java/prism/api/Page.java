@@ -0,0 +1,35 @@
+package prism.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description="Portion of the nodes of a graph, ordered by identifier")
+public class Page {
+
+    private List<Node> nodes;
+
+    private String next;
+
+    public Page(){
+        // Jackson deserialization
+    }
+
+    public Page(List<Node> nodes, String next) {
+        this.nodes = nodes;
+        this.next = next;
+    }
+
+    @Schema(description = "nodes of this page")
+    @JsonProperty
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    @Schema(description = "cursor to request the following page with, null on the last page")
+    @JsonProperty
+    public String getNext() {
+        return next;
+    }
+}
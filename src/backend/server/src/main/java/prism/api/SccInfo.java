@@ -0,0 +1,62 @@
+package prism.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@Schema(description="Strongly connected components of a model")
+public class SccInfo {
+
+    private int components;
+
+    private int bottomComponents;
+
+    private int largest;
+
+    private Map<String, Integer> states;
+
+    private Map<Integer, Boolean> bottom;
+
+    public SccInfo(){
+        // Jackson deserialization
+    }
+
+    public SccInfo(int components, int bottomComponents, int largest, Map<String, Integer> states, Map<Integer, Boolean> bottom) {
+        this.components = components;
+        this.bottomComponents = bottomComponents;
+        this.largest = largest;
+        this.states = states;
+        this.bottom = bottom;
+    }
+
+    @Schema(description = "number of strongly connected components")
+    @JsonProperty
+    public int getComponents() {
+        return components;
+    }
+
+    @Schema(description = "number of components no transition leaves")
+    @JsonProperty
+    public int getBottomComponents() {
+        return bottomComponents;
+    }
+
+    @Schema(description = "number of states of the largest component")
+    @JsonProperty
+    public int getLargest() {
+        return largest;
+    }
+
+    @Schema(description = "component of each requested state")
+    @JsonProperty
+    public Map<String, Integer> getStates() {
+        return states;
+    }
+
+    @Schema(description = "whether the components of the requested states are bottom components")
+    @JsonProperty
+    public Map<Integer, Boolean> getBottom() {
+        return bottom;
+    }
+}
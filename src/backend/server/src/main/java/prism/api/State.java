@@ -120,4 +120,19 @@ public class State implements Node{
     public Map<String, Object> getParameters() {
         return parameters;
     }
+
+    @JsonIgnore
+    public Map<String, Double> getRewards() {
+        return rewards;
+    }
+
+    @JsonIgnore
+    public Map<String, Double> getProperties() {
+        return properties;
+    }
+
+    @JsonIgnore
+    public Map<String, AP> getAtomicPropositions() {
+        return atomicPropositions;
+    }
 }
@@ -114,6 +114,11 @@ public class Transition implements Node{
         return probabilityDistribution;
     }
 
+    @JsonIgnore
+    public Map<String, Double> getRewards() {
+        return rewards;
+    }
+
     @Override
     public double getReward(String name) {
         if (!rewards.containsKey(name)){
@@ -11,6 +11,7 @@ import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.jdbi.v3.core.Jdbi;
 import prism.core.Project;
+import prism.core.Scheduler.SchedulerExport;
 import prism.db.Database;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
@@ -57,6 +58,18 @@ public class SchedulerConverter extends ConfiguredCommand<PRISMServerConfigurati
                 .required(false)
                 .action(Arguments.storeTrue())
                 .help("output directory");
+
+        subparser.addArgument("-f", "--format")
+                .dest("format")
+                .type(String.class)
+                .setDefault("text")
+                .help("output format, text or binary");
+
+        subparser.addArgument("-z", "--gzip")
+                .dest("gzip")
+                .required(false)
+                .action(Arguments.storeTrue())
+                .help("compress the output with gzip");
     }
 
 
@@ -86,8 +99,8 @@ public class SchedulerConverter extends ConfiguredCommand<PRISMServerConfigurati
 
         TaskManager activeProjects = new TaskManager();
 
-        Project project = new Project(projectID, configuration.getPathTemplate(), activeProjects,  database, configuration.getCUDDMaxMem(), configuration.getIterations(), configuration.getDebug());
-        project.getDefaultModel().printScheduler(namespace.get("out"), namespace.getBoolean("limit"));
+        Project project = new Project(projectID, configuration.getPathTemplate(), activeProjects,  database, configuration);
+        project.getDefaultModel().printScheduler(namespace.get("out"), namespace.getBoolean("limit"), SchedulerExport.Format.parse(namespace.getString("format")), namespace.getBoolean("gzip"));
         project.removeFiles();
     }
 
@@ -108,7 +108,7 @@ public class StatisticalChecker extends ConfiguredCommand<PRISMServerConfigurati
 
         TaskManager taskManager = new TaskManager();
 
-        Project project = new Project(projectID, configuration.getPathTemplate(), taskManager,  database, configuration.getCUDDMaxMem(), configuration.getIterations(), configuration.getDebug());
+        Project project = new Project(projectID, configuration.getPathTemplate(), taskManager,  database, configuration);
 
         Optional<String> scheduler;
         if (namespace.get("scheduler") == null){
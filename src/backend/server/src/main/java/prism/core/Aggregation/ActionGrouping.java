@@ -0,0 +1,62 @@
+package prism.core.Aggregation;
+
+import prism.core.GraphStore;
+import prism.core.Model;
+
+import java.util.*;
+
+/**
+ * Groups states with the same set of actions on their outgoing transitions. Sets are bit masks over the action table
+ * of the store, falling back to numbered BitSets for models with more actions than fit into a long.
+ */
+public class ActionGrouping extends Grouping {
+
+    public ActionGrouping(Model model) {
+        super(model, AggregationType.ACTIONS);
+    }
+
+    @Override
+    public String getKey() {
+        return "actions";
+    }
+
+    @Override
+    protected Partition compute(GraphStore store) {
+        long[] keys = new long[store.getNumStates()];
+        if (store.getNumActions() < Long.SIZE) {
+            for (int i = 0; i < keys.length; i++) {
+                long mask = 0;
+                for (int c = store.getChoiceStart(i); c < store.getChoiceEnd(i); c++) {
+                    mask |= 1L << store.getAction(c);
+                }
+                keys[i] = mask;
+            }
+            return Partition.ofKeys(keys, mask -> name(store, BitSet.valueOf(new long[]{mask})));
+        }
+
+        Map<BitSet, Integer> numbers = new HashMap<>();
+        List<BitSet> sets = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            BitSet set = new BitSet(store.getNumActions());
+            for (int c = store.getChoiceStart(i); c < store.getChoiceEnd(i); c++) {
+                set.set(store.getAction(c));
+            }
+            keys[i] = numbers.computeIfAbsent(set, s -> {
+                sets.add(s);
+                return sets.size() - 1;
+            });
+        }
+        return Partition.ofKeys(keys, key -> name(store, sets.get((int) key)));
+    }
+
+    private static String name(GraphStore store, BitSet set) {
+        if (set.isEmpty()) {
+            return "no actions";
+        }
+        List<String> names = new ArrayList<>();
+        for (int a = set.nextSetBit(0); a >= 0; a = set.nextSetBit(a + 1)) {
+            names.add(String.valueOf(store.getActionName(a)));
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,216 @@
+package prism.core.Aggregation;
+
+import prism.api.Graph;
+import prism.api.State;
+import prism.api.Transition;
+import prism.core.GraphStore;
+import prism.core.Model;
+
+import java.util.*;
+
+/**
+ * Level of detail view of a graph store. The first level groups the states by the first grouping, every further level
+ * splits the groups of the level above by one more grouping. Collapsed, the graph shows one node per group of the first
+ * level. An expanded group is replaced by its subgroups on the next level, or by its states on the last level.
+ *
+ * Group nodes are identified as "g<level>_<group>". Their transitions summarize all choices of their states with the
+ * same action, the probability of a target is the mean over these choices. The partitions of all levels are cached in
+ * the graph store, so expanding groups or changing the last level only computes what is missing.
+ */
+public class Aggregation {
+
+    private static final String GROUP_PREFIX = "g";
+
+    private final Model model;
+    private final GraphStore store;
+    private final List<Grouping> groupings = new ArrayList<>();
+    private final Partition[] levels;
+
+    public Aggregation(Model model, GraphStore store, List<String> descriptions) {
+        if (descriptions.isEmpty()) {
+            throw new IllegalArgumentException("An aggregation needs at least one grouping");
+        }
+        this.model = model;
+        this.store = store;
+        for (String description : descriptions) {
+            groupings.add(Grouping.parse(model, description));
+        }
+
+        this.levels = new Partition[groupings.size()];
+        levels[0] = groupings.get(0).getPartition(store);
+        StringBuilder key = new StringBuilder("aggregation:").append(groupings.get(0).getKey());
+        for (int k = 1; k < levels.length; k++) {
+            Partition coarser = levels[k - 1];
+            Grouping grouping = groupings.get(k);
+            key.append('/').append(grouping.getKey());
+            levels[k] = store.getAnalysis(key.toString(), s -> coarser.refine(grouping.getPartition(s)));
+        }
+    }
+
+    /**
+     * Aggregated graph with the given group nodes expanded. Identifiers of groups whose parent is not expanded are
+     * ignored.
+     */
+    public Graph collapse(Collection<String> expanded) {
+        int depth = levels.length;
+        boolean[][] open = new boolean[depth][];
+        int[][] groupNodes = new int[depth][];
+        for (int k = 0; k < depth; k++) {
+            open[k] = new boolean[levels[k].getNumGroups()];
+            groupNodes[k] = new int[levels[k].getNumGroups()];
+            Arrays.fill(groupNodes[k], -1);
+        }
+        for (String id : expanded) {
+            int[] group = parseGroup(id);
+            if (group != null) {
+                open[group[0]][group[1]] = true;
+            }
+        }
+
+        // Visible node of every state. Nodes on level depth are single states
+        int n = store.getNumStates();
+        int[] visible = new int[n];
+        Nodes nodes = new Nodes();
+        for (int i = 0; i < n; i++) {
+            int k = 0;
+            int g = levels[0].getGroup(i);
+            while (open[k][g] && k + 1 < depth) {
+                k++;
+                g = levels[k].getGroup(i);
+            }
+            if (open[k][g]) {
+                visible[i] = nodes.add(depth, i);
+            } else {
+                if (groupNodes[k][g] < 0) {
+                    groupNodes[k][g] = nodes.add(k, g);
+                }
+                visible[i] = groupNodes[k][g];
+            }
+        }
+
+        // Labels of a group hold if they hold in any of its states
+        int numLabels = model.getNumLabels();
+        BitSet initial = new BitSet(nodes.size);
+        BitSet deadlock = new BitSet(nodes.size);
+        BitSet[] labels = new BitSet[numLabels];
+        for (int l = 0; l < numLabels; l++) {
+            labels[l] = new BitSet(nodes.size);
+        }
+        for (int i = 0; i < n; i++) {
+            int node = visible[i];
+            if (nodes.level[node] == depth) {
+                continue;
+            }
+            if (store.isInitial(i)) initial.set(node);
+            if (store.isDeadlock(i)) deadlock.set(node);
+            for (int l = 0; l < numLabels; l++) {
+                if (store.hasLabel(l, i)) labels[l].set(node);
+            }
+        }
+
+        List<State> states = new ArrayList<>(nodes.size);
+        for (int node = 0; node < nodes.size; node++) {
+            int k = nodes.level[node];
+            int index = nodes.index[node];
+            if (k == depth) {
+                states.add(store.getStateNode(index));
+                continue;
+            }
+            Map<String, Object> parameters = new TreeMap<>();
+            parameters.put("grouping", groupings.get(k).getKey());
+            parameters.put("states", levels[k].getSize(index));
+            final int groupNode = node;
+            states.add(new State(nodes.id(groupNode), levels[k].getName(index), parameters, model.getLabelMap(initial.get(groupNode), deadlock.get(groupNode), l -> labels[l].get(groupNode)), new HashMap<>(), new HashMap<>()));
+        }
+
+        List<Transition> transitions = new ArrayList<>();
+        Map<Long, Summary> summaries = new LinkedHashMap<>();
+        long numActions = store.getNumActions();
+        for (int i = 0; i < n; i++) {
+            int node = visible[i];
+            for (int c = store.getChoiceStart(i); c < store.getChoiceEnd(i); c++) {
+                if (nodes.level[node] == depth) {
+                    // Single states keep each of their choices
+                    Transition transition = store.getTransitionNode(c);
+                    Map<String, Double> distribution = new HashMap<>();
+                    for (int k = store.getTargetStart(c); k < store.getTargetEnd(c); k++) {
+                        distribution.merge(nodes.id(visible[store.getTarget(k)]), store.getProbability(k), Double::sum);
+                    }
+                    transitions.add(new Transition(transition.getNumId(), transition.getSource(), transition.getAction(), distribution, transition.getRewards(), transition.getResults(), transition.getScheduler(), null));
+                    continue;
+                }
+                int action = store.getAction(c);
+                Summary summary = summaries.computeIfAbsent(node * numActions + action, key -> new Summary(node, action));
+                summary.choices++;
+                for (int k = store.getTargetStart(c); k < store.getTargetEnd(c); k++) {
+                    summary.mass.merge(visible[store.getTarget(k)], store.getProbability(k), Double::sum);
+                }
+            }
+        }
+        for (Summary summary : summaries.values()) {
+            Map<String, Double> distribution = new HashMap<>();
+            for (Map.Entry<Integer, Double> e : summary.mass.entrySet()) {
+                distribution.put(nodes.id(e.getKey()), e.getValue() / summary.choices);
+            }
+            String source = nodes.id(summary.node);
+            transitions.add(new Transition(source + "_" + summary.action, source, store.getActionName(summary.action), distribution, null, null, null, null));
+        }
+        return new Graph(model, states, transitions);
+    }
+
+    // Level and group of a group identifier, null if it is none of this aggregation
+    private int[] parseGroup(String id) {
+        if (!id.startsWith(GROUP_PREFIX)) {
+            return null;
+        }
+        String[] parts = id.substring(GROUP_PREFIX.length()).split("_");
+        try {
+            int k = Integer.parseInt(parts[0]);
+            int g = Integer.parseInt(parts[1]);
+            if (k < 0 || k >= levels.length || g < 0 || g >= levels[k].getNumGroups()) {
+                return null;
+            }
+            return new int[]{k, g};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Visible nodes as (level, group) pairs, or (depth, state) for single states
+     */
+    private class Nodes {
+        private int[] level = new int[16];
+        private int[] index = new int[16];
+        private int size = 0;
+
+        private int add(int k, int i) {
+            if (size == level.length) {
+                level = Arrays.copyOf(level, 2 * size);
+                index = Arrays.copyOf(index, 2 * size);
+            }
+            level[size] = k;
+            index[size] = i;
+            return size++;
+        }
+
+        private String id(int node) {
+            if (level[node] == levels.length) {
+                return Long.toString(store.getStateId(index[node]));
+            }
+            return GROUP_PREFIX + level[node] + "_" + index[node];
+        }
+    }
+
+    private static class Summary {
+        private final int node;
+        private final int action;
+        private final Map<Integer, Double> mass = new HashMap<>();
+        private int choices = 0;
+
+        Summary(int node, int action) {
+            this.node = node;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package prism.core.Aggregation;
+
+/**
+ * Ways to group the states of a model into the nodes of an aggregated graph.
+ *
+ * Translates between the API input, given as "type" or "type:argument", and the Grouping classes
+ */
+public enum AggregationType {
+    // Values of the given variables, "variables:x,y"
+    VARIABLES,
+
+    // Whether a state satisfies an expression, "predicate:x>2"
+    PREDICATE,
+
+    // Strongly connected components
+    SCC,
+
+    // Distance from the initial states in steps, optionally in buckets of a given width, "distance:5"
+    DISTANCE,
+
+    // Set of actions of the outgoing transitions
+    ACTIONS
+}
@@ -0,0 +1,78 @@
+package prism.core.Aggregation;
+
+import prism.core.GraphStore;
+import prism.core.Model;
+
+import java.util.Arrays;
+
+/**
+ * Groups states by their distance from the initial states, in buckets of granularity steps. States that are not
+ * reachable from an initial state form a group of their own.
+ */
+public class DistanceGrouping extends Grouping {
+
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final int granularity;
+
+    public DistanceGrouping(Model model, String argument) {
+        super(model, AggregationType.DISTANCE);
+        try {
+            this.granularity = argument.isEmpty() ? 1 : Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Granularity %s is not a number", argument));
+        }
+        if (granularity < 1) {
+            throw new IllegalArgumentException("Granularity has to be positive");
+        }
+    }
+
+    @Override
+    public String getKey() {
+        return "distance:" + granularity;
+    }
+
+    @Override
+    protected Partition compute(GraphStore store) {
+        int n = store.getNumStates();
+        int[] distance = new int[n];
+        Arrays.fill(distance, -1);
+
+        // Breadth first search with the queue in a plain array, every state is enqueued at most once
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (store.isInitial(i)) {
+                distance[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = store.getSuccessorStart(v); k < store.getSuccessorEnd(v); k++) {
+                int w = store.getTarget(k);
+                if (distance[w] < 0) {
+                    distance[w] = distance[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = distance[i] < 0 ? UNREACHABLE : distance[i] / granularity;
+        }
+        return Partition.ofKeys(keys, this::name);
+    }
+
+    private String name(long bucket) {
+        if (bucket == UNREACHABLE) {
+            return "unreachable";
+        }
+        if (granularity == 1) {
+            return "distance " + bucket;
+        }
+        return String.format("distance %s-%s", bucket * granularity, (bucket + 1) * granularity - 1);
+    }
+}
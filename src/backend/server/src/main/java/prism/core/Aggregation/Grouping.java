@@ -0,0 +1,63 @@
+package prism.core.Aggregation;
+
+import prism.core.GraphStore;
+import prism.core.Model;
+
+/**
+ * Parent of all ways to group the states of a model. A grouping only defines which states belong together, its
+ * partition is computed once per graph store and reused by every aggregation it is part of.
+ */
+public abstract class Grouping {
+
+    protected final Model model;
+
+    protected final AggregationType type;
+
+    protected Grouping(Model model, AggregationType type) {
+        this.model = model;
+        this.type = type;
+    }
+
+    /**
+     * Creates a grouping from its API description "type" or "type:argument"
+     */
+    public static Grouping parse(Model model, String description) {
+        String[] parts = description.split(":", 2);
+        AggregationType type;
+        try {
+            type = AggregationType.valueOf(parts[0].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown grouping %s", parts[0]));
+        }
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+        switch (type) {
+            case VARIABLES:
+                return new VariableGrouping(model, argument);
+            case PREDICATE:
+                return new PredicateGrouping(model, argument);
+            case SCC:
+                return new SccGrouping(model);
+            case DISTANCE:
+                return new DistanceGrouping(model, argument);
+            case ACTIONS:
+                return new ActionGrouping(model);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown grouping %s", parts[0]));
+        }
+    }
+
+    public AggregationType getType() {
+        return type;
+    }
+
+    /**
+     * Identifies the partition of this grouping among all partitions of a graph store
+     */
+    public abstract String getKey();
+
+    protected abstract Partition compute(GraphStore store);
+
+    public Partition getPartition(GraphStore store) {
+        return store.getAnalysis("grouping:" + getKey(), this::compute);
+    }
+}
@@ -0,0 +1,106 @@
+package prism.core.Aggregation;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Assignment of every state of a graph store to one of numGroups groups. Groups are numbered in the order of the keys
+ * they were created from, so partitions of the same graph are reproducible across requests.
+ *
+ * A partition refined by another one additionally knows the group every one of its groups was split from.
+ */
+public class Partition {
+
+    private final int[] groupOf;
+    private final String[] names;
+    private final int[] sizes;
+    private final int[] parents;
+
+    private Partition(int[] groupOf, String[] names, int[] parents) {
+        this.groupOf = groupOf;
+        this.names = names;
+        this.parents = parents;
+        this.sizes = new int[names.length];
+        for (int group : groupOf) {
+            sizes[group]++;
+        }
+    }
+
+    /**
+     * Groups states with equal keys, naming each group after its key
+     */
+    public static Partition ofKeys(long[] keys, LongFunction<String> name) {
+        long[] distinct = distinct(keys);
+        int[] groupOf = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            groupOf[i] = Arrays.binarySearch(distinct, keys[i]);
+        }
+        String[] names = new String[distinct.length];
+        for (int g = 0; g < distinct.length; g++) {
+            names[g] = name.apply(distinct[g]);
+        }
+        return new Partition(groupOf, names, null);
+    }
+
+    /**
+     * Splits every group of this partition by the groups of another one. The groups of the result are named after
+     * the groups of the other partition.
+     */
+    public Partition refine(Partition other) {
+        if (other.groupOf.length != groupOf.length) {
+            throw new IllegalArgumentException("Partitions of different graphs can not be combined");
+        }
+        long width = other.getNumGroups();
+        long[] keys = new long[groupOf.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = groupOf[i] * width + other.groupOf[i];
+        }
+        long[] distinct = distinct(keys);
+        int[] refined = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            refined[i] = Arrays.binarySearch(distinct, keys[i]);
+        }
+        String[] names = new String[distinct.length];
+        int[] parents = new int[distinct.length];
+        for (int g = 0; g < distinct.length; g++) {
+            names[g] = other.names[(int) (distinct[g] % width)];
+            parents[g] = (int) (distinct[g] / width);
+        }
+        return new Partition(refined, names, parents);
+    }
+
+    private static long[] distinct(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    public int getNumGroups() {
+        return names.length;
+    }
+
+    public int getGroup(int state) {
+        return groupOf[state];
+    }
+
+    public String getName(int group) {
+        return names[group];
+    }
+
+    public int getSize(int group) {
+        return sizes[group];
+    }
+
+    /**
+     * Group of the coarser partition this group was split from, -1 if this partition was not refined
+     */
+    public int getParent(int group) {
+        return parents == null ? -1 : parents[group];
+    }
+}
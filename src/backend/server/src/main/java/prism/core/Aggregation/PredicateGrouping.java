@@ -0,0 +1,47 @@
+package prism.core.Aggregation;
+
+import parser.ast.Expression;
+import prism.PrismLangException;
+import prism.core.GraphStore;
+import prism.core.Model;
+
+/**
+ * Splits the states into those satisfying an expression and all others
+ */
+public class PredicateGrouping extends Grouping {
+
+    private final String expression;
+
+    private final Expression predicate;
+
+    public PredicateGrouping(Model model, String expression) {
+        super(model, AggregationType.PREDICATE);
+        if (expression.isEmpty()) {
+            throw new IllegalArgumentException("Grouping by a predicate needs an expression, e.g. predicate:x>2");
+        }
+        this.expression = expression;
+        try {
+            this.predicate = model.getModelParser().parseStateExpression(expression);
+        } catch (PrismLangException e) {
+            throw new IllegalArgumentException(String.format("Could not parse %s: %s", expression, e.getMessage()));
+        }
+    }
+
+    @Override
+    public String getKey() {
+        return "predicate:" + expression;
+    }
+
+    @Override
+    protected Partition compute(GraphStore store) {
+        long[] keys = new long[store.getNumStates()];
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = predicate.evaluateBoolean(store.getVariables(i)) ? 1 : 0;
+            }
+        } catch (PrismLangException e) {
+            throw new RuntimeException(e);
+        }
+        return Partition.ofKeys(keys, key -> key > 0 ? expression : String.format("!(%s)", expression));
+    }
+}
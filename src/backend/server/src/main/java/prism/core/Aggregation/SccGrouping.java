@@ -0,0 +1,30 @@
+package prism.core.Aggregation;
+
+import prism.core.Components;
+import prism.core.GraphStore;
+import prism.core.Model;
+
+/**
+ * Groups the states of each strongly connected component of the graph
+ */
+public class SccGrouping extends Grouping {
+
+    public SccGrouping(Model model) {
+        super(model, AggregationType.SCC);
+    }
+
+    @Override
+    public String getKey() {
+        return "scc";
+    }
+
+    @Override
+    protected Partition compute(GraphStore store) {
+        Components components = store.getAnalysis(Components.KEY, Components::compute);
+        long[] keys = new long[store.getNumStates()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = components.getComponent(i);
+        }
+        return Partition.ofKeys(keys, key -> (components.isBottom((int) key) ? "bottom SCC " : "SCC ") + key);
+    }
+}
@@ -0,0 +1,86 @@
+package prism.core.Aggregation;
+
+import parser.VarList;
+import prism.core.GraphStore;
+import prism.core.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups states with equal values of the given variables. The values are encoded into one key per state with the
+ * bounds of each variable, like state identifiers are.
+ */
+public class VariableGrouping extends Grouping {
+
+    private final List<String> variables = new ArrayList<>();
+
+    // Indexed like variables
+    private final int[] positions;
+    private final int[] low;
+    private final long[] strides;
+    private final boolean[] bool;
+
+    public VariableGrouping(Model model, String argument) {
+        super(model, AggregationType.VARIABLES);
+        for (String variable : argument.split(",")) {
+            if (!variable.trim().isEmpty()) {
+                variables.add(variable.trim());
+            }
+        }
+        if (variables.isEmpty()) {
+            throw new IllegalArgumentException("Grouping by variables needs at least one variable, e.g. variables:x,y");
+        }
+
+        VarList varList = model.getModelParser().getVarList();
+        int n = variables.size();
+        this.positions = new int[n];
+        this.low = new int[n];
+        this.strides = new long[n];
+        this.bool = new boolean[n];
+        long stride = 1;
+        for (int v = n - 1; v >= 0; v--) {
+            String name = variables.get(v);
+            int index = varList.getIndex(name);
+            if (index < 0) {
+                throw new IllegalArgumentException(String.format("%s is not a variable of this model. Available variables are: %s", name, String.join(", ", model.getModulesFile().getVarNames())));
+            }
+            positions[v] = model.getModulesFile().getVarIndex(name);
+            low[v] = varList.getLow(index);
+            bool[v] = "bool".equals(varList.getType(index).getTypeString());
+            strides[v] = stride;
+            stride = Math.multiplyExact(stride, (long) varList.getHigh(index) - varList.getLow(index) + 1);
+        }
+    }
+
+    @Override
+    public String getKey() {
+        return "variables:" + String.join(",", variables);
+    }
+
+    @Override
+    protected Partition compute(GraphStore store) {
+        long[] keys = new long[store.getNumStates()];
+        for (int i = 0; i < keys.length; i++) {
+            Object[] values = store.getVariables(i).varValues;
+            long key = 0;
+            for (int v = 0; v < positions.length; v++) {
+                Object value = values[positions[v]];
+                int digit = bool[v] ? ((Boolean) value ? 1 : 0) : (Integer) value - low[v];
+                key += strides[v] * digit;
+            }
+            keys[i] = key;
+        }
+        return Partition.ofKeys(keys, this::name);
+    }
+
+    private String name(long key) {
+        List<String> assignments = new ArrayList<>(positions.length);
+        for (int v = 0; v < positions.length; v++) {
+            long digit = key / strides[v];
+            key %= strides[v];
+            assignments.add(variables.get(v) + "=" + (bool[v] ? String.valueOf(digit > 0) : String.valueOf(digit + low[v])));
+        }
+        return String.join(", ", assignments);
+    }
+}
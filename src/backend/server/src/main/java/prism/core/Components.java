@@ -0,0 +1,103 @@
+package prism.core;
+
+import prism.core.Utility.Tarjan;
+
+import java.util.stream.IntStream;
+
+/**
+ * Strongly connected components of the graph of a built version. A component is a bottom component if no transition
+ * leaves it, so every path reaching it stays in it forever.
+ *
+ * Components are found by the iterative Tarjan in O(states + targets) without recursion. The passes over the targets
+ * that follow run in parallel, they only ever set flags from false to true.
+ */
+public class Components {
+
+    public static final String KEY = "scc";
+
+    private final int[] component;
+    private final int numComponents;
+    private final int[] sizes;
+    private final boolean[] bottom;
+    private final boolean[] exits;
+    private final int numBottom;
+
+    private Components(int[] component, int numComponents, boolean[] bottom, boolean[] exits) {
+        this.component = component;
+        this.numComponents = numComponents;
+        this.bottom = bottom;
+        this.exits = exits;
+        this.sizes = new int[numComponents];
+        for (int c : component) {
+            sizes[c]++;
+        }
+        int count = 0;
+        for (boolean b : bottom) {
+            if (b) count++;
+        }
+        this.numBottom = count;
+    }
+
+    public static Components compute(GraphStore store) {
+        int n = store.getNumStates();
+        int[] component = Tarjan.components(n, store::getSuccessorStart, store::getSuccessorEnd, store::getTarget);
+        int numComponents = 0;
+        for (int c : component) {
+            numComponents = Math.max(numComponents, c + 1);
+        }
+
+        boolean[] exits = new boolean[store.getNumChoices()];
+        boolean[] left = new boolean[numComponents];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int c = store.getChoiceStart(i); c < store.getChoiceEnd(i); c++) {
+                for (int k = store.getTargetStart(c); k < store.getTargetEnd(c); k++) {
+                    if (component[store.getTarget(k)] != component[i]) {
+                        exits[c] = true;
+                        left[component[i]] = true;
+                        break;
+                    }
+                }
+            }
+        });
+        boolean[] bottom = new boolean[numComponents];
+        for (int c = 0; c < numComponents; c++) {
+            bottom[c] = !left[c];
+        }
+        return new Components(component, numComponents, bottom, exits);
+    }
+
+    public int getNumComponents() {
+        return numComponents;
+    }
+
+    public int getNumBottom() {
+        return numBottom;
+    }
+
+    /**
+     * Component of state i. Components are numbered in reverse topological order, so transitions only lead to
+     * components with the same or a lower number.
+     */
+    public int getComponent(int i) {
+        return component[i];
+    }
+
+    public int getSize(int c) {
+        return sizes[c];
+    }
+
+    public boolean isBottom(int c) {
+        return bottom[c];
+    }
+
+    public boolean isInBottom(int i) {
+        return bottom[component[i]];
+    }
+
+    /**
+     * Whether choice c can lead out of the component of its state
+     */
+    public boolean isExit(int c) {
+        return exits[c];
+    }
+}
@@ -0,0 +1,41 @@
+package prism.core;
+
+/**
+ * Engines of PRISM a property can be checked with. AUTO is no engine of its own, it benchmarks the others on the first
+ * check of a property and keeps the fastest.
+ */
+public enum Engine {
+    MTBDD(1), SPARSE(2), HYBRID(3), EXPLICIT(4), AUTO(-1);
+
+    private final int id;
+
+    Engine(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Number of the engine in the settings of PRISM
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Whether the engine checks the symbolic model, which is also the model written to the database
+     */
+    public boolean isSymbolic() {
+        return this == MTBDD || this == SPARSE || this == HYBRID;
+    }
+
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    public static Engine parse(String name) {
+        try {
+            return Engine.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(String.format("Unknown engine %s", name));
+        }
+    }
+}
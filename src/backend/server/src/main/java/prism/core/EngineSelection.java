@@ -0,0 +1,118 @@
+package prism.core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Engines chosen for a project and its properties, kept in the project directory. A property uses its own engine if one
+ * is set, otherwise the engine of the project. If that is AUTO, the engine that won the benchmark of the property is
+ * used once there is one.
+ */
+public class EngineSelection {
+
+    private static final String KEY_ENGINE = "engine";
+    private static final String PREFIX_PROPERTY = "property.";
+    private static final String PREFIX_WINNER = "winner.";
+
+    private final File file;
+    private final Engine fallback;
+    private final Properties settings = new Properties();
+
+    public EngineSelection(File file, Engine fallback) {
+        this.file = file;
+        this.fallback = fallback;
+        if (file.exists()) {
+            try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                settings.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public synchronized Engine getDefault() {
+        return parse(settings.getProperty(KEY_ENGINE)).orElse(fallback);
+    }
+
+    public synchronized void setDefault(Engine engine) {
+        settings.setProperty(KEY_ENGINE, engine.getName());
+        save();
+    }
+
+    /**
+     * Engine set for the property, which may be AUTO
+     */
+    public synchronized Engine getEngine(String property) {
+        return parse(settings.getProperty(PREFIX_PROPERTY + property)).orElse(getDefault());
+    }
+
+    /**
+     * Sets the engine of a property, null to use the engine of the project again
+     */
+    public synchronized void setEngine(String property, Engine engine) {
+        if (engine == null) {
+            settings.remove(PREFIX_PROPERTY + property);
+        } else {
+            settings.setProperty(PREFIX_PROPERTY + property, engine.getName());
+        }
+        save();
+    }
+
+    public synchronized Optional<Engine> getWinner(String property) {
+        return parse(settings.getProperty(PREFIX_WINNER + property));
+    }
+
+    public synchronized void setWinner(String property, Engine engine) {
+        settings.setProperty(PREFIX_WINNER + property, engine.getName());
+        save();
+    }
+
+    /**
+     * Engine to check the property with, AUTO if it still has to be benchmarked
+     */
+    public synchronized Engine resolve(String property) {
+        Engine engine = getEngine(property);
+        if (engine == Engine.AUTO) {
+            return getWinner(property).orElse(Engine.AUTO);
+        }
+        return engine;
+    }
+
+    /**
+     * Engine to build the model with. Only symbolic engines build the model written to the database, so MTBDD is used
+     * if the project uses another one.
+     */
+    public synchronized Engine getBuildEngine() {
+        Engine engine = getDefault();
+        return engine.isSymbolic() ? engine : Engine.MTBDD;
+    }
+
+    public synchronized Map<String, String> toMap() {
+        Map<String, String> out = new TreeMap<>();
+        out.put(KEY_ENGINE, getDefault().getName());
+        for (String key : settings.stringPropertyNames()) {
+            out.put(key, settings.getProperty(key));
+        }
+        return out;
+    }
+
+    private void save() {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            settings.store(out, "Engines of the project");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<Engine> parse(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Engine.parse(name));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package prism.core;
+
+/**
+ * Conditions on the nodes of a paginated graph request. Unset conditions are null and match every node.
+ */
+public class GraphFilter {
+
+    private final String label;
+    private final String property;
+    private final Double min;
+    private final Double max;
+    private final String scheduler;
+
+    public GraphFilter(String label, String property, Double min, Double max, String scheduler) {
+        this.label = label;
+        this.property = property;
+        this.min = min;
+        this.max = max;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Label a state has to satisfy, including the init and deadlock labels
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Property whose value has to lie between min and max
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    public double getMin() {
+        return min == null ? Double.NEGATIVE_INFINITY : min;
+    }
+
+    public double getMax() {
+        return max == null ? Double.POSITIVE_INFINITY : max;
+    }
+
+    public boolean hasMin() {
+        return min != null;
+    }
+
+    public boolean hasMax() {
+        return max != null;
+    }
+
+    /**
+     * Scheduler that has to choose a transition, or under which a state has to be reachable
+     */
+    public String getScheduler() {
+        return scheduler;
+    }
+}
@@ -0,0 +1,1441 @@
+package prism.core;
+
+import org.jdbi.v3.core.result.ResultIterator;
+import prism.PrismLangException;
+import prism.api.Edge;
+import prism.api.Graph;
+import prism.api.GraphWriter;
+import prism.api.Node;
+import prism.api.Page;
+import prism.api.State;
+import prism.api.Transition;
+import prism.core.Property.Property;
+import prism.core.Scheduler.Scheduler;
+import prism.db.Database;
+import prism.db.PersistentQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only copy of the graph of a built model version in compressed sparse row form:
+ * state -> choices -> (target, probability). Answers the graph queries of the Model without going to the database.
+ *
+ * The graph is either loaded from the database into heap buffers or mapped from a snapshot file written after an
+ * earlier load, in which case it is served directly from the page cache. Only versions with numeric identifiers and a
+ * normalized target table are supported. Property results and schedulers are loaded separately, as they change
+ * whenever a property is checked.
+ */
+public class GraphStore implements Namespace {
+
+    private static final int MAGIC_GRAPH = 0x504D4347;
+    private static final int MAGIC_RESULTS = 0x504D4352;
+    private static final int FORMAT = 2;
+    private static final int HEADER_SIZE = 64;
+
+    private final Model model;
+
+    private final List<String> rewardNames;
+
+    private final int numStates;
+    private final int numChoices;
+    private final int numTargets;
+
+    // Raw sections in snapshot order, the typed buffers below are views of them
+    private final ByteBuffer[] sections;
+
+    // States, sorted by identifier. The UTF-8 name of state i are the bytes nameOffsets[i] until nameOffsets[i+1]
+    private final LongBuffer stateIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final BitSet initials;
+    // States satisfying label l, deadlocks are states without choices
+    private final BitSet[] labels;
+    private final DoubleBuffer[] stateRewards;
+
+    // The choices of state i are choiceOffsets[i] until choiceOffsets[i+1]
+    private final IntBuffer choiceOffsets;
+    private final LongBuffer choiceIds;
+    private final IntBuffer choiceActions;
+    private final String[] actions;
+    private final DoubleBuffer[] choiceRewards;
+
+    // Choice identifiers are not ordered by their origin, so they are looked up through a sorted copy
+    private final LongBuffer sortedChoiceIds;
+    private final IntBuffer sortedChoices;
+
+    // The targets of choice c are targetOffsets[c] until targetOffsets[c+1]
+    private final IntBuffer targetOffsets;
+    private final IntBuffer targets;
+    private final DoubleBuffer probabilities;
+
+    // The choices leading to state i are incomingOffsets[i] until incomingOffsets[i+1]
+    private final IntBuffer incomingOffsets;
+    private final IntBuffer incoming;
+
+    private volatile Results results = null;
+
+    // Snapshot file of the results, null if the store is not persisted
+    private File resultsFile = null;
+    // The snapshot is only read when the results are loaded for the first time. Once they were invalidated, it may be
+    // older than the database and is only written to.
+    private volatile boolean resultsSnapshotCurrent = true;
+    private long fingerprint = 0;
+
+    // Results of analyses on the graph, which stay valid as long as this store
+    private final Map<String, Object> analyses = new ConcurrentHashMap<>();
+
+    private GraphStore(Model model, int numStates, int numChoices, int numTargets, ByteBuffer[] sections, BitSet initials, BitSet[] labels, String[] actions) {
+        this.model = model;
+        this.rewardNames = model.getModulesFile().getRewardStructNames();
+        int numRewards = rewardNames.size();
+        this.numStates = numStates;
+        this.numChoices = numChoices;
+        this.numTargets = numTargets;
+        this.sections = sections;
+        this.initials = initials;
+        this.labels = labels;
+        this.actions = actions;
+
+        int s = 0;
+        this.stateIds = sections[s++].asLongBuffer();
+        this.nameOffsets = sections[s++].asIntBuffer();
+        this.names = sections[s++];
+        this.stateRewards = new DoubleBuffer[numRewards];
+        for (int r = 0; r < numRewards; r++) {
+            stateRewards[r] = sections[s++].asDoubleBuffer();
+        }
+        this.choiceOffsets = sections[s++].asIntBuffer();
+        this.choiceIds = sections[s++].asLongBuffer();
+        this.choiceActions = sections[s++].asIntBuffer();
+        this.choiceRewards = new DoubleBuffer[numRewards];
+        for (int r = 0; r < numRewards; r++) {
+            choiceRewards[r] = sections[s++].asDoubleBuffer();
+        }
+        this.sortedChoiceIds = sections[s++].asLongBuffer();
+        this.sortedChoices = sections[s++].asIntBuffer();
+        this.targetOffsets = sections[s++].asIntBuffer();
+        this.targets = sections[s++].asIntBuffer();
+        this.probabilities = sections[s++].asDoubleBuffer();
+        this.incomingOffsets = sections[s++].asIntBuffer();
+        this.incoming = sections[s].asIntBuffer();
+    }
+
+    private static int numSections(int numRewards) {
+        return 13 + 2 * numRewards;
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Section of %s bytes is too large", bytes));
+        }
+        return ByteBuffer.allocate((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Loads the graph of the given version from the database. Returns null if the version can not be held in memory
+     * or exceeds the given number of transition targets.
+     */
+    public static GraphStore load(Model model, long limit) {
+        if (!model.isTypedSchema() || !model.hasTransitionTargets()) {
+            return null;
+        }
+        Database database = model.getDatabase();
+        long numStates = database.executeLookupQuery(String.format("SELECT COUNT(*) FROM %s", model.getTableStates()), Long.class).orElse(0L);
+        long numChoices = database.executeLookupQuery(String.format("SELECT COUNT(*) FROM %s", model.getTableTrans()), Long.class).orElse(0L);
+        long numTargets = database.executeLookupQuery(String.format("SELECT COUNT(*) FROM %s", model.getTableTargets()), Long.class).orElse(0L);
+        if (numTargets > limit || numTargets >= Integer.MAX_VALUE || numChoices >= Integer.MAX_VALUE) {
+            return null;
+        }
+        return new Loader(model, (int) numStates, (int) numChoices, (int) numTargets).load();
+    }
+
+    /**
+     * Fills the sections of a new store from the database
+     */
+    private static class Loader {
+
+        private final Model model;
+        private final Database database;
+        private final int numStates;
+        private final int numChoices;
+        private final int numTargets;
+        private final int numRewards;
+
+        private final ByteBuffer[] sections;
+        private final BitSet initials;
+        private final BitSet[] labels;
+        private final boolean labelColumns;
+
+        private final LongBuffer stateIds;
+        private final IntBuffer nameOffsets;
+        private final DoubleBuffer[] stateRewards;
+        private final IntBuffer choiceOffsets;
+        private final LongBuffer choiceIds;
+        private final IntBuffer choiceActions;
+        private final DoubleBuffer[] choiceRewards;
+        private final LongBuffer sortedChoiceIds;
+        private final IntBuffer sortedChoices;
+        private final IntBuffer targetOffsets;
+        private final IntBuffer targets;
+        private final DoubleBuffer probabilities;
+        private final IntBuffer incomingOffsets;
+        private final IntBuffer incoming;
+
+        private Loader(Model model, int numStates, int numChoices, int numTargets) {
+            this.model = model;
+            this.database = model.getDatabase();
+            this.numStates = numStates;
+            this.numChoices = numChoices;
+            this.numTargets = numTargets;
+            this.numRewards = model.getModulesFile().getNumRewardStructs();
+            this.sections = new ByteBuffer[numSections(numRewards)];
+            this.initials = new BitSet(numStates);
+            this.labels = new BitSet[model.getNumLabels()];
+            for (int l = 0; l < labels.length; l++) {
+                labels[l] = new BitSet(numStates);
+            }
+            this.labelColumns = model.hasLabelColumns();
+
+            int s = 0;
+            sections[s++] = allocate(8L * numStates);
+            sections[s++] = allocate(4L * (numStates + 1));
+            // The names are only known after loading the states
+            s++;
+            for (int r = 0; r < numRewards; r++) {
+                sections[s++] = allocate(8L * numStates);
+            }
+            sections[s++] = allocate(4L * (numStates + 1));
+            sections[s++] = allocate(8L * numChoices);
+            sections[s++] = allocate(4L * numChoices);
+            for (int r = 0; r < numRewards; r++) {
+                sections[s++] = allocate(8L * numChoices);
+            }
+            sections[s++] = allocate(8L * numChoices);
+            sections[s++] = allocate(4L * numChoices);
+            sections[s++] = allocate(4L * (numChoices + 1));
+            sections[s++] = allocate(4L * numTargets);
+            sections[s++] = allocate(8L * numTargets);
+            sections[s++] = allocate(4L * (numStates + 1));
+            sections[s] = allocate(4L * numTargets);
+
+            s = 0;
+            this.stateIds = sections[s++].asLongBuffer();
+            this.nameOffsets = sections[s++].asIntBuffer();
+            s++;
+            this.stateRewards = new DoubleBuffer[numRewards];
+            for (int r = 0; r < numRewards; r++) {
+                stateRewards[r] = sections[s++].asDoubleBuffer();
+            }
+            this.choiceOffsets = sections[s++].asIntBuffer();
+            this.choiceIds = sections[s++].asLongBuffer();
+            this.choiceActions = sections[s++].asIntBuffer();
+            this.choiceRewards = new DoubleBuffer[numRewards];
+            for (int r = 0; r < numRewards; r++) {
+                choiceRewards[r] = sections[s++].asDoubleBuffer();
+            }
+            this.sortedChoiceIds = sections[s++].asLongBuffer();
+            this.sortedChoices = sections[s++].asIntBuffer();
+            this.targetOffsets = sections[s++].asIntBuffer();
+            this.targets = sections[s++].asIntBuffer();
+            this.probabilities = sections[s++].asDoubleBuffer();
+            this.incomingOffsets = sections[s++].asIntBuffer();
+            this.incoming = sections[s].asIntBuffer();
+        }
+
+        private GraphStore load() {
+            loadStates();
+            String[] actions = loadChoices();
+            loadTargets();
+            buildIncoming();
+            return new GraphStore(model, numStates, numChoices, numTargets, sections, initials, labels, actions);
+        }
+
+        private void loadStates() {
+            String query = String.format("SELECT * FROM %s ORDER BY %s", model.getTableStates(), ENTRY_S_ID);
+            byte[][] names = {new byte[(int) Math.min(1 << 28, Math.max(16, 16L * numStates))]};
+            int[] length = {0};
+            int[] row = {0};
+            try (PersistentQuery q = database.openCursor(query, Database.FETCH_SIZE); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                int i = row[0]++;
+                stateIds.put(i, rs.getLong(ENTRY_S_ID));
+                String stateName = rs.getString(ENTRY_S_NAME);
+                byte[] name = stateName.getBytes(StandardCharsets.UTF_8);
+                if (length[0] + name.length > names[0].length) {
+                    names[0] = Arrays.copyOf(names[0], (int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * names[0].length, length[0] + name.length)));
+                }
+                System.arraycopy(name, 0, names[0], length[0], name.length);
+                length[0] += name.length;
+                nameOffsets.put(i + 1, length[0]);
+                if (rs.getBoolean(ENTRY_S_INIT)) {
+                    initials.set(i);
+                }
+                long bits = labelColumns ? rs.getLong(ENTRY_S_LABELS) : 0;
+                if (labelColumns && !rs.wasNull()) {
+                    for (int l = 0; l < labels.length; l++) {
+                        labels[l].set(i, (bits >>> l & 1) != 0);
+                    }
+                } else {
+                    evaluateLabels(i, stateName);
+                }
+                for (int r = 0; r < numRewards; r++) {
+                    stateRewards[r].put(i, rs.getDouble(ENTRY_REW + r));
+                }
+                return i;
+            })) {
+                it.forEachRemaining(i -> {});
+            }
+            sections[2] = ByteBuffer.wrap(Arrays.copyOf(names[0], length[0])).order(ByteOrder.nativeOrder());
+        }
+
+        private void evaluateLabels(int i, String stateName) {
+            try {
+                parser.State state = model.getModelParser().readState(Long.toString(stateIds.get(i)), stateName);
+                for (int l = 0; l < labels.length; l++) {
+                    labels[l].set(i, model.hasLabel(l, state));
+                }
+            } catch (PrismLangException e) {
+                // Served without labels, like states whose name can not be parsed
+            }
+        }
+
+        private String[] loadChoices() {
+            String query = String.format("SELECT * FROM %s ORDER BY %s, %s", model.getTableTrans(), ENTRY_T_OUT, ENTRY_T_ID);
+            Map<String, Integer> actionIndex = new LinkedHashMap<>();
+            int[] row = {0};
+            try (PersistentQuery q = database.openCursor(query, Database.FETCH_SIZE); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                int c = row[0]++;
+                int origin = search(stateIds, rs.getLong(ENTRY_T_OUT));
+                if (origin < 0) {
+                    throw new IllegalStateException(String.format("Transition %s has no origin", rs.getLong(ENTRY_T_ID)));
+                }
+                choiceOffsets.put(origin + 1, choiceOffsets.get(origin + 1) + 1);
+                choiceIds.put(c, rs.getLong(ENTRY_T_ID));
+                choiceActions.put(c, actionIndex.computeIfAbsent(rs.getString(ENTRY_T_ACT), a -> actionIndex.size()));
+                for (int r = 0; r < numRewards; r++) {
+                    choiceRewards[r].put(c, rs.getDouble(ENTRY_REW + r));
+                }
+                return c;
+            })) {
+                it.forEachRemaining(c -> {});
+            }
+            for (int i = 0; i < numStates; i++) {
+                choiceOffsets.put(i + 1, choiceOffsets.get(i + 1) + choiceOffsets.get(i));
+            }
+
+            for (int c = 0; c < numChoices; c++) {
+                sortedChoiceIds.put(c, choiceIds.get(c));
+                sortedChoices.put(c, c);
+            }
+            sort(sortedChoiceIds, sortedChoices);
+            return actionIndex.keySet().toArray(new String[0]);
+        }
+
+        private int choiceIndex(long choiceId) {
+            int k = search(sortedChoiceIds, choiceId);
+            return k >= 0 ? sortedChoices.get(k) : -1;
+        }
+
+        private void loadTargets() {
+            String query = String.format("SELECT %s, %s, %s FROM %s", ENTRY_T_ID, ENTRY_TT_TARGET, ENTRY_TT_PROB, model.getTableTargets());
+            int[] choiceOf = new int[numTargets];
+            int[] unsortedTargets = new int[numTargets];
+            double[] unsortedProbabilities = new double[numTargets];
+            int[] row = {0};
+            try (PersistentQuery q = database.openCursor(query, Database.FETCH_SIZE); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                int k = row[0]++;
+                int choice = choiceIndex(rs.getLong(ENTRY_T_ID));
+                int target = search(stateIds, rs.getLong(ENTRY_TT_TARGET));
+                if (choice < 0 || target < 0) {
+                    throw new IllegalStateException(String.format("Target %s of transition %s is unknown", rs.getLong(ENTRY_TT_TARGET), rs.getLong(ENTRY_T_ID)));
+                }
+                choiceOf[k] = choice;
+                unsortedTargets[k] = target;
+                unsortedProbabilities[k] = rs.getDouble(ENTRY_TT_PROB);
+                targetOffsets.put(choice + 1, targetOffsets.get(choice + 1) + 1);
+                return k;
+            })) {
+                it.forEachRemaining(k -> {});
+            }
+            for (int c = 0; c < numChoices; c++) {
+                targetOffsets.put(c + 1, targetOffsets.get(c + 1) + targetOffsets.get(c));
+            }
+
+            // Rows arrive in arbitrary order and are placed into the slots of their choice
+            int[] cursor = new int[numChoices];
+            for (int c = 0; c < numChoices; c++) {
+                cursor[c] = targetOffsets.get(c);
+            }
+            for (int k = 0; k < numTargets; k++) {
+                int slot = cursor[choiceOf[k]]++;
+                targets.put(slot, unsortedTargets[k]);
+                probabilities.put(slot, unsortedProbabilities[k]);
+            }
+        }
+
+        private void buildIncoming() {
+            for (int k = 0; k < numTargets; k++) {
+                int t = targets.get(k);
+                incomingOffsets.put(t + 1, incomingOffsets.get(t + 1) + 1);
+            }
+            for (int i = 0; i < numStates; i++) {
+                incomingOffsets.put(i + 1, incomingOffsets.get(i + 1) + incomingOffsets.get(i));
+            }
+            int[] cursor = new int[numStates];
+            for (int i = 0; i < numStates; i++) {
+                cursor[i] = incomingOffsets.get(i);
+            }
+            for (int c = 0; c < numChoices; c++) {
+                for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+                    incoming.put(cursor[targets.get(k)]++, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Heap sort of the keys, applying the same permutation to the values. Avoids boxing the indices of large models.
+     */
+    private static void sort(LongBuffer keys, IntBuffer values) {
+        int n = keys.limit();
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(keys, values, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(keys, values, 0, end);
+            siftDown(keys, values, 0, end);
+        }
+    }
+
+    private static void siftDown(LongBuffer keys, IntBuffer values, int i, int n) {
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && keys.get(child + 1) > keys.get(child)) {
+                child++;
+            }
+            if (keys.get(i) >= keys.get(child)) {
+                return;
+            }
+            swap(keys, values, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(LongBuffer keys, IntBuffer values, int i, int j) {
+        long key = keys.get(i);
+        keys.put(i, keys.get(j));
+        keys.put(j, key);
+        int value = values.get(i);
+        values.put(i, values.get(j));
+        values.put(j, value);
+    }
+
+    /**
+     * Binary search in a sorted buffer. Returns the index of the key or -1 if it is not contained.
+     */
+    private static int search(LongBuffer sorted, long key) {
+        int low = 0;
+        int high = sorted.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = sorted.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    //---Snapshots---
+
+    /**
+     * Maps the snapshot of a version written by an earlier run. Returns null if there is no snapshot or it does not
+     * belong to the given fingerprint, e.g. as the model file has changed since.
+     */
+    public static GraphStore open(Model model, File graphFile, File resultsFile, long fingerprint) throws IOException {
+        if (!graphFile.isFile()) {
+            return null;
+        }
+        int numRewards = model.getModulesFile().getNumRewardStructs();
+        int numLabels = model.getNumLabels();
+        try (FileChannel channel = FileChannel.open(graphFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC_GRAPH || header.getInt() != FORMAT) {
+                return null;
+            }
+            ByteOrder order = header.get() == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            header.position(header.position() + 3);
+            int numStates = header.getInt();
+            int numChoices = header.getInt();
+            int numTargets = header.getInt();
+            int storedRewards = header.getInt();
+            int numSections = header.getInt();
+            long storedFingerprint = header.getLong();
+            if (order != ByteOrder.nativeOrder() || storedFingerprint != fingerprint || storedRewards != numRewards || numSections != numSections(numRewards) + 2 + numLabels) {
+                return null;
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(8 * numSections);
+            channel.read(table, HEADER_SIZE);
+            table.flip();
+            long offset = align(HEADER_SIZE + 8L * numSections);
+            ByteBuffer[] mapped = new ByteBuffer[numSections];
+            for (int s = 0; s < numSections; s++) {
+                long size = table.getLong();
+                if (offset + size > channel.size()) {
+                    return null;
+                }
+                // Mappings stay valid after the channel is closed
+                mapped[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(order);
+                offset = align(offset + size);
+            }
+
+            int graphSections = numSections(numRewards);
+            BitSet initials = BitSet.valueOf(mapped[graphSections].asLongBuffer());
+            BitSet[] labels = new BitSet[numLabels];
+            for (int l = 0; l < numLabels; l++) {
+                labels[l] = BitSet.valueOf(mapped[graphSections + 1 + l].asLongBuffer());
+            }
+            ByteBuffer actionBytes = mapped[numSections - 1];
+            String[] actions = new String[actionBytes.getInt()];
+            for (int a = 0; a < actions.length; a++) {
+                byte[] action = new byte[actionBytes.getInt()];
+                actionBytes.get(action);
+                actions[a] = new String(action, StandardCharsets.UTF_8);
+            }
+
+            GraphStore store = new GraphStore(model, numStates, numChoices, numTargets, Arrays.copyOf(mapped, graphSections), initials, labels, actions);
+            store.resultsFile = resultsFile;
+            store.fingerprint = fingerprint;
+            return store;
+        }
+    }
+
+    private ByteBuffer bitSection(BitSet bits) {
+        ByteBuffer bytes = ByteBuffer.allocate(8 * ((numStates + 63) / 64)).order(ByteOrder.nativeOrder());
+        bytes.asLongBuffer().put(bits.toLongArray());
+        return bytes;
+    }
+
+    /**
+     * Writes the graph into a snapshot file, which later runs can map instead of loading the graph again. Property
+     * results are written into a second file whenever they are loaded.
+     */
+    public void writeSnapshot(File graphFile, File resultsFile, long fingerprint) throws IOException {
+        List<ByteBuffer> content = new ArrayList<>(Arrays.asList(sections));
+        content.add(bitSection(initials));
+        for (BitSet label : labels) {
+            content.add(bitSection(label));
+        }
+        int actionsSize = 4;
+        for (String action : actions) {
+            actionsSize += 4 + action.getBytes(StandardCharsets.UTF_8).length;
+        }
+        ByteBuffer actionBytes = ByteBuffer.allocate(actionsSize).order(ByteOrder.nativeOrder());
+        actionBytes.putInt(actions.length);
+        for (String action : actions) {
+            byte[] bytes = action.getBytes(StandardCharsets.UTF_8);
+            actionBytes.putInt(bytes.length);
+            actionBytes.put(bytes);
+        }
+        actionBytes.flip();
+        content.add(actionBytes);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC_GRAPH).putInt(FORMAT);
+        header.put((byte) (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 1 : 0)).put(new byte[3]);
+        header.putInt(numStates).putInt(numChoices).putInt(numTargets).putInt(rewardNames.size()).putInt(content.size());
+        header.putLong(fingerprint);
+        header.rewind();
+        ByteBuffer table = ByteBuffer.allocate(8 * content.size());
+        for (ByteBuffer section : content) {
+            table.putLong(section.limit());
+        }
+        table.flip();
+
+        // Written under a temporary name, so that a crash never leaves a partial snapshot behind
+        File temp = new File(graphFile.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(header, 0);
+            channel.write(table, HEADER_SIZE);
+            long offset = align(HEADER_SIZE + 8L * content.size());
+            for (ByteBuffer section : content) {
+                ByteBuffer data = section.duplicate();
+                data.clear();
+                while (data.hasRemaining()) {
+                    offset += channel.write(data, offset);
+                }
+                offset = align(offset);
+            }
+            channel.force(false);
+        }
+        Files.move(temp.toPath(), graphFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.resultsFile = resultsFile;
+        this.fingerprint = fingerprint;
+        Results current = results;
+        if (current != null) {
+            writeResults(current);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private void writeResults(Results current) {
+        if (resultsFile == null) {
+            return;
+        }
+        File temp = new File(resultsFile.getPath() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC_RESULTS).putInt(FORMAT);
+                header.put((byte) (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 1 : 0)).put(new byte[3]);
+                header.putInt(numStates).putInt(numChoices).putInt(current.stateValues.size()).putInt(current.schedulers.size());
+                header.putLong(fingerprint);
+                header.rewind();
+                long offset = channel.write(header, 0);
+                for (Map.Entry<Integer, DoubleBuffer> entry : current.stateValues.entrySet()) {
+                    ByteBuffer id = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder()).putInt(entry.getKey()).putInt(0);
+                    id.flip();
+                    offset += channel.write(id, offset);
+                    offset = writeDoubles(channel, entry.getValue(), offset);
+                    offset = writeDoubles(channel, current.choiceValues.get(entry.getKey()), offset);
+                }
+                for (Map.Entry<String, BitSet> entry : current.schedulers.entrySet()) {
+                    byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    long[] words = entry.getValue().toLongArray();
+                    ByteBuffer data = ByteBuffer.allocate((int) align(8 + name.length) + 8 * words.length).order(ByteOrder.nativeOrder());
+                    data.putInt(name.length).putInt(words.length).put(name);
+                    data.position((int) align(data.position()));
+                    data.asLongBuffer().put(words);
+                    data.rewind();
+                    while (data.hasRemaining()) {
+                        offset += channel.write(data, offset);
+                    }
+                }
+                channel.force(false);
+            }
+            Files.move(temp.toPath(), resultsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The results are loaded from the database again on the next start
+            if (model.debug) {
+                System.out.printf("Could not write results of %s: %s%n", model.getID(), e.getMessage());
+            }
+        }
+    }
+
+    private static long writeDoubles(FileChannel channel, DoubleBuffer values, long offset) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 20).order(ByteOrder.nativeOrder());
+        DoubleBuffer source = values.duplicate();
+        source.clear();
+        while (source.hasRemaining()) {
+            DoubleBuffer part = source.slice();
+            part.limit(Math.min(part.limit(), chunk.capacity() / 8));
+            chunk.clear();
+            chunk.asDoubleBuffer().put(part);
+            chunk.limit(part.limit() * 8);
+            source.position(source.position() + part.limit());
+            while (chunk.hasRemaining()) {
+                offset += channel.write(chunk, offset);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Maps the stored results, if they cover all checked properties and schedulers of the model and were not
+     * invalidated since the store was opened
+     */
+    private Results openResults() throws IOException {
+        if (!resultsSnapshotCurrent || resultsFile == null || !resultsFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(resultsFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC_RESULTS || header.getInt() != FORMAT) {
+                return null;
+            }
+            ByteOrder order = header.get() == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            header.position(header.position() + 3);
+            if (order != ByteOrder.nativeOrder() || header.getInt() != numStates || header.getInt() != numChoices) {
+                return null;
+            }
+            int numProperties = header.getInt();
+            int numSchedulers = header.getInt();
+            if (header.getLong() != fingerprint) {
+                return null;
+            }
+
+            Results stored = new Results();
+            long offset = HEADER_SIZE;
+            ByteBuffer entry = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+            for (int p = 0; p < numProperties; p++) {
+                entry.clear();
+                channel.read(entry, offset);
+                entry.flip();
+                int id = entry.getInt();
+                offset += 8;
+                stored.stateValues.put(id, channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * numStates).order(order).asDoubleBuffer());
+                offset += 8L * numStates;
+                stored.choiceValues.put(id, channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * numChoices).order(order).asDoubleBuffer());
+                offset += 8L * numChoices;
+            }
+            for (int s = 0; s < numSchedulers; s++) {
+                entry.clear();
+                channel.read(entry, offset);
+                entry.flip();
+                int nameLength = entry.getInt();
+                int numWords = entry.getInt();
+                ByteBuffer name = ByteBuffer.allocate(nameLength);
+                channel.read(name, offset + 8);
+                offset = align(offset + 8 + nameLength);
+                LongBuffer words = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * numWords).order(order).asLongBuffer();
+                stored.schedulers.put(new String(name.array(), StandardCharsets.UTF_8), BitSet.valueOf(words));
+                offset += 8L * numWords;
+            }
+
+            for (Property p : new ArrayList<>(model.getProperties())) {
+                if (p.isChecked() && !stored.stateValues.containsKey(p.getID())) {
+                    return null;
+                }
+            }
+            for (Scheduler s : new ArrayList<>(model.getSchedulers())) {
+                if (!stored.schedulers.containsKey(s.getName())) {
+                    return null;
+                }
+            }
+            return stored;
+        }
+    }
+
+    //---Access---
+
+    private int stateIndex(long stateId) {
+        return search(stateIds, stateId);
+    }
+
+    private int stateIndex(String stateId) {
+        try {
+            return stateIndex(Long.parseLong(stateId.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int choiceIndex(long choiceId) {
+        int k = search(sortedChoiceIds, choiceId);
+        return k >= 0 ? sortedChoices.get(k) : -1;
+    }
+
+    private String stateName(int i) {
+        int start = nameOffsets.get(i);
+        byte[] bytes = new byte[nameOffsets.get(i + 1) - start];
+        ByteBuffer name = names.duplicate();
+        name.position(start);
+        name.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getNumStates() {
+        return numStates;
+    }
+
+    public int getNumChoices() {
+        return numChoices;
+    }
+
+    public int getNumTargets() {
+        return numTargets;
+    }
+
+    public int getNumActions() {
+        return actions.length;
+    }
+
+    /**
+     * Result of an analysis of this graph, computed on the first request for its key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAnalysis(String key, Function<GraphStore, T> analysis) {
+        Object cached = analyses.get(key);
+        if (cached == null) {
+            cached = analysis.apply(this);
+            Object previous = analyses.putIfAbsent(key, cached);
+            if (previous != null) {
+                cached = previous;
+            }
+        }
+        return (T) cached;
+    }
+
+    //---Primitive Access---
+    // States and choices are addressed by their index in the store, ranges are given as [start, end)
+
+    public int getStateIndex(String stateID) {
+        return stateIndex(stateID);
+    }
+
+    public int getStateIndex(long stateID) {
+        return stateIndex(stateID);
+    }
+
+    public long getStateId(int i) {
+        return stateIds.get(i);
+    }
+
+    public String getStateName(int i) {
+        return stateName(i);
+    }
+
+    public boolean isInitial(int i) {
+        return initials.get(i);
+    }
+
+    public boolean isDeadlock(int i) {
+        return choiceOffsets.get(i) == choiceOffsets.get(i + 1);
+    }
+
+    public boolean hasLabel(int label, int i) {
+        return labels[label].get(i);
+    }
+
+    /**
+     * Values of the variables of a state, indexed like the variables of the modules file
+     */
+    public parser.State getVariables(int i) {
+        try {
+            return model.getModelParser().readState(Long.toString(stateIds.get(i)), stateName(i));
+        } catch (PrismLangException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public int getChoiceStart(int i) {
+        return choiceOffsets.get(i);
+    }
+
+    public int getChoiceEnd(int i) {
+        return choiceOffsets.get(i + 1);
+    }
+
+    public long getChoiceId(int c) {
+        return choiceIds.get(c);
+    }
+
+    public int getOrigin(int c) {
+        return origin(c);
+    }
+
+    public int getAction(int c) {
+        return choiceActions.get(c);
+    }
+
+    public String getActionName(int action) {
+        return actions[action];
+    }
+
+    public int getTargetStart(int c) {
+        return targetOffsets.get(c);
+    }
+
+    public int getTargetEnd(int c) {
+        return targetOffsets.get(c + 1);
+    }
+
+    /**
+     * Successors of state i over all of its choices, as the targets of consecutive choices are stored consecutively
+     */
+    public int getSuccessorStart(int i) {
+        return targetOffsets.get(choiceOffsets.get(i));
+    }
+
+    public int getSuccessorEnd(int i) {
+        return targetOffsets.get(choiceOffsets.get(i + 1));
+    }
+
+    public int getTarget(int k) {
+        return targets.get(k);
+    }
+
+    public double getProbability(int k) {
+        return probabilities.get(k);
+    }
+
+    public int getIncomingStart(int i) {
+        return incomingOffsets.get(i);
+    }
+
+    public int getIncomingEnd(int i) {
+        return incomingOffsets.get(i + 1);
+    }
+
+    /**
+     * Choice with state i among its targets
+     */
+    public int getIncoming(int k) {
+        return incoming.get(k);
+    }
+
+    /**
+     * Value of every choice as expectation over the given values of its targets, indexed like the states, plus the
+     * reward r of the choice if r is not negative. Choices are independent, so they are computed in parallel.
+     */
+    public double[] expectChoices(double[] stateValues, int r) {
+        double[] values = new double[numChoices];
+        DoubleBuffer rewards = r >= 0 ? choiceRewards[r] : null;
+        IntStream.range(0, numChoices).parallel().forEach(c -> {
+            double value = rewards != null ? rewards.get(c) : 0.0;
+            for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+                value += probabilities.get(k) * stateValues[targets.get(k)];
+            }
+            values[c] = value;
+        });
+        return values;
+    }
+
+    /**
+     * Values of a column of the transition view for every choice, or null if the column is not held in memory. These
+     * are the columns of checked properties and rewards and the exit flag of the components, which is 1 or 0.
+     */
+    public IntToDoubleFunction getChoiceColumn(String column) {
+        try {
+            if (column.startsWith(ENTRY_PROP)) {
+                DoubleBuffer values = getResults().choiceValues.get(Integer.parseInt(column.substring(ENTRY_PROP.length())));
+                return values == null ? null : values::get;
+            }
+            if (column.startsWith(ENTRY_REW)) {
+                int r = Integer.parseInt(column.substring(ENTRY_REW.length()));
+                return r >= 0 && r < choiceRewards.length ? choiceRewards[r]::get : null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (column.equals(ENTRY_T_SCC_EXIT)) {
+            Components components = getAnalysis(Components.KEY, Components::compute);
+            return c -> components.isExit(c) ? 1.0 : 0.0;
+        }
+        return null;
+    }
+
+    public State getStateNode(int i) {
+        return createState(i, getResults());
+    }
+
+    public Transition getTransitionNode(int c) {
+        return createTransition(c, getResults());
+    }
+
+    /**
+     * Drops the loaded property results and schedulers, so that they are reloaded from the database on the next access
+     */
+    public void invalidateResults() {
+        this.resultsSnapshotCurrent = false;
+        this.results = null;
+    }
+
+    private Results getResults() {
+        Results current = results;
+        if (current == null) {
+            synchronized (this) {
+                current = results;
+                if (current == null) {
+                    try {
+                        current = openResults();
+                    } catch (IOException e) {
+                        current = null;
+                    }
+                    if (current == null) {
+                        current = Results.load(this);
+                        writeResults(current);
+                    }
+                    results = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    //---Graph Queries---
+
+    public Graph getInitialNodes() {
+        List<Integer> states = new ArrayList<>();
+        for (int i = initials.nextSetBit(0); i >= 0; i = initials.nextSetBit(i + 1)) {
+            states.add(i);
+        }
+        return createGraph(states, Collections.emptyList());
+    }
+
+    public Graph getGraph() {
+        List<Integer> states = new ArrayList<>(numStates);
+        for (int i = 0; i < numStates; i++) {
+            states.add(i);
+        }
+        List<Integer> choices = new ArrayList<>(numChoices);
+        for (int c = 0; c < numChoices; c++) {
+            choices.add(c);
+        }
+        return createGraph(states, choices);
+    }
+
+    /**
+     * Writes the entire graph without creating it in memory first
+     */
+    public void writeGraph(GraphWriter writer) throws IOException {
+        Results current = getResults();
+        writer.begin(model.getInformation());
+        for (int i = 0; i < numStates; i++) {
+            writer.node(createState(i, current));
+        }
+        for (int c = 0; c < numChoices; c++) {
+            writer.node(createTransition(c, current));
+        }
+        writer.beginEdges();
+        for (int i = 0; i < numStates; i++) {
+            for (int c = choiceOffsets.get(i); c < choiceOffsets.get(i + 1); c++) {
+                writeEdges(writer, i, c);
+            }
+        }
+        writer.end();
+    }
+
+    /**
+     * Writes the sub-model induced by a scheduler: the states reachable under it and the choices it takes in them
+     */
+    public void writeInducedGraph(GraphWriter writer, String scheduler) throws IOException {
+        Results current = getResults();
+        BitSet reachable = getReachable(scheduler);
+        BitSet chosen = current.schedulers.get(scheduler);
+        writer.begin(model.getInformation());
+        for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+            writer.node(createState(i, current));
+        }
+        for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+            for (int c = chosen.nextSetBit(choiceOffsets.get(i)); c >= 0 && c < choiceOffsets.get(i + 1); c = chosen.nextSetBit(c + 1)) {
+                writer.node(createTransition(c, current));
+            }
+        }
+        writer.beginEdges();
+        for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+            for (int c = chosen.nextSetBit(choiceOffsets.get(i)); c >= 0 && c < choiceOffsets.get(i + 1); c = chosen.nextSetBit(c + 1)) {
+                writeEdges(writer, i, c);
+            }
+        }
+        writer.end();
+    }
+
+    private void writeEdges(GraphWriter writer, int i, int c) throws IOException {
+        String choice = Long.toString(choiceIds.get(c));
+        writer.edge(new Edge(Long.toString(stateIds.get(i)), choice, actions[choiceActions.get(c)]));
+        for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+            writer.edge(new Edge(choice, Long.toString(stateIds.get(targets.get(k))), Double.toString(probabilities.get(k))));
+        }
+    }
+
+    //---Schedulers---
+
+    /**
+     * States reachable from the initial states if only the choices of the given scheduler are taken. Computed once
+     * per scheduler and kept until the schedulers are reloaded.
+     */
+    public BitSet getReachable(String scheduler) {
+        Results current = getResults();
+        BitSet chosen = scheduler(current, scheduler);
+        return current.reachable.computeIfAbsent(scheduler, s -> reachable(chosen));
+    }
+
+    /**
+     * Choices taken by the given scheduler, indexed like the choices of the store. Not to be modified.
+     */
+    public BitSet getScheduler(String scheduler) {
+        return scheduler(getResults(), scheduler);
+    }
+
+    private static BitSet scheduler(Results current, String scheduler) {
+        BitSet chosen = current.schedulers.get(scheduler);
+        if (chosen == null) {
+            throw new IllegalArgumentException(String.format("Unknown scheduler %s", scheduler));
+        }
+        return chosen;
+    }
+
+    private BitSet reachable(BitSet chosen) {
+        BitSet visited = new BitSet(numStates);
+        int[] queue = new int[numStates];
+        int head = 0;
+        int tail = 0;
+        for (int i = initials.nextSetBit(0); i >= 0; i = initials.nextSetBit(i + 1)) {
+            visited.set(i);
+            queue[tail++] = i;
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int c = chosen.nextSetBit(choiceOffsets.get(v)); c >= 0 && c < choiceOffsets.get(v + 1); c = chosen.nextSetBit(c + 1)) {
+                for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+                    int w = targets.get(k);
+                    if (!visited.get(w)) {
+                        visited.set(w);
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    public Graph getSubGraph(List<String> stateIDs) {
+        Set<Integer> states = toIndices(stateIDs);
+        List<Integer> choices = new ArrayList<>();
+        for (int i : states) {
+            for (int c = choiceOffsets.get(i); c < choiceOffsets.get(i + 1); c++) {
+                boolean inside = true;
+                for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1) && inside; k++) {
+                    inside = states.contains(targets.get(k));
+                }
+                if (inside) {
+                    choices.add(c);
+                }
+            }
+        }
+        return createGraph(states, choices);
+    }
+
+    public Graph getState(String stateID) {
+        int i = stateIndex(stateID);
+        if (i < 0) return null;
+        return createGraph(Collections.singletonList(i), Collections.emptyList());
+    }
+
+    public Graph getOutgoing(List<String> stateIDs) {
+        return resetGraph(stateIDs, Collections.emptyList());
+    }
+
+    public Graph getIncoming(List<String> stateIDs) {
+        Set<Integer> states = toIndices(stateIDs);
+        Set<Integer> choices = new LinkedHashSet<>();
+        for (int i : new ArrayList<>(states)) {
+            for (int k = incomingOffsets.get(i); k < incomingOffsets.get(i + 1); k++) {
+                choices.add(incoming.get(k));
+            }
+        }
+        for (int c : choices) {
+            states.add(origin(c));
+        }
+        return createGraph(states, choices);
+    }
+
+    public Graph resetGraph(List<String> stateIDs, List<String> unexploredStateIDs) {
+        Set<Integer> states = toIndices(unexploredStateIDs);
+        List<Integer> choices = new ArrayList<>();
+        for (int i : toIndices(stateIDs)) {
+            states.add(i);
+            for (int c = choiceOffsets.get(i); c < choiceOffsets.get(i + 1); c++) {
+                choices.add(c);
+                for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+                    states.add(targets.get(k));
+                }
+            }
+        }
+        return createGraph(states, choices);
+    }
+
+    //---Pagination---
+
+    /**
+     * Up to limit states matching the filter whose identifiers follow after (from the start if null)
+     */
+    public Page getStatePage(Long after, int limit, GraphFilter filter) {
+        Results current = getResults();
+        IntPredicate accepted = stateFilter(filter, current);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = after == null ? 0 : upperBound(stateIds, after); i < numStates; i++) {
+            if (!accepted.test(i)) {
+                continue;
+            }
+            if (nodes.size() == limit) {
+                return new Page(nodes, nodes.get(limit - 1).getNumId());
+            }
+            nodes.add(createState(i, current));
+        }
+        return new Page(nodes, null);
+    }
+
+    /**
+     * Up to limit transitions matching the filter whose identifiers follow after (from the start if null). Label
+     * conditions apply to the origin of a transition.
+     */
+    public Page getTransitionPage(Long after, int limit, GraphFilter filter) {
+        Results current = getResults();
+        IntPredicate accepted = choiceFilter(filter, current);
+        List<Node> nodes = new ArrayList<>();
+        for (int k = after == null ? 0 : upperBound(sortedChoiceIds, after); k < numChoices; k++) {
+            int c = sortedChoices.get(k);
+            if (!accepted.test(c)) {
+                continue;
+            }
+            if (nodes.size() == limit) {
+                return new Page(nodes, nodes.get(limit - 1).getNumId());
+            }
+            nodes.add(createTransition(c, current));
+        }
+        return new Page(nodes, null);
+    }
+
+    private IntPredicate stateFilter(GraphFilter filter, Results current) {
+        IntPredicate accepted = i -> true;
+        if (filter.getLabel() != null) {
+            accepted = accepted.and(labelFilter(filter.getLabel()));
+        }
+        if (filter.getProperty() != null) {
+            DoubleBuffer values = current.stateValues.get(propertyId(filter.getProperty()));
+            accepted = values == null ? i -> false : accepted.and(i -> inRange(values.get(i), filter));
+        }
+        if (filter.getScheduler() != null) {
+            if (model.getSchedulerByName(filter.getScheduler()).isEmpty()) {
+                throw new IllegalArgumentException(String.format("Unknown scheduler %s", filter.getScheduler()));
+            }
+            BitSet chosen = current.schedulers.get(filter.getScheduler());
+            BitSet reachable = chosen == null ? null : current.reachable.computeIfAbsent(filter.getScheduler(), s -> reachable(chosen));
+            accepted = reachable == null ? i -> false : accepted.and(reachable::get);
+        }
+        return accepted;
+    }
+
+    private IntPredicate choiceFilter(GraphFilter filter, Results current) {
+        IntPredicate accepted = c -> true;
+        if (filter.getLabel() != null) {
+            IntPredicate label = labelFilter(filter.getLabel());
+            accepted = accepted.and(c -> label.test(origin(c)));
+        }
+        if (filter.getProperty() != null) {
+            DoubleBuffer values = current.choiceValues.get(propertyId(filter.getProperty()));
+            accepted = values == null ? c -> false : accepted.and(c -> inRange(values.get(c), filter));
+        }
+        if (filter.getScheduler() != null) {
+            if (model.getSchedulerByName(filter.getScheduler()).isEmpty()) {
+                throw new IllegalArgumentException(String.format("Unknown scheduler %s", filter.getScheduler()));
+            }
+            BitSet chosen = current.schedulers.get(filter.getScheduler());
+            accepted = chosen == null ? c -> false : accepted.and(chosen::get);
+        }
+        return accepted;
+    }
+
+    private IntPredicate labelFilter(String label) {
+        switch (label) {
+            case LABEL_INIT:
+                return initials::get;
+            case LABEL_DEAD:
+                return i -> choiceOffsets.get(i) == choiceOffsets.get(i + 1);
+            default:
+                int l = model.getModulesFile().getLabelIndex(label);
+                if (l < 0) {
+                    throw new IllegalArgumentException(String.format("Unknown label %s", label));
+                }
+                return labels[l]::get;
+        }
+    }
+
+    private int propertyId(String property) {
+        return model.getProperty(property).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown property %s", property))).getID();
+    }
+
+    private static boolean inRange(double value, GraphFilter filter) {
+        return !Double.isNaN(value) && value >= filter.getMin() && value <= filter.getMax();
+    }
+
+    /**
+     * Index of the first key above the given one
+     */
+    private static int upperBound(LongBuffer sorted, long key) {
+        int low = 0;
+        int high = sorted.limit();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Set<Integer> toIndices(Collection<String> stateIDs) {
+        Set<Integer> indices = new LinkedHashSet<>();
+        for (String stateID : stateIDs) {
+            int i = stateIndex(stateID);
+            if (i >= 0) {
+                indices.add(i);
+            }
+        }
+        return indices;
+    }
+
+    private int origin(int choice) {
+        // Last state whose first choice is not behind the given one, skipping states without choices
+        int low = 0;
+        int high = numStates - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (choiceOffsets.get(mid) <= choice) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private Graph createGraph(Collection<Integer> states, Collection<Integer> choices) {
+        Results current = getResults();
+        List<State> stateList = new ArrayList<>(states.size());
+        for (int i : states) {
+            stateList.add(createState(i, current));
+        }
+        List<Transition> transitionList = new ArrayList<>(choices.size());
+        for (int c : choices) {
+            transitionList.add(createTransition(c, current));
+        }
+        return new Graph(model, stateList, transitionList);
+    }
+
+    private State createState(int i, Results current) {
+        Map<String, Double> rewards = new HashMap<>();
+        for (int r = 0; r < stateRewards.length; r++) {
+            rewards.put(rewardNames.get(r), stateRewards[r].get(i));
+        }
+        Map<String, Double> properties = new HashMap<>();
+        for (Map.Entry<Integer, DoubleBuffer> entry : current.stateValues.entrySet()) {
+            double value = entry.getValue().get(i);
+            if (!Double.isNaN(value)) {
+                properties.put(model.getProperties().get(entry.getKey()).getName(), value);
+            }
+        }
+        String id = Long.toString(stateIds.get(i));
+        String name = stateName(i);
+        try {
+            ModelParser parser = model.getModelParser();
+            boolean deadlock = choiceOffsets.get(i) == choiceOffsets.get(i + 1);
+            return new State(id, name, parser.getParameters(parser.readState(id, name)), model.getLabelMap(initials.get(i), deadlock, l -> labels[l].get(i)), rewards, properties);
+        } catch (PrismLangException e) {
+            return new State(id, name, new TreeMap<>(), new TreeMap<>(), rewards, properties);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Transition createTransition(int c, Results current) {
+        Map<String, Double> distribution = new HashMap<>();
+        for (int k = targetOffsets.get(c); k < targetOffsets.get(c + 1); k++) {
+            distribution.put(Long.toString(stateIds.get(targets.get(k))), probabilities.get(k));
+        }
+        Map<String, Double> rewards = new HashMap<>();
+        for (int r = 0; r < choiceRewards.length; r++) {
+            rewards.put(rewardNames.get(r), choiceRewards[r].get(c));
+        }
+        Map<String, Double> properties = new HashMap<>();
+        for (Map.Entry<Integer, DoubleBuffer> entry : current.choiceValues.entrySet()) {
+            double value = entry.getValue().get(c);
+            if (!Double.isNaN(value)) {
+                properties.put(model.getProperties().get(entry.getKey()).getName(), value);
+            }
+        }
+        Map<String, Double> schedulers = new HashMap<>();
+        for (Map.Entry<String, BitSet> entry : current.schedulers.entrySet()) {
+            schedulers.put(entry.getKey(), entry.getValue().get(c) ? 1.0 : 0.0);
+        }
+        return new Transition(Long.toString(choiceIds.get(c)), Long.toString(stateIds.get(origin(c))), actions[choiceActions.get(c)], distribution, rewards, properties, schedulers, null);
+    }
+
+    /**
+     * Values of all checked properties and the choices of all schedulers, indexed like the graph
+     */
+    private static class Results {
+
+        private final Map<Integer, DoubleBuffer> stateValues = new HashMap<>();
+
+        private final Map<Integer, DoubleBuffer> choiceValues = new HashMap<>();
+
+        private final Map<String, BitSet> schedulers = new HashMap<>();
+
+        // States reachable under each scheduler, computed on demand
+        private final Map<String, BitSet> reachable = new ConcurrentHashMap<>();
+
+        private static Results load(GraphStore store) {
+            Results loaded = new Results();
+            Model model = store.model;
+            Database database = model.getDatabase();
+            for (Property p : new ArrayList<>(model.getProperties())) {
+                if (!p.isChecked()) {
+                    continue;
+                }
+                // States without a result keep NaN, the counterpart of NULL in the database
+                DoubleBuffer values = filled(allocate(8L * store.numStates).asDoubleBuffer(), Double.NaN);
+                String stateQuery = String.format("SELECT %s, %s FROM %s WHERE %s = %s", ENTRY_S_ID, ENTRY_RES_VALUE, model.getTableResults(), ENTRY_RES_PROP, p.getID());
+                try (PersistentQuery q = database.openQuery(stateQuery); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                    int i = store.stateIndex(rs.getLong(ENTRY_S_ID));
+                    double value = rs.getDouble(ENTRY_RES_VALUE);
+                    if (i >= 0 && !rs.wasNull()) values.put(i, value);
+                    return i;
+                })) {
+                    it.forEachRemaining(i -> {});
+                }
+                loaded.stateValues.put(p.getID(), values);
+
+                DoubleBuffer transitionValues = filled(allocate(8L * store.numChoices).asDoubleBuffer(), Double.NaN);
+                String transitionQuery = String.format("SELECT %s, %s FROM %s WHERE %s = %s", ENTRY_T_ID, ENTRY_RES_VALUE, model.getTableTransResults(), ENTRY_RES_PROP, p.getID());
+                try (PersistentQuery q = database.openQuery(transitionQuery); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                    int c = store.choiceIndex(rs.getLong(ENTRY_T_ID));
+                    double value = rs.getDouble(ENTRY_RES_VALUE);
+                    if (c >= 0 && !rs.wasNull()) transitionValues.put(c, value);
+                    return c;
+                })) {
+                    it.forEachRemaining(c -> {});
+                }
+                loaded.choiceValues.put(p.getID(), transitionValues);
+            }
+            for (Scheduler s : new ArrayList<>(model.getSchedulers())) {
+                BitSet chosen = new BitSet(store.numChoices);
+                String schedulerQuery = String.format("SELECT %s FROM %s WHERE %s = %s", ENTRY_T_ID, model.getTableChoices(), ENTRY_CH_SCHED, s.getId());
+                try (PersistentQuery q = database.openQuery(schedulerQuery); ResultIterator<Integer> it = q.iterator((rs, ctx) -> {
+                    int c = store.choiceIndex(rs.getLong(ENTRY_T_ID));
+                    if (c >= 0) chosen.set(c);
+                    return c;
+                })) {
+                    it.forEachRemaining(c -> {});
+                }
+                loaded.schedulers.put(s.getName(), chosen);
+            }
+            return loaded;
+        }
+
+        private static DoubleBuffer filled(DoubleBuffer buffer, double value) {
+            for (int i = 0; i < buffer.capacity(); i++) {
+                buffer.put(i, value);
+            }
+            return buffer;
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package prism.core;
 
 import com.fasterxml.jackson.databind.annotation.JsonAppend;
+import org.jdbi.v3.core.result.ResultIterator;
+import parser.VarList;
 import parser.ast.Expression;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
 import prism.*;
 import prism.api.*;
+import prism.core.Aggregation.Aggregation;
 import prism.core.Property.Property;
 import prism.core.Scheduler.Criteria;
 import prism.core.Scheduler.CriteriaSort;
 import prism.core.Scheduler.Scheduler;
+import prism.core.Scheduler.SchedulerExport;
 import prism.core.Utility.BaseState;
+import prism.db.BulkWriter;
 import prism.db.Database;
+import prism.db.PersistentQuery;
 import prism.db.mappers.StateMapper;
 import prism.db.mappers.TransitionMapper;
 import prism.server.TaskManager;
@@ -20,14 +26,25 @@ import simulator.TransitionList;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
 public class Model implements Namespace {
 
+    // Upper bound on the nodes of one page, whatever limit a client asks for
+    public static final int MAX_PAGE_SIZE = 10000;
+
     private final String version;
     private final Project parent;
+    private final File modelFile;
 
     private final ModelParser parser;
     private final ModelChecker checker;
@@ -37,6 +54,14 @@ public class Model implements Namespace {
     private final String TABLE_STATES;
     private final String TABLE_TRANS;
     private final String TABLE_SCHED;
+    private final String TABLE_TARGETS;
+    private final String TABLE_RES;
+    private final String TABLE_TRES;
+    private final String TABLE_SCC;
+    private final String TABLE_TSCC;
+    private final String TABLE_CHOICES;
+    private final String VIEW_STATES;
+    private final String VIEW_TRANS;
 
     private final Info info;
 
@@ -51,12 +76,30 @@ public class Model implements Namespace {
 
     private boolean built = false;
 
+    // SQL types of identifier and value columns in the tables of this version
+    private String idType = SQL_TYPE_TEXT;
+    private String valueType = SQL_TYPE_TEXT;
+
+    private boolean hasTargets = true;
+    private boolean labelColumns = true;
+
+    // Whether the components of this version are in the component tables
+    private volatile boolean componentsStored = false;
+    private final Object componentsLock = new Object();
+    private final ReentrantLock resultsLock = new ReentrantLock();
+
+    // Held softly, so the garbage collector can evict the in-memory graph under memory pressure
+    private volatile SoftReference<GraphStore> graphStore = new SoftReference<>(null);
+    private final AtomicBoolean loadingGraphStore = new AtomicBoolean(false);
+    private volatile boolean graphStoreUnavailable = false;
+
     public boolean debug;
 
 
     public Model(File modelFile, String version, Project parent, boolean debug) throws Exception {
 
         this.parent = parent;
+        this.modelFile = modelFile;
         this.outLog = parent.getLog();
         this.version = version;
         this.debug = debug;
@@ -65,8 +108,16 @@ public class Model implements Namespace {
         this.TABLE_STATES = String.format(TABLE_STATES_GEN, version);
         this.TABLE_TRANS = String.format(TABLE_TRANS_GEN, version);
         this.TABLE_SCHED = String.format(TABLE_SCHED_GEN, version);
-
-        this.checker = new ModelChecker(this, modelFile, TABLE_STATES, TABLE_TRANS, TABLE_SCHED, String.format("%dm", parent.getCuddMaxMem()), parent.getNumIterations(), debug);
+        this.TABLE_TARGETS = String.format(TABLE_TARGETS_GEN, version);
+        this.TABLE_RES = String.format(TABLE_RES_GEN, version);
+        this.TABLE_TRES = String.format(TABLE_TRES_GEN, version);
+        this.TABLE_SCC = String.format(TABLE_SCC_GEN, version);
+        this.TABLE_TSCC = String.format(TABLE_TSCC_GEN, version);
+        this.TABLE_CHOICES = String.format(TABLE_CHOICES_GEN, version);
+        this.VIEW_STATES = String.format(VIEW_STATES_GEN, version);
+        this.VIEW_TRANS = String.format(VIEW_TRANS_GEN, version);
+
+        this.checker = new ModelChecker(this, modelFile, TABLE_STATES, TABLE_TRANS, TABLE_TARGETS, TABLE_SCHED, String.format("%dm", parent.getCuddMaxMem()), parent.getNumIterations(), debug);
         this.modulesFile = checker.getModulesFile();
         this.parser = new ModelParser(this, modulesFile, debug);
 
@@ -126,9 +177,17 @@ public class Model implements Namespace {
         actionParameter.put(ENTRY_T_PROB, new VariableInfo(ENTRY_T_PROB, VariableInfo.parseType("complex"), 0,0));
         this.info.setTransitionEntry(OUTPUT_ACTION, actionParameter);
 
+        this.loadSchemaTypes();
+        this.loadTargets();
+        this.loadLabelColumns();
+        if (checker.isBuilt()) {
+            this.prepareResults();
+        }
         this.loadPropertyFiles();
         if (checker.isBuilt()) {
+            this.refreshViews();
             this.setBuilt(true);
+            this.openGraphSnapshot();
         }
     }
 
@@ -170,6 +229,38 @@ public class Model implements Namespace {
         return TABLE_SCHED;
     }
 
+    public String getTableTargets(){
+        return TABLE_TARGETS;
+    }
+
+    public String getTableResults(){
+        return TABLE_RES;
+    }
+
+    public String getTableTransResults(){
+        return TABLE_TRES;
+    }
+
+    public String getTableComponents(){
+        return TABLE_SCC;
+    }
+
+    public String getTableTransComponents(){
+        return TABLE_TSCC;
+    }
+
+    public String getTableChoices(){
+        return TABLE_CHOICES;
+    }
+
+    public String getViewStates(){
+        return VIEW_STATES;
+    }
+
+    public String getViewTrans(){
+        return VIEW_TRANS;
+    }
+
     public Database getDatabase(){
         return database;
     }
@@ -182,6 +273,40 @@ public class Model implements Namespace {
         return outLog;
     }
 
+    public int getNumThreads(){
+        return parent.getNumThreads();
+    }
+
+    public boolean isOverlapChecks(){
+        return parent.isOverlapChecks();
+    }
+
+    public EngineSelection getEngines(){
+        return parent.getEngines();
+    }
+
+    /**
+     * Storing the results of a property alters the tables and views of this version. Properties checked in parallel
+     * store them one at a time while holding this lock.
+     */
+    public ResultsLock lockResults(){
+        resultsLock.lock();
+        return resultsLock::unlock;
+    }
+
+    public interface ResultsLock extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public int getExploreStates(){
+        return parent.getExploreStates();
+    }
+
+    public int getExploreDepth(){
+        return parent.getExploreDepth();
+    }
+
     public boolean isBuilt() {
         return this.built;
     }
@@ -194,6 +319,487 @@ public class Model implements Namespace {
         return info;
     }
 
+    public String getIdType() {
+        return idType;
+    }
+
+    public String getValueType() {
+        return valueType;
+    }
+
+    public boolean isTypedSchema() {
+        return !SQL_TYPE_TEXT.equals(idType);
+    }
+
+    private void loadSchemaTypes() {
+        // Identifiers that may exceed a long cannot be stored as BIGINT, such models keep the untyped schema
+        boolean typed = parent.isTypedSchema() && parser.getStateEncoder().transitionsFitLong();
+        if (debug && parent.isTypedSchema() && !typed) {
+            System.out.printf("Identifiers of %s do not fit into a BIGINT, using the untyped schema%n", getID());
+        }
+        if (checker.isBuilt()) {
+            if (typed && database.isPostgres() && getTextColumns(TABLE_STATES_BASE).contains(ENTRY_S_ID)) {
+                migrateSchema();
+            }
+            typed = !getTextColumns(TABLE_STATES_BASE).contains(ENTRY_S_ID);
+        }
+        this.idType = typed ? SQL_TYPE_ID : SQL_TYPE_TEXT;
+        this.valueType = typed ? SQL_TYPE_VALUE : SQL_TYPE_TEXT;
+    }
+
+    /**
+     * Whether the probability distributions of this version are also stored in the normalized target table
+     */
+    public boolean hasTransitionTargets() {
+        return hasTargets;
+    }
+
+    private void loadTargets() {
+        if (!checker.isBuilt()) {
+            hasTargets = true;
+            return;
+        }
+        hasTargets = database.question(String.format("SELECT table_name FROM information_schema.tables WHERE table_schema = '%s' AND table_name = '%s';", version, TABLE_TARGETS_BASE));
+        if (!hasTargets && database.isPostgres()) {
+            // Versions built before the target table existed are normalized from the distribution strings
+            try (prism.core.Utility.Timer migrate = new prism.core.Utility.Timer("Migrate Targets", getLog())) {
+                List<String> migration = new ArrayList<>();
+                migration.add(String.format("CREATE TABLE %s (%s %s NOT NULL, %s %s NOT NULL, %s %s NOT NULL)", TABLE_TARGETS, ENTRY_T_ID, idType, ENTRY_TT_TARGET, idType, ENTRY_TT_PROB, SQL_TYPE_VALUE));
+                migration.add(String.format("INSERT INTO %s SELECT %s, CAST(split_part(entry, ':', 1) AS %s), CAST(split_part(entry, ':', 2) AS %s) FROM %s, unnest(string_to_array(%s, ';')) AS entry", TABLE_TARGETS, ENTRY_T_ID, idType, SQL_TYPE_VALUE, TABLE_TRANS, ENTRY_T_PROB));
+                migration.addAll(targetIndices(TABLE_TARGETS));
+                database.executeTransaction(migration);
+                hasTargets = true;
+            } catch (Exception e) {
+                if (debug) {
+                    System.out.printf("Could not create target table of %s: %s%n", getID(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the label, initial and deadlock flags of the states are stored in the state table. Versions built before
+     * these columns existed evaluate the label expressions for every state instead.
+     */
+    public boolean hasLabelColumns() {
+        return labelColumns && modulesFile.getNumLabels() <= Long.SIZE;
+    }
+
+    private void loadLabelColumns() {
+        if (!checker.isBuilt()) {
+            labelColumns = true;
+            return;
+        }
+        labelColumns = database.question(String.format("SELECT column_name FROM information_schema.columns WHERE table_schema = '%s' AND table_name = '%s' AND column_name = '%s'", version, TABLE_STATES_BASE, ENTRY_S_LABELS));
+    }
+
+    public static List<String> targetIndices(String targetTable) {
+        return Arrays.asList(
+                String.format("CREATE INDEX IF NOT EXISTS %s_idx ON %s (%s)", ENTRY_T_ID, targetTable, ENTRY_T_ID),
+                String.format("CREATE INDEX IF NOT EXISTS %s_idx ON %s (%s)", ENTRY_TT_TARGET, targetTable, ENTRY_TT_TARGET));
+    }
+
+    private List<String> getTextColumns(String table) {
+        return database.executeCollectionQuery(String.format("SELECT column_name FROM information_schema.columns WHERE table_schema = '%s' AND table_name = '%s' AND data_type = 'text'", version, table), String.class);
+    }
+
+    /**
+     * Converts the TEXT columns of a version built before typed schemas into native column types
+     */
+    private void migrateSchema() {
+        try (prism.core.Utility.Timer migrate = new prism.core.Utility.Timer("Migrate Schema", getLog())) {
+            List<String> stateColumns = new ArrayList<>();
+            for (String column : getTextColumns(TABLE_STATES_BASE)) {
+                if (column.equals(ENTRY_S_ID)) {
+                    stateColumns.add(String.format("ALTER COLUMN %s TYPE %s USING %s::%s", column, SQL_TYPE_ID, column, SQL_TYPE_ID));
+                } else if (column.startsWith(ENTRY_REW) || column.startsWith(ENTRY_PROP)) {
+                    stateColumns.add(String.format("ALTER COLUMN %s TYPE %s USING NULLIF(%s, '')::%s", column, SQL_TYPE_VALUE, column, SQL_TYPE_VALUE));
+                }
+            }
+            List<String> transitionColumns = new ArrayList<>();
+            for (String column : getTextColumns(TABLE_TRANS_BASE)) {
+                if (column.equals(ENTRY_T_ID) || column.equals(ENTRY_T_OUT)) {
+                    transitionColumns.add(String.format("ALTER COLUMN %s TYPE %s USING %s::%s", column, SQL_TYPE_ID, column, SQL_TYPE_ID));
+                } else if (column.startsWith(ENTRY_REW) || column.startsWith(ENTRY_PROP)) {
+                    transitionColumns.add(String.format("ALTER COLUMN %s TYPE %s USING NULLIF(%s, '')::%s", column, SQL_TYPE_VALUE, column, SQL_TYPE_VALUE));
+                }
+            }
+            List<String> migration = new ArrayList<>();
+            if (!stateColumns.isEmpty()) {
+                migration.add(String.format("ALTER TABLE %s %s", TABLE_STATES, String.join(", ", stateColumns)));
+            }
+            if (!transitionColumns.isEmpty()) {
+                migration.add(String.format("ALTER TABLE %s %s", TABLE_TRANS, String.join(", ", transitionColumns)));
+            }
+            migration.add(String.format("CREATE INDEX IF NOT EXISTS %s_idx ON %s (%s)", ENTRY_T_OUT, TABLE_TRANS, ENTRY_T_OUT));
+            // Either all columns are converted or none
+            database.executeTransaction(migration);
+        } catch (Exception e) {
+            // The version keeps working on the untyped schema, but has to be migrated by hand
+            if (debug) {
+                System.out.printf("Could not migrate schema of %s: %s%n", getID(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates the result, component and scheduler choice tables of this version if missing and moves results and
+     * schedulers of versions that stored them as columns of the state and transition tables into them
+     */
+    public void prepareResults() {
+        componentsStored = false;
+        try {
+            database.executeTransaction(Arrays.asList(
+                    String.format("CREATE TABLE IF NOT EXISTS %s (%s INTEGER NOT NULL, %s %s NOT NULL, %s %s, PRIMARY KEY (%s, %s))", TABLE_RES, ENTRY_RES_PROP, ENTRY_S_ID, idType, ENTRY_RES_VALUE, SQL_TYPE_VALUE, ENTRY_RES_PROP, ENTRY_S_ID),
+                    String.format("CREATE TABLE IF NOT EXISTS %s (%s INTEGER NOT NULL, %s %s NOT NULL, %s %s, PRIMARY KEY (%s, %s))", TABLE_TRES, ENTRY_RES_PROP, ENTRY_T_ID, idType, ENTRY_RES_VALUE, SQL_TYPE_VALUE, ENTRY_RES_PROP, ENTRY_T_ID),
+                    String.format("CREATE TABLE IF NOT EXISTS %s (%s %s PRIMARY KEY NOT NULL, %s BIGINT, %s BOOLEAN)", TABLE_SCC, ENTRY_S_ID, idType, ENTRY_S_SCC, ENTRY_S_BSCC),
+                    String.format("CREATE TABLE IF NOT EXISTS %s (%s %s PRIMARY KEY NOT NULL, %s INTEGER)", TABLE_TSCC, ENTRY_T_ID, idType, ENTRY_T_SCC_EXIT),
+                    String.format("CREATE TABLE IF NOT EXISTS %s (%s INTEGER NOT NULL, %s %s NOT NULL, PRIMARY KEY (%s, %s))", TABLE_CHOICES, ENTRY_CH_SCHED, ENTRY_T_ID, idType, ENTRY_CH_SCHED, ENTRY_T_ID)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        List<String> stateColumns = getPropertyColumns(TABLE_STATES_BASE);
+        List<String> transitionColumns = getPropertyColumns(TABLE_TRANS_BASE);
+        List<String> schedulerColumns = getSchedulerColumns(TABLE_TRANS_BASE);
+        if (stateColumns.isEmpty() && transitionColumns.isEmpty() && schedulerColumns.isEmpty()) {
+            return;
+        }
+        try (prism.core.Utility.Timer migrate = new prism.core.Utility.Timer("Migrate Results", getLog())) {
+            List<String> migration = new ArrayList<>();
+            // The views reference the columns about to be dropped
+            migration.add(String.format("DROP VIEW IF EXISTS %s", VIEW_STATES));
+            migration.add(String.format("DROP VIEW IF EXISTS %s", VIEW_TRANS));
+            for (String column : stateColumns) {
+                migration.add(String.format("INSERT INTO %s SELECT %s, %s, CAST(NULLIF(CAST(%s AS TEXT), '') AS %s) FROM %s WHERE %s IS NOT NULL ON CONFLICT DO NOTHING", TABLE_RES, column.substring(ENTRY_PROP.length()), ENTRY_S_ID, column, SQL_TYPE_VALUE, TABLE_STATES, column));
+                migration.add(String.format("ALTER TABLE %s DROP COLUMN %s", TABLE_STATES, column));
+            }
+            for (String column : transitionColumns) {
+                migration.add(String.format("INSERT INTO %s SELECT %s, %s, CAST(NULLIF(CAST(%s AS TEXT), '') AS %s) FROM %s WHERE %s IS NOT NULL ON CONFLICT DO NOTHING", TABLE_TRES, column.substring(ENTRY_PROP.length()), ENTRY_T_ID, column, SQL_TYPE_VALUE, TABLE_TRANS, column));
+                migration.add(String.format("ALTER TABLE %s DROP COLUMN %s", TABLE_TRANS, column));
+            }
+            for (String column : schedulerColumns) {
+                migration.add(String.format("INSERT INTO %s SELECT %s, %s FROM %s WHERE %s = 1 ON CONFLICT DO NOTHING", TABLE_CHOICES, column.substring(ENTRY_SCHED.length()), ENTRY_T_ID, TABLE_TRANS, column));
+                migration.add(String.format("ALTER TABLE %s DROP COLUMN %s", TABLE_TRANS, column));
+            }
+            database.executeTransaction(migration);
+        } catch (Exception e) {
+            if (debug) {
+                System.out.printf("Could not migrate results of %s: %s%n", getID(), e.getMessage());
+            }
+        }
+    }
+
+    private List<String> getPropertyColumns(String table) {
+        return getColumns(table, ENTRY_PROP);
+    }
+
+    private List<String> getSchedulerColumns(String table) {
+        return getColumns(table, ENTRY_SCHED);
+    }
+
+    private List<String> getColumns(String table, String prefix) {
+        return database.executeCollectionQuery(String.format("SELECT column_name FROM information_schema.columns WHERE table_schema = '%s' AND table_name = '%s' AND column_name LIKE '%s%%'", version, table, prefix.replace("_", "\\_")), String.class);
+    }
+
+    /**
+     * Recreates the views presenting every checked property as a column of the state and transition tables, and every
+     * scheduler as a 0/1 column of the transitions. Reads go through these views, while the results and the choices of
+     * the schedulers themselves stay in narrow tables.
+     */
+    public void refreshViews() {
+        // Results that could not be migrated are still part of the base tables
+        Set<String> legacyColumns = new HashSet<>(getPropertyColumns(TABLE_STATES_BASE));
+        legacyColumns.addAll(getPropertyColumns(TABLE_TRANS_BASE));
+        legacyColumns.addAll(getSchedulerColumns(TABLE_TRANS_BASE));
+
+        StringBuilder states = new StringBuilder(String.format("SELECT s.*, c.%s, c.%s ", ENTRY_S_SCC, ENTRY_S_BSCC));
+        StringBuilder stateJoins = new StringBuilder(String.format("FROM %s s LEFT JOIN %s c ON c.%s = s.%s", TABLE_STATES, TABLE_SCC, ENTRY_S_ID, ENTRY_S_ID));
+        StringBuilder transitions = new StringBuilder(String.format("SELECT t.*, c.%s ", ENTRY_T_SCC_EXIT));
+        StringBuilder transitionJoins = new StringBuilder(String.format("FROM %s t LEFT JOIN %s c ON c.%s = t.%s", TABLE_TRANS, TABLE_TSCC, ENTRY_T_ID, ENTRY_T_ID));
+        for (Property p : properties) {
+            if (!p.isChecked() || legacyColumns.contains(p.getPropertyCollumn())) {
+                continue;
+            }
+            int id = p.getID();
+            states.append(String.format(", r%s.%s AS %s ", id, ENTRY_RES_VALUE, p.getPropertyCollumn()));
+            stateJoins.append(String.format(" LEFT JOIN %s r%s ON r%s.%s = %s AND r%s.%s = s.%s", TABLE_RES, id, id, ENTRY_RES_PROP, id, id, ENTRY_S_ID, ENTRY_S_ID));
+            transitions.append(String.format(", r%s.%s AS %s ", id, ENTRY_RES_VALUE, p.getPropertyCollumn()));
+            transitionJoins.append(String.format(" LEFT JOIN %s r%s ON r%s.%s = %s AND r%s.%s = t.%s", TABLE_TRES, id, id, ENTRY_RES_PROP, id, id, ENTRY_T_ID, ENTRY_T_ID));
+        }
+        // Taken from the scheduler table, as a scheduler is part of the views before it is added to this version
+        for (String scheduler : database.executeCollectionQuery(String.format("SELECT %s FROM %s", ENTRY_SCH_ID, TABLE_SCHED), String.class)) {
+            String column = ENTRY_SCHED + scheduler;
+            if (legacyColumns.contains(column)) {
+                continue;
+            }
+            transitions.append(String.format(", CASE WHEN ch%s.%s IS NULL THEN 0 ELSE 1 END AS %s ", scheduler, ENTRY_CH_SCHED, column));
+            transitionJoins.append(String.format(" LEFT JOIN %s ch%s ON ch%s.%s = %s AND ch%s.%s = t.%s", TABLE_CHOICES, scheduler, scheduler, ENTRY_CH_SCHED, scheduler, scheduler, ENTRY_T_ID, ENTRY_T_ID));
+        }
+        try {
+            database.executeTransaction(Arrays.asList(
+                    String.format("DROP VIEW IF EXISTS %s", VIEW_STATES),
+                    String.format("CREATE VIEW %s AS %s%s", VIEW_STATES, states, stateJoins),
+                    String.format("DROP VIEW IF EXISTS %s", VIEW_TRANS),
+                    String.format("CREATE VIEW %s AS %s%s", VIEW_TRANS, transitions, transitionJoins)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        GraphStore store = graphStore.get();
+        if (store != null) {
+            store.invalidateResults();
+        }
+    }
+
+    /**
+     * Loads the graph of this version into memory, preferably by mapping its snapshot, and writes a new snapshot if it
+     * had to be loaded from the database. The API functions fall back to the database while it is not available.
+     */
+    public void loadGraphStore() {
+        if (parent.getGraphStoreLimit() <= 0) {
+            return;
+        }
+        if (openGraphSnapshot()) {
+            return;
+        }
+        try (prism.core.Utility.Timer load = new prism.core.Utility.Timer("Load Graph Store", getLog())) {
+            GraphStore store = GraphStore.load(this, parent.getGraphStoreLimit());
+            graphStoreUnavailable = store == null;
+            graphStore = new SoftReference<>(store);
+            if (store != null && parent.isGraphSnapshots()) {
+                store.writeSnapshot(getGraphSnapshot(), getResultsSnapshot(), snapshotFingerprint());
+            }
+        } catch (Exception e) {
+            graphStoreUnavailable = true;
+            if (debug) {
+                System.out.printf("Could not load graph of %s into memory: %s%n", getID(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean openGraphSnapshot() {
+        if (parent.getGraphStoreLimit() <= 0 || !parent.isGraphSnapshots()) {
+            return false;
+        }
+        try (prism.core.Utility.Timer open = new prism.core.Utility.Timer("Open Graph Snapshot", getLog())) {
+            GraphStore store = GraphStore.open(this, getGraphSnapshot(), getResultsSnapshot(), snapshotFingerprint());
+            if (store != null) {
+                graphStoreUnavailable = false;
+                graphStore = new SoftReference<>(store);
+                return true;
+            }
+        } catch (Exception e) {
+            if (debug) {
+                System.out.printf("Could not open graph snapshot of %s: %s%n", getID(), e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private File getGraphSnapshot() {
+        return new File(parent.getPath() + version + SNAPSHOT_GRAPH);
+    }
+
+    private File getResultsSnapshot() {
+        return new File(parent.getPath() + version + SNAPSHOT_RESULTS);
+    }
+
+    /**
+     * Identifies the model file a snapshot was written for, so snapshots of a changed model are not used
+     */
+    private long snapshotFingerprint() {
+        long hash = version.hashCode();
+        hash = 31 * hash + modelFile.length();
+        hash = 31 * hash + modelFile.lastModified();
+        return 31 * hash + modulesFile.getNumRewardStructs();
+    }
+
+    private GraphStore getGraphStore() {
+        if (!built || graphStoreUnavailable || parent.getGraphStoreLimit() <= 0) {
+            return null;
+        }
+        GraphStore store = graphStore.get();
+        if (store == null && loadingGraphStore.compareAndSet(false, true)) {
+            // Never loaded or evicted, the current request is answered by the database
+            Thread loader = new Thread(() -> {
+                try {
+                    synchronized (loadingGraphStore) {
+                        if (graphStore.get() == null) {
+                            loadGraphStore();
+                        }
+                    }
+                } finally {
+                    loadingGraphStore.set(false);
+                }
+            }, "graph-store-" + getID());
+            loader.setDaemon(true);
+            loader.start();
+        }
+        return store;
+    }
+
+    /**
+     * In-memory graph for analyses that are not answered by the database, loaded right away if it is missing
+     */
+    GraphStore requireGraphStore() {
+        if (!built) {
+            throw new IllegalStateException(String.format("Version %s is not built yet", version));
+        }
+        GraphStore store = graphStore.get();
+        if (store == null && !graphStoreUnavailable) {
+            synchronized (loadingGraphStore) {
+                store = graphStore.get();
+                if (store == null) {
+                    loadGraphStore();
+                    store = graphStore.get();
+                }
+            }
+        }
+        if (store == null) {
+            throw new IllegalStateException(String.format("The graph of version %s does not fit into memory", version));
+        }
+        return store;
+    }
+
+    /**
+     * In-memory graph to store the results of a check with, empty if the graph of this version is not held in memory
+     */
+    public Optional<GraphStore> getResultStore() {
+        try {
+            return Optional.of(requireGraphStore());
+        } catch (IllegalStateException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Strongly connected components of this version. They are written to the component tables on the first call,
+     * which makes them columns of the views for the API and for scheduler criteria.
+     */
+    public Components getComponents() {
+        GraphStore store = requireGraphStore();
+        Components components = store.getAnalysis(Components.KEY, Components::compute);
+        if (!componentsStored) {
+            synchronized (componentsLock) {
+                if (!componentsStored) {
+                    storeComponents(store, components);
+                    componentsStored = true;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Number of components and, for each given state, its component and whether that is a bottom component
+     */
+    public SccInfo getSccInfo(List<String> stateIDs) {
+        Components components = getComponents();
+        GraphStore store = requireGraphStore();
+        int largest = 0;
+        for (int c = 0; c < components.getNumComponents(); c++) {
+            largest = Math.max(largest, components.getSize(c));
+        }
+        Map<String, Integer> states = new TreeMap<>();
+        Map<Integer, Boolean> bottom = new TreeMap<>();
+        for (String stateID : stateIDs) {
+            int i = store.getStateIndex(stateID);
+            if (i < 0) {
+                continue;
+            }
+            int c = components.getComponent(i);
+            states.put(stateID, c);
+            bottom.put(c, components.isBottom(c));
+        }
+        return new SccInfo(components.getNumComponents(), components.getNumBottom(), largest, states, bottom);
+    }
+
+    private void storeComponents(GraphStore store, Components components) {
+        if (database.question(String.format("SELECT 1 FROM %s", TABLE_SCC))) {
+            return;
+        }
+        try (prism.core.Utility.Timer write = new prism.core.Utility.Timer("Store Components", getLog())) {
+            try (BulkWriter writer = database.createBulkWriter(TABLE_SCC, ENTRY_S_ID, ENTRY_S_SCC, ENTRY_S_BSCC)) {
+                for (int i = 0; i < store.getNumStates(); i++) {
+                    writer.addRow(Long.toString(store.getStateId(i)), String.valueOf(components.getComponent(i)), components.isInBottom(i) ? "1" : "0");
+                }
+            }
+            try (BulkWriter writer = database.createBulkWriter(TABLE_TSCC, ENTRY_T_ID, ENTRY_T_SCC_EXIT)) {
+                for (int c = 0; c < store.getNumChoices(); c++) {
+                    writer.addRow(Long.toString(store.getChoiceId(c)), components.isExit(c) ? "1" : "0");
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * States reachable from the initial states if only the choices of the given scheduler are taken
+     */
+    public BitSet getReachable(String scheduler) {
+        getSchedulerByName(scheduler).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scheduler %s", scheduler)));
+        return requireGraphStore().getReachable(scheduler);
+    }
+
+    /**
+     * Writes the sub-model induced by a scheduler, the states reachable under it with only the choices it takes
+     */
+    public void writeInducedGraph(GraphWriter writer, String scheduler) throws IOException {
+        getReachable(scheduler);
+        requireGraphStore().writeInducedGraph(writer, scheduler);
+    }
+
+    /**
+     * Creates a table with identifier, name and initial flag of all states reachable under the given scheduler. The
+     * search runs on the graph store if it is available and as a recursive query in the database otherwise.
+     */
+    public void createReachableTable(String scheduler, String table) throws SQLException {
+        Scheduler s = getSchedulerByName(scheduler).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scheduler %s", scheduler)));
+        database.execute(String.format("CREATE TABLE %s (%s %s PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN)", table, ENTRY_S_ID, idType, ENTRY_S_NAME, ENTRY_S_INIT));
+
+        GraphStore store = null;
+        try {
+            store = requireGraphStore();
+        } catch (IllegalStateException e) {
+            if (debug) {
+                System.out.printf("Searching reachable states of %s in the database: %s%n", scheduler, e.getMessage());
+            }
+        }
+        try (prism.core.Utility.Timer reach = new prism.core.Utility.Timer("Reachable States", getLog())) {
+            if (store != null) {
+                BitSet reachable = store.getReachable(scheduler);
+                try (BulkWriter writer = database.createBulkWriter(table, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT)) {
+                    for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+                        writer.addRow(Long.toString(store.getStateId(i)), store.getStateName(i), store.isInitial(i) ? "1" : "0");
+                    }
+                }
+                return;
+            }
+            database.execute(String.format("INSERT INTO %s SELECT %s, %s, %s FROM %s WHERE %s IN (%s)",
+                    table, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, TABLE_STATES, ENTRY_S_ID, reachableQuery(s)));
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Recursive query selecting the identifiers of all states reachable under the given scheduler
+     */
+    private String reachableQuery(Scheduler s) {
+        if (!hasTransitionTargets()) {
+            throw new IllegalStateException(String.format("Version %s has no target table to search", version));
+        }
+        return String.format("WITH RECURSIVE reach(%s) AS (SELECT %s FROM %s WHERE %s = '1' " +
+                        "UNION SELECT tt.%s FROM reach r JOIN %s t ON t.%s = r.%s AND t.%s = 1 JOIN %s tt ON tt.%s = t.%s) " +
+                        "SELECT %s FROM reach",
+                ENTRY_S_ID, ENTRY_S_ID, TABLE_STATES, ENTRY_S_INIT,
+                ENTRY_TT_TARGET, VIEW_TRANS, ENTRY_T_OUT, ENTRY_S_ID, s.getCollumnName(), TABLE_TARGETS, ENTRY_T_ID, ENTRY_T_ID,
+                ENTRY_S_ID);
+    }
+
     public long getSize() {
         return this.checker.getModel().getNumStates();
     }
@@ -229,7 +835,7 @@ public class Model implements Namespace {
 
     private boolean isDeadlocked(parser.State state) throws PrismException {
         TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-        checker.getUpdater().calculateTransitions(state, transitionList);
+        parser.getUpdater().calculateTransitions(state, transitionList);
         return transitionList.isDeadlock();
     }
 
@@ -241,6 +847,41 @@ public class Model implements Namespace {
         }
     }
 
+    public int getNumLabels() {
+        return modulesFile.getNumLabels();
+    }
+
+    public boolean hasLabel(int label, parser.State state) throws PrismLangException {
+        return modulesFile.getLabelList().getLabel(label).evaluateBoolean(modulesFile.getConstantValues(), state);
+    }
+
+    /**
+     * Labels of a state as stored in the label column, only defined for models with at most 64 labels
+     */
+    public long getLabelBits(parser.State state) throws PrismLangException {
+        long bits = 0;
+        for (int i = 0; i < modulesFile.getNumLabels(); i++) {
+            if (hasLabel(i, state)) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Label map of a state whose flags were computed beforehand, label i holds iff labels tests true for i
+     */
+    public TreeMap<String, AP> getLabelMap(boolean initial, boolean deadlock, IntPredicate labels) {
+        TreeMap<String, AP> labelMap = new TreeMap<>();
+        labelMap.put(LABEL_INIT, initial ? APs.get(LABEL_INIT) : null);
+        labelMap.put(LABEL_DEAD, deadlock ? APs.get(LABEL_DEAD) : null);
+        for (int i = 0; i < modulesFile.getNumLabels(); i++) {
+            String name = modulesFile.getLabelName(i);
+            labelMap.put(name, labels.test(i) ? APs.get(name) : null);
+        }
+        return labelMap;
+    }
+
     public TreeMap<String, AP> getLabelMap(parser.State state) throws Exception {
         TreeMap<String, AP> labels = new TreeMap<>();
         labels.put(LABEL_INIT, isInitial(state)?APs.get(LABEL_INIT): null);
@@ -256,6 +897,10 @@ public class Model implements Namespace {
         return this.properties;
     }
 
+    public Optional<Scheduler> getSchedulerByName(String name) {
+        return schedulers.stream().filter(s -> s.getName().equals(name)).findFirst();
+    }
+
     public List<Scheduler> getSchedulers() {
         return this.schedulers;
     }
@@ -273,17 +918,17 @@ public class Model implements Namespace {
     }
 
     public List<Transition> getAllTransitions() {
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_TRANS), new TransitionMapper(this));
+        return database.executeCollectionQuery(String.format("SELECT * FROM %s", VIEW_TRANS), new TransitionMapper(this));
     }
 
     public List<Transition> getOutgoingList(String stateID) {
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s == %s ", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s == %s ", VIEW_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
 
     }
 
     public List<State> getStates(List<Long> stateIDs) {
         String stateString = stateIDs.stream().map(l -> Long.toString(l)).collect(Collectors.joining(","));
-        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
+        return database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", VIEW_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
     }
 
     public List<Long> getAllStates() {
@@ -303,12 +948,22 @@ public class Model implements Namespace {
         return results.get();
     }
 
-    public void checkProperty(String propertyName) throws PrismException {
-        checker.checkModel(propertyName);
+    public String checkProperty(String propertyName) throws PrismException {
+        return checker.checkModel(propertyName);
+    }
+
+    /**
+     * Queues checking the given properties. Returns the job ids of the checks.
+     */
+    public List<String> checkProperties(List<String> propertyNames) throws PrismException {
+        return checker.checkModels(propertyNames);
     }
 
     public void loadPropertyFile(File file) throws Exception {
         checker.parsePropertyFile(file.getPath());
+        if (built) {
+            refreshViews();
+        }
     }
 
     public void loadPropertyFiles() throws Exception {
@@ -399,11 +1054,18 @@ public class Model implements Namespace {
                     switch (m.group(1)){
                         case "SORT":
                         default:
-                            Optional<Property> p = this.getProperty(m.group(2));
-                            if(p.isEmpty()) {
-                                throw new Exception(m.group(2) + " not a checked property");
+                            String collumnName;
+                            if (m.group(2).equals(ENTRY_T_SCC_EXIT)) {
+                                // Fills the component tables the view reads this column from
+                                getComponents();
+                                collumnName = ENTRY_T_SCC_EXIT;
+                            } else {
+                                Optional<Property> p = this.getProperty(m.group(2));
+                                if(p.isEmpty()) {
+                                    throw new Exception(m.group(2) + " not a checked property");
+                                }
+                                collumnName = p.get().getPropertyCollumn();
                             }
-                            String collumnName = p.get().getPropertyCollumn();
                             if (m.group(3).equals(" ASC"))
                                 criterias.add(new CriteriaSort(collumnName, CriteriaSort.Direction.ASC));
                             else
@@ -415,22 +1077,114 @@ public class Model implements Namespace {
         }
 
         Scheduler custom = Scheduler.createScheduler(this, description.getName(), schedulers.size(), criterias);
-        this.schedulers.add(custom);
+        addScheduler(custom);
     }
 
+    /**
+     * Adds a scheduler to this version. The in-memory results are invalidated again, as they may have been loaded
+     * after the scheduler was part of the views but before it was added here, and would then lack its choices.
+     */
     public void addScheduler(Scheduler scheduler){
         schedulers.add(scheduler);
+        GraphStore store = graphStore.get();
+        if (store != null) {
+            store.invalidateResults();
+        }
     }
 
     public void printScheduler(String pathName, boolean limit) throws Exception {
+        printScheduler(pathName, limit, SchedulerExport.Format.TEXT, false);
+    }
+
+    public void printScheduler(String pathName, boolean limit, SchedulerExport.Format format, boolean gzip) throws Exception {
         checker.modelCheckAll();
         int i = 0;
         for (Property p : properties){
-            p.printScheduler(String.format("%s/sched_%s.csv", pathName, i), limit);
+            p.printScheduler(String.format("%s/sched_%s.%s%s", pathName, i, format.getExtension(), gzip ? ".gz" : ""), limit, format, gzip);
             i++;
         }
     }
 
+    /**
+     * Writes the actions a scheduler chooses in every state, or in every state reachable under it, ordered by state
+     * identifier. Identifiers are the mixed-radix encoding of the variables, so this is the order of the variable values
+     * without splitting any state names. The rows are read from the graph store if it is available and from a single
+     * sorted query otherwise.
+     */
+    public void exportScheduler(String scheduler, SchedulerExport export, boolean limit) throws IOException, SQLException {
+        Scheduler s = getSchedulerByName(scheduler).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scheduler %s", scheduler)));
+        VarList varList = getModelParser().getVarList();
+        List<String> synchs = modulesFile.getSynchs();
+
+        GraphStore store = null;
+        try {
+            store = requireGraphStore();
+        } catch (IllegalStateException e) {
+            if (debug) {
+                System.out.printf("Exporting scheduler %s from the database: %s%n", scheduler, e.getMessage());
+            }
+        }
+
+        try (prism.core.Utility.Timer timer = new prism.core.Utility.Timer("Export Scheduler", getLog())) {
+            if (store != null) {
+                BitSet chosen = store.getScheduler(scheduler);
+                BitSet states = limit ? store.getReachable(scheduler) : null;
+                int n = store.getNumStates();
+                export.header(varList, synchs, limit ? states.cardinality() : n);
+                List<String> actions = new ArrayList<>();
+                for (int i = limit ? states.nextSetBit(0) : 0; i >= 0 && i < n; i = limit ? states.nextSetBit(i + 1) : i + 1) {
+                    actions.clear();
+                    for (int c = chosen.nextSetBit(store.getChoiceStart(i)); c >= 0 && c < store.getChoiceEnd(i); c = chosen.nextSetBit(c + 1)) {
+                        actions.add(store.getActionName(store.getAction(c)));
+                    }
+                    if (!actions.isEmpty()) {
+                        export.row(Long.toString(store.getStateId(i)), store.getStateName(i), actions);
+                    }
+                }
+                return;
+            }
+
+            String stateTable = TABLE_STATES;
+            if (limit) {
+                stateTable = TABLE_STATES + "_reach";
+                database.execute(String.format("DROP TABLE IF EXISTS %s", stateTable));
+                createReachableTable(scheduler, stateTable);
+            }
+            try {
+                long size = database.executeLookupQuery(String.format("SELECT COUNT(*) FROM %s", stateTable), Long.class).orElse(0L);
+                export.header(varList, synchs, size);
+                // Textual identifiers are non-negative numbers, which sort numerically by length first
+                String order = isTypedSchema() ? String.format("s.%s", ENTRY_S_ID) : String.format("LENGTH(s.%s), s.%s", ENTRY_S_ID, ENTRY_S_ID);
+                String query = String.format("SELECT s.%s, s.%s, t.%s FROM %s s JOIN %s t ON t.%s = s.%s WHERE t.%s = 1 ORDER BY %s, t.%s",
+                        ENTRY_S_ID, ENTRY_S_NAME, ENTRY_T_ACT, stateTable, VIEW_TRANS, ENTRY_T_OUT, ENTRY_S_ID, s.getCollumnName(), order, ENTRY_T_ID);
+                try (PersistentQuery q = database.openCursor(query, Database.FETCH_SIZE); ResultIterator<String[]> rows = q.iterator((rs, ctx) -> new String[]{rs.getString(ENTRY_S_ID), rs.getString(ENTRY_S_NAME), rs.getString(ENTRY_T_ACT)})) {
+                    String[] current = null;
+                    List<String> actions = new ArrayList<>();
+                    while (rows.hasNext()) {
+                        String[] row = rows.next();
+                        if (current != null && !current[0].equals(row[0])) {
+                            export.row(current[0], current[1], actions);
+                            actions.clear();
+                        }
+                        current = row;
+                        actions.add(row[2]);
+                    }
+                    if (current != null) {
+                        export.row(current[0], current[1], actions);
+                    }
+                }
+            } finally {
+                if (limit) {
+                    database.execute(String.format("DROP TABLE IF EXISTS %s", stateTable));
+                }
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public prism.api.Scheduler getScheduler(String schedulerName) throws Exception {
         for (Scheduler s : schedulers) {
             if (s.getName().equals(schedulerName)) {
@@ -442,6 +1196,10 @@ public class Model implements Namespace {
 
     public void clearTables() throws Exception {
         schedulers.clear();
+        graphStore = new SoftReference<>(null);
+        graphStoreUnavailable = false;
+        Files.deleteIfExists(getGraphSnapshot().toPath());
+        Files.deleteIfExists(getResultsSnapshot().toPath());
         for (Property p : properties) {
             p.clear();
         }
@@ -458,8 +1216,12 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getInitialNodes();
+        }
         try {
-            List<State> initials = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s = '1'", TABLE_STATES, ENTRY_S_INIT), new StateMapper(this));
+            List<State> initials = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s = '1'", VIEW_STATES, ENTRY_S_INIT), new StateMapper(this));
 
             return new Graph(this, initials, new ArrayList<>());
         } catch (Exception e) {
@@ -475,11 +1237,177 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_STATES), new StateMapper(this));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s", TABLE_TRANS), new TransitionMapper(this));
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getGraph();
+        }
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s", VIEW_STATES), new StateMapper(this));
+        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s", VIEW_TRANS), new TransitionMapper(this));
         return new Graph(this, states, transitions);
     }
 
+    /**
+     * Writes the entire graph while it is read. Unlike getGraph, built versions are never held in memory as a whole.
+     */
+    public void writeGraph(GraphWriter writer) throws IOException {
+        if (!built) {
+            writer.write(getGraph());
+            return;
+        }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            store.writeGraph(writer);
+            return;
+        }
+        writer.begin(getInformation());
+        try (PersistentQuery query = database.openCursor(String.format("SELECT * FROM %s", VIEW_STATES), Database.FETCH_SIZE); ResultIterator<State> states = query.iterator(new StateMapper(this))) {
+            while (states.hasNext()) {
+                writer.node(states.next());
+            }
+        }
+        try (PersistentQuery query = database.openCursor(String.format("SELECT * FROM %s", VIEW_TRANS), Database.FETCH_SIZE); ResultIterator<Transition> transitions = query.iterator(new TransitionMapper(this))) {
+            while (transitions.hasNext()) {
+                writer.node(transitions.next());
+            }
+        }
+        // Edges follow all nodes, so the transitions are read a second time instead of being kept
+        writer.beginEdges();
+        try (PersistentQuery query = database.openCursor(String.format("SELECT * FROM %s", VIEW_TRANS), Database.FETCH_SIZE); ResultIterator<Transition> transitions = query.iterator(new TransitionMapper(this))) {
+            while (transitions.hasNext()) {
+                writer.edges(transitions.next());
+            }
+        }
+        writer.end();
+    }
+
+    /**
+     * Keyset pagination over the states ordered by identifier. The next page starts after the cursor of this one.
+     */
+    public Page getStatePage(Optional<String> after, int limit, GraphFilter filter) {
+        int size = pageSize(limit);
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getStatePage(after.map(Model::parseCursor).orElse(null), size, filter);
+        }
+        List<String> conditions = new ArrayList<>();
+        after.ifPresent(a -> conditions.add(String.format("s.%s > %s", ENTRY_S_ID, idLiteral(a))));
+        if (filter.getLabel() != null) {
+            conditions.add(labelCondition(filter.getLabel()));
+        }
+        if (filter.getProperty() != null) {
+            conditions.add(resultCondition(TABLE_RES, ENTRY_S_ID, "s." + ENTRY_S_ID, filter));
+        }
+        if (filter.getScheduler() != null) {
+            Scheduler scheduler = getSchedulerByName(filter.getScheduler()).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scheduler %s", filter.getScheduler())));
+            conditions.add(String.format("s.%s IN (%s)", ENTRY_S_ID, reachableQuery(scheduler)));
+        }
+        String query = String.format("SELECT * FROM %s s%s ORDER BY s.%s LIMIT %s", VIEW_STATES, where(conditions), ENTRY_S_ID, size + 1);
+        return page(new ArrayList<>(database.executeCollectionQuery(query, new StateMapper(this))), size);
+    }
+
+    /**
+     * Keyset pagination over the transitions ordered by identifier. Label conditions apply to their origin.
+     */
+    public Page getTransitionPage(Optional<String> after, int limit, GraphFilter filter) {
+        int size = pageSize(limit);
+        // Cursors may be given as node identifiers, which carry a prefix
+        Optional<String> cursor = after.map(a -> a.startsWith("t") ? a.substring(1) : a);
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getTransitionPage(cursor.map(Model::parseCursor).orElse(null), size, filter);
+        }
+        List<String> conditions = new ArrayList<>();
+        cursor.ifPresent(a -> conditions.add(String.format("t.%s > %s", ENTRY_T_ID, idLiteral(a))));
+        if (filter.getLabel() != null) {
+            conditions.add(String.format("EXISTS (SELECT 1 FROM %s s WHERE s.%s = t.%s AND %s)", TABLE_STATES, ENTRY_S_ID, ENTRY_T_OUT, labelCondition(filter.getLabel())));
+        }
+        if (filter.getProperty() != null) {
+            conditions.add(resultCondition(TABLE_TRES, ENTRY_T_ID, "t." + ENTRY_T_ID, filter));
+        }
+        if (filter.getScheduler() != null) {
+            Scheduler scheduler = getSchedulerByName(filter.getScheduler()).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scheduler %s", filter.getScheduler())));
+            conditions.add(String.format("t.%s = 1", scheduler.getCollumnName()));
+        }
+        String query = String.format("SELECT * FROM %s t%s ORDER BY t.%s LIMIT %s", VIEW_TRANS, where(conditions), ENTRY_T_ID, size + 1);
+        return page(new ArrayList<>(database.executeCollectionQuery(query, new TransitionMapper(this))), size);
+    }
+
+    private int pageSize(int limit) {
+        if (!built) {
+            throw new IllegalStateException(String.format("Version %s is not built yet", version));
+        }
+        return Math.min(Math.max(1, limit), MAX_PAGE_SIZE);
+    }
+
+    // One row more than the page size is queried to know whether another page follows
+    private static Page page(List<Node> nodes, int size) {
+        if (nodes.size() <= size) {
+            return new Page(nodes, null);
+        }
+        nodes.remove(size);
+        return new Page(nodes, nodes.get(size - 1).getNumId());
+    }
+
+    private String idLiteral(String id) {
+        if (isTypedSchema()) {
+            return Long.toString(parseCursor(id));
+        }
+        return "'" + id.replace("'", "''") + "'";
+    }
+
+    private static long parseCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid cursor %s", cursor));
+        }
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // Condition on the state table aliased as s
+    private String labelCondition(String label) {
+        switch (label) {
+            case LABEL_INIT:
+                return String.format("s.%s = '1'", ENTRY_S_INIT);
+            case LABEL_DEAD:
+                if (hasLabelColumns()) {
+                    return String.format("s.%s = '1'", ENTRY_S_DEAD);
+                }
+                return String.format("NOT EXISTS (SELECT 1 FROM %s d WHERE d.%s = s.%s)", TABLE_TRANS, ENTRY_T_OUT, ENTRY_S_ID);
+            default:
+                int index = modulesFile.getLabelIndex(label);
+                if (index < 0) {
+                    throw new IllegalArgumentException(String.format("Unknown label %s", label));
+                }
+                if (!hasLabelColumns()) {
+                    throw new IllegalArgumentException(String.format("Version %s has to be rebuilt to filter by labels", version));
+                }
+                return String.format("(s.%s & %s) <> 0", ENTRY_S_LABELS, 1L << index);
+        }
+    }
+
+    private String resultCondition(String table, String idColumn, String outerId, GraphFilter filter) {
+        Property property = getProperty(filter.getProperty()).orElseThrow(() -> new IllegalArgumentException(String.format("Unknown property %s", filter.getProperty())));
+        StringBuilder condition = new StringBuilder(String.format("EXISTS (SELECT 1 FROM %s r WHERE r.%s = %s AND r.%s = %s", table, ENTRY_RES_PROP, property.getID(), idColumn, outerId));
+        if (filter.hasMin() && Double.isFinite(filter.getMin())) {
+            condition.append(String.format(" AND r.%s >= %s", ENTRY_RES_VALUE, filter.getMin()));
+        }
+        if (filter.hasMax() && Double.isFinite(filter.getMax())) {
+            condition.append(String.format(" AND r.%s <= %s", ENTRY_RES_VALUE, filter.getMax()));
+        }
+        return condition.append(")").toString();
+    }
+
+    /**
+     * Graph of state groups, see Aggregation. Each grouping describes one level of detail.
+     */
+    public Graph getAggregatedGraph(List<String> groupings, List<String> expanded) {
+        return new Aggregation(this, requireGraphStore(), groupings).collapse(expanded);
+    }
+
     public Graph getSubGraph(List<String> stateIDs) {
         if (!built) {
             try {
@@ -488,10 +1416,14 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getSubGraph(stateIDs);
+        }
         List<String> stringIds = new ArrayList<>(stateIDs);
         String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateID) , new StateMapper(this));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", VIEW_STATES, ENTRY_S_ID, stateID) , new StateMapper(this));
+        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", VIEW_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
         List<Transition> transitionsOut = new ArrayList<>();
         for (Transition t : transitions){
             Set<String> reach = new HashSet<>(t.getProbabilityDistribution().keySet());
@@ -513,7 +1445,11 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
-        Optional<State> results = database.executeLookupQuery(String.format("SELECT * FROM %s WHERE %s = %s", TABLE_STATES, ENTRY_S_ID, stateID), new StateMapper(this));
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getState(stateID);
+        }
+        Optional<State> results = database.executeLookupQuery(String.format("SELECT * FROM %s WHERE %s = %s", VIEW_STATES, ENTRY_S_ID, stateID), new StateMapper(this));
         if (results.isEmpty()) return null;
         List<State> states = new ArrayList<>();
         states.add(results.get());
@@ -528,8 +1464,12 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getOutgoing(stateIDs);
+        }
         String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+        List<Transition> transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", VIEW_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
         //System.out.println(transitions.size());
         Set<String> statesOfInterest = new HashSet<>();
         for (Transition t : transitions) {
@@ -537,7 +1477,32 @@ public class Model implements Namespace {
             statesOfInterest.addAll(new ArrayList<>(t.getProbabilityDistribution().keySet()));
         }
         String stateString = statesOfInterest.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", VIEW_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
+        return new Graph(this, states, transitions);
+    }
+
+    public Graph getIncoming(List<String> stateIDs) {
+        if (!built) {
+            throw new RuntimeException(String.format("Predecessors are only known once %s is built", getID()));
+        }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.getIncoming(stateIDs);
+        }
+        String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
+        List<Transition> transitions;
+        if (hasTargets) {
+            transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (SELECT %s FROM %s WHERE %s IN (%s))", VIEW_TRANS, ENTRY_T_ID, ENTRY_T_ID, TABLE_TARGETS, ENTRY_TT_TARGET, stateID), new TransitionMapper(this));
+        } else {
+            Set<String> targets = new HashSet<>(stateIDs);
+            transitions = getAllTransitions().stream().filter(t -> t.getProbabilityDistribution().keySet().stream().anyMatch(targets::contains)).collect(Collectors.toList());
+        }
+        Set<String> statesOfInterest = new HashSet<>(stateIDs);
+        for (Transition t : transitions) {
+            statesOfInterest.add(t.getSource());
+        }
+        String stateString = statesOfInterest.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", VIEW_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
         return new Graph(this, states, transitions);
     }
 
@@ -549,10 +1514,14 @@ public class Model implements Namespace {
                 throw new RuntimeException(e);
             }
         }
+        GraphStore store = getGraphStore();
+        if (store != null) {
+            return store.resetGraph(stateIDs, unexploredStateIDs);
+        }
         List<Transition> transitions = new ArrayList<>();
         if (!stateIDs.isEmpty()){
             String stateID = stateIDs.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-            transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", TABLE_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
+            transitions = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s IN (%s)", VIEW_TRANS, ENTRY_T_OUT, stateID), new TransitionMapper(this));
         }
 
         Set<String> statesOfInterest = new HashSet<>();
@@ -564,7 +1533,7 @@ public class Model implements Namespace {
             statesOfInterest.addAll(new ArrayList<>(t.getProbabilityDistribution().keySet()));
         }
         String stateString = statesOfInterest.stream().map(s -> "'" + s + "'").collect(Collectors.joining(","));
-        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", TABLE_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
+        List<State> states = database.executeCollectionQuery(String.format("SELECT * FROM %s WHERE %s in (%s)", VIEW_STATES, ENTRY_S_ID, stateString), new StateMapper(this));
         return new Graph(this, states, transitions);
     }
 
@@ -0,0 +1,419 @@
+package prism.core;
+
+import parser.VarList;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.Evaluator;
+import prism.Prism;
+import prism.core.Utility.Prism.Updater;
+import prism.db.BulkWriter;
+import prism.db.Database;
+import simulator.Choice;
+import simulator.TransitionList;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline writing the reachable state space of a built model into the database.
+ *
+ * The reachable states are split into shards that a pool of workers picks up one after another. Each worker owns its
+ * own Updater (they are not thread-safe) and computes a state together with all its outgoing transitions in a single
+ * pass. Encoded rows are handed over bounded queues to one bulk writer per table, which run in parallel to the workers.
+ * SQLite allows only one writer at a time, there a single writer loads all tables from one queue of tagged rows.
+ * Probability distributions are written both as distribution string and as rows of the normalized target table. The
+ * labels of each state are evaluated once here and stored as bitmask next to its initial and deadlock flags.
+ */
+public class ModelBuilder implements Namespace {
+
+    private static final int SHARD_SIZE = 1000;
+
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private static final String[] END_OF_STREAM = new String[0];
+
+    // Tables of the rows handed to the writers
+    private static final int STATES = 0;
+    private static final int TRANSITIONS = 1;
+    private static final int TARGETS = 2;
+
+    private final Model parent;
+    private final Prism prism;
+    private final ModulesFile modulesFile;
+    private final Database database;
+
+    private final String stateTable;
+    private final String transTable;
+    private final String targetTable;
+
+    private final int numThreads;
+    private final int numRewards;
+    private final int numLabels;
+
+    private final Stage enumerate = new Stage("enumerate", "states");
+    private final Stage compute = new Stage("compute", "states");
+    private final Stage encode = new Stage("encode", "rows");
+    private final Stage write = new Stage("write", "rows");
+
+    private volatile int numStates = 0;
+
+    public ModelBuilder(Model parent, Prism prism, ModulesFile modulesFile, String stateTable, String transTable, String targetTable, int numThreads) {
+        this.parent = parent;
+        this.prism = prism;
+        this.modulesFile = modulesFile;
+        this.database = parent.getDatabase();
+        this.stateTable = stateTable;
+        this.transTable = transTable;
+        this.targetTable = targetTable;
+        this.numThreads = Math.max(1, numThreads);
+        this.numRewards = modulesFile.getNumRewardStructs();
+        this.numLabels = modulesFile.getNumLabels();
+    }
+
+    public void build(prism.Model model) throws Exception {
+        long start = System.nanoTime();
+        List<String> stateList = model.getReachableStates().exportToStringList();
+        enumerate.add(0, System.nanoTime() - start);
+        numStates = stateList.size();
+
+        List<BlockingQueue<String[]>> queues = new ArrayList<>();
+        BlockingQueue<TaggedRow> sharedQueue = null;
+        RowSink sink;
+        if (database.isPostgres()) {
+            for (int k = 0; k < 3; k++) {
+                queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+            }
+            sink = (table, row) -> queues.get(table).put(row);
+        } else {
+            BlockingQueue<TaggedRow> tagged = new ArrayBlockingQueue<>(3 * QUEUE_CAPACITY);
+            sink = (table, row) -> tagged.put(new TaggedRow(table, row));
+            sharedQueue = tagged;
+        }
+        AtomicInteger nextShard = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        // SQLite allows a single writer only, concurrent transactions would fail with SQLITE_BUSY
+        ExecutorService writers = Executors.newFixedThreadPool(database.isPostgres() ? 3 : 1);
+        try {
+            String[] targetColumns = new String[]{ENTRY_T_ID, ENTRY_TT_TARGET, ENTRY_TT_PROB};
+            List<Future<Void>> writing = new ArrayList<>();
+            if (sharedQueue == null) {
+                writing.add(writers.submit(() -> drain(queues.get(STATES), stateTable, stateColumns(), failure, workers)));
+                writing.add(writers.submit(() -> drain(queues.get(TRANSITIONS), transTable, transitionColumns(), failure, workers)));
+                writing.add(writers.submit(() -> drain(queues.get(TARGETS), targetTable, targetColumns, failure, workers)));
+            } else {
+                BlockingQueue<TaggedRow> tagged = sharedQueue;
+                writing.add(writers.submit(() -> drainShared(tagged, new String[]{stateTable, transTable, targetTable},
+                        new String[][]{stateColumns(), transitionColumns(), targetColumns}, failure, workers)));
+            }
+
+            List<Future<Void>> working = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                working.add(workers.submit(() -> work(stateList, nextShard, sink)));
+            }
+            for (Future<Void> f : working) {
+                f.get();
+            }
+            if (sharedQueue == null) {
+                for (BlockingQueue<String[]> queue : queues) {
+                    queue.put(END_OF_STREAM);
+                }
+            } else {
+                sharedQueue.put(new TaggedRow(STATES, END_OF_STREAM));
+            }
+            for (Future<Void> f : writing) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = failure.get() != null ? failure.get() : e.getCause();
+            throw new Exception(cause);
+        } finally {
+            workers.shutdownNow();
+            writers.shutdownNow();
+        }
+
+        report(System.nanoTime() - start);
+    }
+
+    /**
+     * Fraction of the states that have been computed and handed to the writers
+     */
+    public double getProgress() {
+        return numStates == 0 ? 0 : (double) compute.count.get() / numStates;
+    }
+
+    private String[] stateColumns() {
+        String[] columns = new String[5 + numRewards];
+        columns[0] = ENTRY_S_ID;
+        columns[1] = ENTRY_S_NAME;
+        columns[2] = ENTRY_S_INIT;
+        columns[3] = ENTRY_S_DEAD;
+        columns[4] = ENTRY_S_LABELS;
+        for (int i = 0; i < numRewards; i++) {
+            columns[i + 5] = ENTRY_REW + i;
+        }
+        return columns;
+    }
+
+    private String[] transitionColumns() {
+        String[] columns = new String[4 + numRewards];
+        columns[0] = ENTRY_T_ID;
+        columns[1] = ENTRY_T_OUT;
+        columns[2] = ENTRY_T_ACT;
+        columns[3] = ENTRY_T_PROB;
+        for (int i = 0; i < numRewards; i++) {
+            columns[i + 4] = ENTRY_REW + i;
+        }
+        return columns;
+    }
+
+    private Void work(List<String> stateList, AtomicInteger nextShard, RowSink sink) throws Exception {
+        ModelParser modelParser = parent.getModelParser();
+        Updater updater = new Updater(modulesFile, prism);
+        VarList varList = modulesFile.createVarList();
+        Expression initialExpression = modulesFile.getInitialStates();
+        parser.State defaultInitial = initialExpression == null ? modulesFile.getDefaultInitialState() : null;
+
+        TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
+        double[] stateRewards = new double[numRewards];
+        double[] transitionRewards = new double[numRewards];
+
+        int from;
+        while ((from = nextShard.getAndIncrement() * SHARD_SIZE) < stateList.size()) {
+            int to = Math.min(from + SHARD_SIZE, stateList.size());
+            for (int i = from; i < to; i++) {
+                long t0 = System.nanoTime();
+                String stateName = modelParser.normalizeStateName(stateList.get(i));
+                parser.State s = modelParser.parseState(stateName);
+
+                long t1 = System.nanoTime();
+                boolean initial = initialExpression == null ? defaultInitial.equals(s) : initialExpression.evaluateBoolean(s);
+                if (numRewards > 0) {
+                    updater.calculateStateRewards(s, stateRewards);
+                }
+                updater.calculateTransitions(s, transitionList);
+                // Models with more labels than bits evaluate them when reading instead
+                String labels = numLabels <= Long.SIZE ? String.valueOf(parent.getLabelBits(s)) : null;
+
+                long t2 = System.nanoTime();
+                Number s_id = stateIdentifier(modelParser, s);
+                String[] stateRow = new String[5 + numRewards];
+                stateRow[0] = s_id.toString();
+                stateRow[1] = stateName;
+                stateRow[2] = initial ? "1" : "0";
+                stateRow[3] = transitionList.isDeadlock() ? "1" : "0";
+                stateRow[4] = labels;
+                for (int j = 0; j < numRewards; j++) {
+                    stateRow[j + 5] = String.valueOf(stateRewards[j]);
+                }
+                long t3 = System.nanoTime();
+                sink.put(STATES, stateRow);
+
+                long computeTime = t2 - t1;
+                long encodeTime = t3 - t2;
+                for (int j = 0; j < transitionList.getNumChoices(); j++) {
+                    long c0 = System.nanoTime();
+                    Choice<Double> choice = transitionList.getChoice(j);
+                    Map<Number, Double> probabilities = new LinkedHashMap<>();
+                    for (int l = 0; l < choice.size(); l++) {
+                        parser.State target = choice.computeTarget(l, s, varList);
+                        probabilities.merge(stateIdentifier(modelParser, target), choice.getProbability(l), Double::sum);
+                    }
+                    if (numRewards > 0) {
+                        updater.calculateTransitionRewards(s, choice.getModuleOrActionIndex(), transitionRewards);
+                    }
+
+                    long c1 = System.nanoTime();
+                    String[] transitionRow = new String[4 + numRewards];
+                    transitionRow[0] = transitionIdentifier(modelParser, s, j).toString();
+                    transitionRow[1] = stateRow[0];
+                    transitionRow[2] = choice.getModuleOrAction();
+                    transitionRow[3] = encodeDistribution(probabilities);
+                    for (int l = 0; l < numRewards; l++) {
+                        transitionRow[l + 4] = String.valueOf(transitionRewards[l]);
+                    }
+                    List<String[]> targetRows = new ArrayList<>(probabilities.size());
+                    for (Map.Entry<Number, Double> e : probabilities.entrySet()) {
+                        targetRows.add(new String[]{transitionRow[0], e.getKey().toString(), String.valueOf(e.getValue())});
+                    }
+                    long c2 = System.nanoTime();
+                    sink.put(TRANSITIONS, transitionRow);
+                    for (String[] targetRow : targetRows) {
+                        sink.put(TARGETS, targetRow);
+                    }
+
+                    computeTime += c1 - c0;
+                    encodeTime += c2 - c1;
+                }
+
+                enumerate.add(1, t1 - t0);
+                compute.add(1, computeTime);
+                encode.add(1 + transitionList.getNumChoices(), encodeTime);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Identifier of a state as long, or as BigInteger if the model has too many possible states
+     */
+    private static Number stateIdentifier(ModelParser modelParser, parser.State state) {
+        return modelParser.isCompact() ? (Number) modelParser.stateIdentifier(state) : modelParser.stateIdentifierBig(state);
+    }
+
+    private static Number transitionIdentifier(ModelParser modelParser, parser.State state, int choice) {
+        if (modelParser.isCompact()) {
+            try {
+                return modelParser.transitionIdentifier(state, choice);
+            } catch (ArithmeticException e) {
+                // Falls through to the BigInteger identifier
+            }
+        }
+        return modelParser.transitionIdentifierBig(state, choice);
+    }
+
+    private static String encodeDistribution(Map<Number, Double> probabilities) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Number, Double> e : probabilities.entrySet()) {
+            if (out.length() > 0) {
+                out.append(';');
+            }
+            out.append(e.getKey()).append(':').append(e.getValue());
+        }
+        return out.toString();
+    }
+
+    private Void drain(BlockingQueue<String[]> queue, String table, String[] columns, AtomicReference<Throwable> failure, ExecutorService workers) throws Exception {
+        long start = System.nanoTime();
+        long waiting = 0;
+        long rows = 0;
+        try (BulkWriter writer = database.createBulkWriter(table, columns)) {
+            String[] row;
+            while (true) {
+                long t = System.nanoTime();
+                row = queue.take();
+                waiting += System.nanoTime() - t;
+                if (row == END_OF_STREAM) {
+                    break;
+                }
+                writer.addRow(row);
+                rows++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Workers would block on the full queue forever, stop them before giving up
+            failure.compareAndSet(null, e);
+            workers.shutdownNow();
+            throw e;
+        } finally {
+            write.add(rows, System.nanoTime() - start - waiting);
+        }
+        return null;
+    }
+
+    /**
+     * Single writer for databases allowing only one at a time. Takes the rows of all tables from one queue in the order
+     * the workers produced them, and loads them in the transaction of the first writer.
+     */
+    private Void drainShared(BlockingQueue<TaggedRow> queue, String[] tables, String[][] columns, AtomicReference<Throwable> failure, ExecutorService workers) throws Exception {
+        long start = System.nanoTime();
+        long waiting = 0;
+        long rows = 0;
+        List<BulkWriter> bulkWriters = new ArrayList<>();
+        try {
+            for (int k = 0; k < tables.length; k++) {
+                bulkWriters.add(k == 0 ? database.createBulkWriter(tables[k], columns[k]) : database.createBulkWriter(bulkWriters.get(0), tables[k], columns[k]));
+            }
+            while (true) {
+                long t = System.nanoTime();
+                TaggedRow tagged = queue.take();
+                waiting += System.nanoTime() - t;
+                if (tagged.row == END_OF_STREAM) {
+                    break;
+                }
+                bulkWriters.get(tagged.table).addRow(tagged.row);
+                rows++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+            workers.shutdownNow();
+            throw e;
+        } finally {
+            // Writers sharing the transaction are closed before the one committing it
+            for (int k = bulkWriters.size() - 1; k >= 0; k--) {
+                bulkWriters.get(k).close();
+            }
+            write.add(rows, System.nanoTime() - start - waiting);
+        }
+        return null;
+    }
+
+    private void report(long totalNanos) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(parent.getLog(), true))) {
+            for (Stage stage : new Stage[]{enumerate, compute, encode, write}) {
+                String line = stage.report();
+                writer.write(line);
+                if (parent.debug) {
+                    System.out.print(line);
+                }
+            }
+            writer.write(String.format("Build Database pipeline: %s workers, %s ms\n", numThreads, TimeUnit.NANOSECONDS.toMillis(totalNanos)));
+        }
+    }
+
+    /**
+     * Hands the encoded rows of a table over to its writer
+     */
+    private interface RowSink {
+        void put(int table, String[] row) throws InterruptedException;
+    }
+
+    /**
+     * Row of the single writer, together with the table it belongs to
+     */
+    private static class TaggedRow {
+        private final int table;
+        private final String[] row;
+
+        TaggedRow(int table, String[] row) {
+            this.table = table;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Throughput counter of a single pipeline stage. Time is the busy time summed over all threads of the stage.
+     */
+    private static class Stage {
+        private final String name;
+        private final String unit;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        private Stage(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        private void add(long items, long time) {
+            count.addAndGet(items);
+            nanos.addAndGet(time);
+        }
+
+        private String report() {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos.get());
+            long perSecond = nanos.get() == 0 ? 0 : count.get() * 1_000_000_000L / nanos.get();
+            return String.format("Build Database [%s]: %s %s in %s ms busy (%s %s/s)\n", name, count.get(), unit, millis, perSecond, unit);
+        }
+    }
+}
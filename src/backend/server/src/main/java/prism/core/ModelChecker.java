@@ -1,6 +1,5 @@
 package prism.core;
 
-import parser.ast.Expression;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
 import prism.*;
@@ -8,18 +7,13 @@ import prism.api.VariableInfo;
 import prism.core.Property.Property;
 import prism.core.Utility.Prism.Updater;
 import prism.core.Utility.Timer;
-import prism.db.Batch;
 import prism.db.Database;
 import prism.server.Task;
-import simulator.Choice;
-import simulator.TransitionList;
 
 import java.io.*;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class ModelChecker implements Namespace {
@@ -32,22 +26,31 @@ public class ModelChecker implements Namespace {
 
     private final String stateTable;
     private final String transTable;
+    private final String targetTable;
 
     private final String schedTable;
 
-    public ModelChecker(Model parent, File modelFile, String stateTable, String transTable, String schedTable, String cuddMaxMem, int numIterations, boolean debug) throws Exception {
+    private final File modelFile;
+    private final int numIterations;
+    private final boolean debug;
+
+    // Iterations of the short runs that compare the engines of a property
+    private static final int BENCHMARK_ITERATIONS = 100;
+
+    // Checks with the explicit engine, which can not share the symbolic model of the main instance. It builds its
+    // explicit model once and keeps it.
+    private Prism explicitPrism;
+
+    public ModelChecker(Model parent, File modelFile, String stateTable, String transTable, String targetTable, String schedTable, String cuddMaxMem, int numIterations, boolean debug) throws Exception {
         this.parent = parent;
         this.stateTable = stateTable;
         this.transTable = transTable;
+        this.targetTable = targetTable;
         this.schedTable = schedTable;
-        if (debug) this.prism = new Prism(new PrismPrintStreamLog(System.out));
-        else this.prism = new Prism(new PrismDevNullLog());
-        prism.setCUDDMaxMem(cuddMaxMem);
-        prism.setEngine(1);
-        prism.setMaxIters(numIterations);
-
-        prism.initialise();
-        prism.setStoreVector(true);
+        this.modelFile = modelFile;
+        this.numIterations = numIterations;
+        this.debug = debug;
+        this.prism = createPrism(cuddMaxMem, numIterations, debug, parent.getEngines().getBuildEngine());
 
         try (prism.core.Utility.Timer parse = new prism.core.Utility.Timer("parsing project", parent.getLog())) {
             ModulesFile modulesFile = prism.parseModelFile(modelFile, ModelType.MDP);
@@ -103,8 +106,9 @@ public class ModelChecker implements Namespace {
         for (File file : modelDir.listFiles()) {
             String stateTable = String.format("%s_%s", parent.getTableStates(), i);
             String transTable = String.format("%s_%s", parent.getTableTrans(), i);
+            String targetTable = String.format("%s_%s", parent.getTableTargets(), i);
             String schedTable = String.format("%s_%s", parent.getTableSched(), i);
-            ModelChecker instance = new ModelChecker(parent, file, stateTable, transTable, schedTable, cuddMem, numIterations, debug);
+            ModelChecker instance = new ModelChecker(parent, file, stateTable, transTable, targetTable, schedTable, cuddMem, numIterations, debug);
             instances.add(instance);
             i++;
         }
@@ -163,6 +167,17 @@ public class ModelChecker implements Namespace {
         }
     }
 
+    private static Prism createPrism(String cuddMaxMem, int numIterations, boolean debug, Engine engine) throws PrismException {
+        Prism prism = debug ? new Prism(new PrismPrintStreamLog(System.out)) : new Prism(new PrismDevNullLog());
+        prism.setCUDDMaxMem(cuddMaxMem);
+        prism.setEngine(engine.getId());
+        prism.setMaxIters(numIterations);
+
+        prism.initialise();
+        prism.setStoreVector(true);
+        return prism;
+    }
+
     public Prism getPrism() {
         return this.prism;
     }
@@ -185,6 +200,7 @@ public class ModelChecker implements Namespace {
 
     private class modelBuildTask implements Task {
         Database database;
+        volatile ModelBuilder builder;
 
         public modelBuildTask() {
             this.database = parent.getDatabase();
@@ -193,6 +209,8 @@ public class ModelChecker implements Namespace {
         @Override
         public void run() {
             try (prism.core.Utility.Timer build = new prism.core.Utility.Timer("Build Project", parent.getLog())) {
+                // The database is written from the symbolic model
+                prism.setEngine(parent.getEngines().getBuildEngine().getId());
                 prism.buildModelIfRequired();
             } catch (Exception e) {
                 throw new RuntimeException(e);
@@ -215,114 +233,36 @@ public class ModelChecker implements Namespace {
                 try {
                     database.execute(String.format("CREATE SCHEMA \"%s\"",  parent.getVersion()));
 
-                    database.execute(String.format("CREATE TABLE %s (%s TEXT PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN);", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT));
-                    database.execute(String.format("CREATE TABLE %s (%s TEXT PRIMARY KEY NOT NULL, %s TEXT NOT NULL, %s TEXT, %s TEXT);", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB));
+                    String idType = parent.getIdType();
+                    String valueType = parent.getValueType();
+                    database.execute(String.format("CREATE TABLE %s (%s %s PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN, %s BOOLEAN, %s BIGINT);", stateTable, ENTRY_S_ID, idType, ENTRY_S_NAME, ENTRY_S_INIT, ENTRY_S_DEAD, ENTRY_S_LABELS));
+                    database.execute(String.format("CREATE TABLE %s (%s %s PRIMARY KEY NOT NULL, %s %s NOT NULL, %s TEXT, %s TEXT);", transTable, ENTRY_T_ID, idType, ENTRY_T_OUT, idType, ENTRY_T_ACT, ENTRY_T_PROB));
+                    database.execute(String.format("CREATE TABLE %s (%s %s NOT NULL, %s %s NOT NULL, %s %s NOT NULL);", targetTable, ENTRY_T_ID, idType, ENTRY_TT_TARGET, idType, ENTRY_TT_PROB, SQL_TYPE_VALUE));
                     database.execute(String.format("CREATE TABLE %s (%s TEXT, %s TEXT);", schedTable, ENTRY_SCH_ID, ENTRY_SCH_NAME));
 
                     for (int i = 0; i < numRewards; i++) {
-                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT;", stateTable, ENTRY_REW + i));
-                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT;", transTable, ENTRY_REW + i));
+                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s %s;", stateTable, ENTRY_REW + i, valueType));
+                        database.execute(String.format("ALTER TABLE %s ADD COLUMN %s %s;", transTable, ENTRY_REW + i, valueType));
                     }
 
                 } catch (SQLException e) {
                     throw new RuntimeException(e.toString());
                 }
 
-                List<String> stateList = model.getReachableStates().exportToStringList();
-
-                String stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s) VALUES(?,?,?::boolean)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT);
-                String transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s,%s) VALUES (?,?,?,?)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB);
-                if (numRewards > 0) {
-                    String[] rewardHeader = new String[numRewards];
-                    String[] questionHeader = new String[numRewards];
-                    for (int i = 0; i < numRewards; i++) {
-                        rewardHeader[i] = ENTRY_REW + i;
-                        questionHeader[i] = "?";
-                    }
-                    stateInsertCall = String.format("INSERT INTO %s (%s,%s,%s,%s) VALUES(?,?,?::boolean,%s)", stateTable, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, String.join(",", rewardHeader), String.join(",", questionHeader));
-                    transitionInsertCall = String.format("INSERT INTO %s(%s,%s,%s,%s,%s) VALUES (?,?,?,?,%s)", transTable, ENTRY_T_ID, ENTRY_T_OUT, ENTRY_T_ACT, ENTRY_T_PROB, String.join(",", rewardHeader), String.join(",", questionHeader));
-                }
-
-                try (Batch toExecute = database.createBatch(stateInsertCall, 3 + numRewards)) {
-                    for (int i = 0; i < stateList.size(); i++) {
-                        String stateName = parent.getModelParser().normalizeStateName(stateList.get(i));
-                        parser.State s = parent.getModelParser().parseState(stateName);
-                        String s_id = parent.getModelParser().stateIdentifier(s).toString();
-
-                        //Determine whether this is an initial state or not
-                        Expression initialExpression = modulesFile.getInitialStates();
-                        boolean initial;
-                        if (initialExpression == null) {
-                            initial = modulesFile.getDefaultInitialState().equals(s);
-                        } else {
-                            initial = initialExpression.evaluateBoolean(s);
-                        }
-
-                        //Create State in table
-                        if (numRewards > 0) {
-                            double[] rewards = new double[numRewards];
-                            updater.calculateStateRewards(s, rewards);
-                            String[] inputs = new String[numRewards + 3];
-                            inputs[0] = s_id;
-                            inputs[1] = stateName;
-                            inputs[2] = initial ? "TRUE" : "FALSE";
-                            for (int j = 0; j < numRewards; j++) {
-                                inputs[j + 3] = String.valueOf(rewards[j]);
-                            }
-                            toExecute.addToBatch(inputs);
-                        } else {
-                            toExecute.addToBatch(s_id, stateName, initial ? "TRUE" : "FALSE");
-                        }
-                    }
-                } catch (SQLException e) {
-                    throw new RuntimeException(e);
-                }
-
-                try (Batch toExecute = database.createBatch(transitionInsertCall, 4 + numRewards)) {
-                    for (int i = 0; i < stateList.size(); i++) {
-                        String stateName = parent.getModelParser().normalizeStateName(stateList.get(i));
-                        parser.State s = parent.getModelParser().parseState(stateName);
-                        String s_id = parent.getModelParser().stateIdentifier(s).toString();
-
-                        TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-                        updater.calculateTransitions(s, transitionList);
-                        for (int j = 0; j < transitionList.getNumChoices(); j++) {
-                            Choice<Double> choice = transitionList.getChoice(j);
-                            String actionName = choice.getModuleOrAction();
-
-                            String t_id = parent.getModelParser().transitionIdentifier(s, j).toString();
-
-                            Map<String, Double> probabilities = new HashMap<>();
-
-                            for (int l = 0; l < choice.size(); l++) {
-                                double probability = choice.getProbability(l);
-                                parser.State target = choice.computeTarget(l, s, modulesFile.createVarList());
-                                probabilities.put(parent.getModelParser().stateIdentifier(target).toString(), probability);
-                            }
-                            if (numRewards > 0) {
-                                double[] rewards = new double[numRewards];
-                                updater.calculateTransitionRewards(s, choice.getModuleOrActionIndex(), rewards);
-                                String[] inputs = new String[numRewards + 4];
-                                inputs[0] =  t_id;
-                                inputs[1] =  s_id;
-                                inputs[2] = actionName;
-                                inputs[3] = probabilities.entrySet().stream().map(e -> String.format("%s:%s", e.getKey(), e.getValue())).collect(Collectors.joining(";"));
-                                for (int l = 0; l < numRewards; l++) {
-                                    inputs[l + 4] = String.valueOf(rewards[l]);
-                                }
-                                toExecute.addToBatch(inputs);
-                            } else {
-                                toExecute.addToBatch(t_id, s_id, actionName, probabilities.entrySet().stream().map(e -> String.format("%s:%s", e.getKey(), e.getValue())).collect(Collectors.joining(";")));
-                            }
-                        }
-                    }
-                }  catch (SQLException e) {
-                    throw new RuntimeException(e);
+                builder = new ModelBuilder(parent, prism, modulesFile, stateTable, transTable, targetTable, parent.getNumThreads());
+                builder.build(model);
+                // Created after the bulk load, as maintaining them during the inserts is slower
+                database.execute(String.format("CREATE INDEX IF NOT EXISTS %s_idx ON %s (%s)", ENTRY_T_OUT, transTable, ENTRY_T_OUT));
+                for (String index : Model.targetIndices(targetTable)) {
+                    database.execute(index);
                 }
+                parent.prepareResults();
+                parent.refreshViews();
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
             parent.setBuilt(true);
+            parent.loadGraphStore();
         }
 
         @Override
@@ -330,6 +270,13 @@ public class ModelChecker implements Namespace {
             return "Building Model " + parent.getID();
         }
 
+        // Building the model in PRISM has no progress, writing it to the database has
+        @Override
+        public double progress() {
+            ModelBuilder current = builder;
+            return current == null ? 0 : current.getProgress();
+        }
+
         @Override
         public String name() {
             return "Building_" + parent.getID();
@@ -362,11 +309,7 @@ public class ModelChecker implements Namespace {
         public void run() {
             try {
                 prism.buildModelIfRequired();
-                VariableInfo newInfo = property.modelCheck();
-                Map<String, VariableInfo> info = (Map<String, VariableInfo>) parent.getInfo().getStateEntry(OUTPUT_RESULTS);
-                info.replace(property.getName(), newInfo);
-                parent.getInfo().setStateEntry(OUTPUT_RESULTS, info);
-                parent.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+                storeInfo(property, property.modelCheck(checkerFor(selectEngine(property))));
             } catch (PrismException e) {
                 throw new RuntimeException(e);
             }
@@ -403,22 +346,265 @@ public class ModelChecker implements Namespace {
         if (this.model != null && this.isBuilt()) {
             return;
         }
-        if (!parent.getTaskManager().containsTask(Task.Type.Build, parent.getID())) {
+        if (!parent.getTaskManager().containsTask(Task.Type.Build, parent.getProjectID(), parent.getVersion())) {
             parent.getTaskManager().execute(new modelBuildTask());
         }
     }
 
-    public void checkModel(String propertyName) throws PrismException {
+    /**
+     * Queues checking a property, after building the model if necessary. Returns the job id of the check, or null if
+     * there is no such property.
+     */
+    public String checkModel(String propertyName) throws PrismException {
         buildModel();
 
         Optional<Property> p = parent.getProperty(propertyName);
         if(p.isPresent()) {
-            Property property = p.get();
+            markComputing(propertyName);
+            return parent.getTaskManager().execute(new modelCheckTask(p.get()));
+        }
+        return null;
+    }
+
+    /**
+     * Queues checking the given properties, each with its own job. Only if overlapping checks is enabled and some of
+     * them use a symbolic engine and others the explicit one, they are checked by a single task that overlaps both.
+     * Returns the job ids of the queued tasks.
+     */
+    public List<String> checkModels(List<String> propertyNames) throws PrismException {
+        List<Property> properties = propertyNames.stream().map(parent::getProperty).filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
+        if (!overlaps(properties)) {
+            List<String> jobs = new ArrayList<>();
+            for (Property property : properties) {
+                jobs.add(checkModel(property.getName()));
+            }
+            return jobs;
+        }
+        buildModel();
+        for (Property property : properties) {
+            markComputing(property.getName());
+        }
+        return Collections.singletonList(parent.getTaskManager().execute(new modelCheckAllTask(properties)));
+    }
+
+    /**
+     * Whether checking the given properties at once overlaps anything, i.e. overlapping checks is enabled and the
+     * engines configured for them include a symbolic one and the explicit one. Engines still to be benchmarked count
+     * for neither.
+     */
+    private boolean overlaps(List<Property> properties) {
+        if (!parent.isOverlapChecks()) {
+            return false;
+        }
+        EngineSelection engines = parent.getEngines();
+        List<Engine> configured = properties.stream().map(p -> engines.resolve(p.getName())).filter(e -> e != Engine.AUTO).collect(Collectors.toList());
+        return configured.stream().anyMatch(Engine::isSymbolic) && configured.stream().anyMatch(e -> !e.isSymbolic());
+    }
+
+    private void markComputing(String propertyName) {
+        try (Model.ResultsLock lock = parent.lockResults()) {
             Map<String, VariableInfo> info = (Map<String, VariableInfo>) parent.getInfo().getStateEntry(OUTPUT_RESULTS);
             info.get(propertyName).setStatus(VariableInfo.Status.computing);
             parent.getInfo().setStateEntry(OUTPUT_RESULTS, info);
             parent.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
-            parent.getTaskManager().execute(new modelCheckTask(property));
+        }
+    }
+
+    private void storeInfo(Property property, VariableInfo newInfo) {
+        try (Model.ResultsLock lock = parent.lockResults()) {
+            Map<String, VariableInfo> info = (Map<String, VariableInfo>) parent.getInfo().getStateEntry(OUTPUT_RESULTS);
+            info.replace(property.getName(), newInfo);
+            parent.getInfo().setStateEntry(OUTPUT_RESULTS, info);
+            parent.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
+        }
+    }
+
+    /**
+     * Engine to check a property with. If the engine is AUTO and the property was never benchmarked, the benchmark is
+     * run first and its winner remembered for the project.
+     */
+    private Engine selectEngine(Property property) throws PrismException {
+        EngineSelection engines = parent.getEngines();
+        Engine engine = engines.resolve(property.getName());
+        if (engine != Engine.AUTO) {
+            return engine;
+        }
+        Optional<Engine> winner = benchmark(property);
+        if (winner.isEmpty()) {
+            return engines.getBuildEngine();
+        }
+        engines.setWinner(property.getName(), winner.get());
+        return winner.get();
+    }
+
+    /**
+     * Checks the property with every engine, limited to a few iterations, and returns the fastest. Runs that stop as
+     * the iterations do not converge are counted, all engines did the same work then. Engines failing otherwise,
+     * e.g. as they do not support the property, are left out.
+     */
+    private Optional<Engine> benchmark(Property property) throws PrismException {
+        Engine fastest = null;
+        long best = Long.MAX_VALUE;
+        for (Engine engine : Engine.values()) {
+            if (engine == Engine.AUTO) {
+                continue;
+            }
+            Prism checker = checkerFor(engine);
+            checker.buildModelIfRequired();
+            checker.setMaxIters(Math.min(numIterations, BENCHMARK_ITERATIONS));
+            long start = System.nanoTime();
+            try (Timer time = new Timer(String.format("Benchmark %s with %s", property.getName(), engine.getName()), parent.getLog())) {
+                property.check(checker);
+            } catch (PrismException e) {
+                if (e.getMessage() == null || !e.getMessage().contains("converge")) {
+                    if (debug) {
+                        System.out.printf("Engine %s can not check %s: %s%n", engine.getName(), property.getName(), e.getMessage());
+                    }
+                    continue;
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            } finally {
+                checker.setMaxIters(numIterations);
+            }
+            long duration = System.nanoTime() - start;
+            if (duration < best) {
+                best = duration;
+                fastest = engine;
+            }
+        }
+        return Optional.ofNullable(fastest);
+    }
+
+    /**
+     * PRISM instance to check with the given engine. The symbolic engines share the main instance, which holds the
+     * model written to the database.
+     */
+    private Prism checkerFor(Engine engine) throws PrismException {
+        if (engine.isSymbolic()) {
+            prism.setEngine(engine.getId());
+            return prism;
+        }
+        if (explicitPrism == null) {
+            explicitPrism = createExplicitPrism();
+        }
+        return explicitPrism;
+    }
+
+    /**
+     * PRISM instance of the explicit engine. It is not initialised, as that would start a second CUDD next to the one
+     * of the main instance, and the explicit engine does not use CUDD. So it holds no native resources to close down.
+     */
+    private Prism createExplicitPrism() throws PrismException {
+        Prism checker = debug ? new Prism(new PrismPrintStreamLog(System.out)) : new Prism(new PrismDevNullLog());
+        checker.setEngine(Engine.EXPLICIT.getId());
+        checker.setMaxIters(numIterations);
+        checker.setStoreVector(true);
+        try {
+            checker.loadPRISMModel(checker.parseModelFile(modelFile, ModelType.MDP));
+        } catch (FileNotFoundException e) {
+            throw new PrismException(e.getMessage());
+        }
+        return checker;
+    }
+
+    /**
+     * Checks the given properties. The main instance holds the only CUDD and the model written to the database, so the
+     * symbolic checks run one after another on it. If overlapping checks is enabled, the checks with the explicit engine
+     * run next to them on a second thread, with the explicit instance that builds its model once.
+     */
+    public void checkParallel(List<Property> properties) throws PrismException {
+        List<Property> pending = properties.stream().filter(p -> !p.isChecked()).collect(Collectors.toList());
+        if (this.model == null || !this.isBuilt()) {
+            new modelBuildTask().run();
+        }
+
+        // Benchmarks use both instances, so engines are chosen before the checks overlap
+        Map<Property, Engine> engines = new LinkedHashMap<>();
+        for (Property property : pending) {
+            engines.put(property, selectEngine(property));
+        }
+        List<Property> symbolic = pending.stream().filter(p -> engines.get(p).isSymbolic()).collect(Collectors.toList());
+        List<Property> explicit = pending.stream().filter(p -> !engines.get(p).isSymbolic()).collect(Collectors.toList());
+        if (!parent.isOverlapChecks() || symbolic.isEmpty() || explicit.isEmpty()) {
+            for (Property property : pending) {
+                storeInfo(property, property.modelCheck(checkerFor(engines.get(property))));
+            }
+            return;
+        }
+
+        Prism explicitChecker = checkerFor(Engine.EXPLICIT);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Timer time = new Timer(String.format("Checking %s properties, %s of them explicitly", pending.size(), explicit.size()), parent.getLog())) {
+            Future<Void> explicitChecks = executor.submit(() -> {
+                for (Property property : explicit) {
+                    storeInfo(property, property.modelCheck(explicitChecker));
+                }
+                return null;
+            });
+            for (Property property : symbolic) {
+                storeInfo(property, property.modelCheck(checkerFor(engines.get(property))));
+            }
+            explicitChecks.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PrismException("Interrupted while checking properties");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (PrismException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private class modelCheckAllTask implements Task {
+
+        private final List<Property> properties;
+
+        public modelCheckAllTask(List<Property> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public void run() {
+            try {
+                checkParallel(properties);
+            } catch (PrismException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public String status() {
+            return String.format("Checking %s properties in %s", properties.size(), parent.getID());
+        }
+
+        @Override
+        public String name() {
+            return "Check_all_" + parent.getID();
+        }
+
+        @Override
+        public Type type() {
+            return Type.Check;
+        }
+
+        @Override
+        public String projectID() {
+            return parent.getProjectID();
+        }
+
+        @Override
+        public String version() {
+            return parent.getVersion();
+        }
+
+        @Override
+        public double progress() {
+            return (double) properties.stream().filter(Property::isChecked).count() / properties.size();
         }
     }
 
@@ -444,6 +630,10 @@ public class ModelChecker implements Namespace {
     }
 
     public void modelCheckAll() throws PrismException {
+        if (parent.isOverlapChecks()) {
+            checkParallel(parent.getProperties());
+            return;
+        }
         for (Property p : parent.getProperties()) {
             checkModelDirectly(p.getName());
         }
@@ -1,6 +1,5 @@
 package prism.core;
 
-import com.google.common.math.BigIntegerMath;
 import parser.State;
 import parser.VarList;
 import parser.ast.Expression;
@@ -13,12 +12,13 @@ import parser.type.TypeInt;
 import prism.*;
 import prism.api.*;
 import prism.core.Utility.Prism.Updater;
+import prism.core.Utility.StateEncoder;
 import simulator.Choice;
 import simulator.TransitionList;
 
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ModelParser {
 
@@ -26,27 +26,36 @@ public class ModelParser {
 
     private final Model parent;
     private final ModulesFile modulesFile;
-    private final Updater updater;
+    private final Prism prism;
+    // Updaters are not thread-safe, every thread computes successors with its own
+    private final ThreadLocal<Updater> updaters;
+    private volatile StateExplorer explorer;
 
     private final VarList varList;
-    private final BigInteger maxStateIndex;
+    // Variable names indexed like the values of a parser.State
+    private final String[] varNames;
+    private final StateEncoder encoder;
     private List<parser.State> initials;
 
     public ModelParser(Model parent, ModulesFile modulesFile, boolean debug) {
         this.parent = parent;
         this.modulesFile = modulesFile;
-        Prism prism;
-        if (debug) prism = new Prism(new PrismPrintStreamLog(System.out));
-        else prism = new Prism(new PrismDevNullLog());
+        if (debug) this.prism = new Prism(new PrismPrintStreamLog(System.out));
+        else this.prism = new Prism(new PrismDevNullLog());
+        this.updaters = ThreadLocal.withInitial(() -> {
+            try {
+                return new Updater(modulesFile, prism);
+            } catch (PrismException e) {
+                throw new RuntimeException(e);
+            }
+        });
         try {
-            this.updater = new Updater(modulesFile, prism);
             this.varList = modulesFile.createVarList();
-            BigInteger index = BigInteger.ONE;
-            for (int i = 0; i < varList.getNumVars(); i++) {
-                int range = varList.getRange(i);
-                index = index.multiply(BigInteger.valueOf(range));
+            this.encoder = new StateEncoder(modulesFile, varList);
+            this.varNames = new String[varList.getNumVars()];
+            for (int i = 0; i < varNames.length; i++) {
+                varNames[i] = modulesFile.getVarName(i);
             }
-            this.maxStateIndex = index;
         }catch (PrismException e){
             throw new RuntimeException(e);
         }
@@ -71,7 +80,7 @@ public class ModelParser {
             throw new RuntimeException(e);
         }
         if(debug){
-            System.out.println("Parsed Model with " + this.maxStateIndex + " possible states");
+            System.out.println("Parsed Model with " + encoder.getMaxStateIndex() + " possible states");
         }
     }
 
@@ -183,14 +192,28 @@ public class ModelParser {
     }
 
     public Map<String, Object> parseParameters(String stringValues) throws PrismLangException {
-        parser.State state = parseState(stringValues);
-        Map<String, Object> variables = new HashMap<>();
+        return getParameters(parseState(stringValues));
+    }
+
+    public Map<String, Object> getParameters(parser.State state) {
+        Map<String, Object> variables = new HashMap<>(2 * state.varValues.length);
         for (int i = 0; i < state.varValues.length; i++) {
-            variables.put(modulesFile.getVarName(i), state.varValues[i]);
+            variables.put(varNames[i], state.varValues[i]);
         }
         return variables;
     }
 
+    /**
+     * Restores a stored state. Its identifier already packs all variable values, so it is decoded instead of parsing
+     * the state name, which is only used for variables the encoder does not support.
+     */
+    public parser.State readState(String stateIdentifier, String stateName) throws PrismLangException {
+        if (encoder.isDecodable()) {
+            return encoder.decode(stateIdentifier);
+        }
+        return parseState(stateName);
+    }
+
     public static Object castStringToType(String s, Type t) throws PrismLangException {
         switch (t.getTypeString()) {
             case "int":
@@ -207,6 +230,20 @@ public class ModelParser {
         return Prism.parseSingleExpressionString(expression);
     }
 
+    /**
+     * Parses an expression over the variables, constants and formulas of the model, ready to be evaluated on states
+     */
+    public Expression parseStateExpression(String expression) throws PrismLangException {
+        Expression expr = parseSingleExpressionString(expression);
+        expr = (Expression) expr.findAllFormulas(modulesFile.getFormulaList());
+        expr = (Expression) expr.expandFormulas(modulesFile.getFormulaList(), false);
+        expr = (Expression) expr.findAllConstants(modulesFile.getConstantList());
+        expr = (Expression) expr.expandConstants(modulesFile.getConstantList());
+        expr = (Expression) expr.findAllVars(modulesFile.getVarNames(), modulesFile.getVarTypes());
+        expr.typeCheck();
+        return expr;
+    }
+
     public void buildInitialStateObjects() throws Exception {
         List<parser.State> initials = new ArrayList<>();
 
@@ -223,105 +260,81 @@ public class ModelParser {
         this.initials = initials;
     }
 
-    public BigInteger stateIdentifier(parser.State state) {
-        BigInteger index = BigInteger.ZERO;
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
+    public StateEncoder getStateEncoder() {
+        return encoder;
+    }
 
-            int range = (maxValue - minValue) + 1;
-            int value;
+    /**
+     * Updater of the calling thread
+     */
+    public Updater getUpdater() {
+        return updaters.get();
+    }
 
-            int position = modulesFile.getVarIndex(varList.getName(i));
+    public VarList getVarList() {
+        return varList;
+    }
 
-            switch(varList.getType(i).getTypeString()){
-                case "int":
-                    value = (int) state.varValues[position];
-                    break;
-                case "bool":
-                    boolean bool = (boolean) state.varValues[position];
-                    value = bool ? 1 : 0;
-                    break;
-                default:
-                    throw new RuntimeException("Unknown type: " + varList.getType(i).getTypeString());
+    private StateExplorer getExplorer() {
+        if (explorer == null) {
+            synchronized (this) {
+                if (explorer == null) {
+                    explorer = new StateExplorer(this, parent.getNumThreads());
+                }
             }
-
-            index = index.add(prevRange.multiply(BigInteger.valueOf(value - minValue)));
-            prevRange = prevRange.multiply(BigInteger.valueOf(range));
         }
-
-        return index;
+        return explorer;
     }
 
-    public BigInteger stateIdentifier(int[] values) {
-        BigInteger index = BigInteger.ZERO;
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
-
-            int range = (maxValue - minValue) + 1;
-            int position = modulesFile.getVarIndex(varList.getName(i));
-
-            int value = values[position];
-
-            if (value < minValue || value > maxValue) {
-                System.out.println("Value " + value + " is out of range");
-                throw new RuntimeException("Value " + value + " is out of range");}
-
-            index = index.add(prevRange.multiply(BigInteger.valueOf(value - minValue)));
-            prevRange = prevRange.multiply(BigInteger.valueOf(range));
-        }
-
-        return index;
+    /**
+     * Whether state identifiers fit into a long. Otherwise only the BigInteger variants may be used.
+     */
+    public boolean isCompact() {
+        return encoder.isCompact();
     }
 
-    public parser.State translateStateIdentifier(BigInteger stateIdentifier) {
-        parser.State state = new State(varList.getNumVars());
-
-        BigInteger prevRange = BigInteger.ONE;
-
-        for (int i = varList.getNumVars()-1; i >= 0; i--) {
-            int minValue = varList.getLow(i);
-            int maxValue = varList.getHigh(i);
+    public long stateIdentifier(parser.State state) {
+        requireCompact();
+        return encoder.encode(state);
+    }
 
-            int position = modulesFile.getVarIndex(varList.getName(i));
+    public long stateIdentifier(int[] values) {
+        requireCompact();
+        return encoder.encode(values);
+    }
 
-            BigInteger range = BigInteger.valueOf((maxValue - minValue) + 1);
-            int value = BigIntegerMath.divide(stateIdentifier, prevRange, RoundingMode.DOWN).mod(range).intValue();
-            value += minValue;
+    public BigInteger stateIdentifierBig(parser.State state) {
+        return encoder.encodeBig(state);
+    }
 
-            switch(varList.getType(i).getTypeString()){
-                case "int":
-                    state.setValue(position, value);
-                    break;
-                case "bool":
-                    boolean bool = value > 0;
-                    state.setValue(position, bool);
-                    break;
-                default:
-                    throw new RuntimeException("Unknown type: " + varList.getType(i).getTypeString());
-            }
+    public BigInteger stateIdentifierBig(int[] values) {
+        return encoder.encodeBig(values);
+    }
 
-            prevRange = prevRange.multiply(range);
-        }
+    public parser.State translateStateIdentifier(String stateIdentifier) {
+        return encoder.decode(stateIdentifier);
+    }
 
-        return state;
+    /**
+     * Identifier of the choice-th outgoing transition of a state. Throws an ArithmeticException if it does not fit into
+     * a long, use transitionIdentifierBig then.
+     */
+    public long transitionIdentifier(parser.State outState, int choice_identifier) {
+        return encoder.transitionId(stateIdentifier(outState), choice_identifier);
     }
 
-    public BigInteger transitionIdentifier(parser.State outState, int choice_identifier) {
-        BigInteger index = stateIdentifier(outState);
+    public BigInteger transitionIdentifierBig(parser.State outState, int choice_identifier) {
+        return encoder.transitionIdBig(stateIdentifierBig(outState), choice_identifier);
+    }
 
-        return index.add(this.maxStateIndex.multiply(BigInteger.valueOf(choice_identifier)));
+    private void requireCompact() {
+        if (!encoder.isCompact()) {
+            throw new IllegalStateException("State identifiers of this model do not fit into a long");
+        }
     }
 
-    private prism.api.State convertApiState(parser.State state) throws Exception {
-        BigInteger stateidentifier = stateIdentifier(state);
+    prism.api.State convertApiState(parser.State state, Updater updater) throws Exception {
+        String stateidentifier = encoder.identifier(state);
 
         int numRewards = modulesFile.getNumRewardStructs();
         List<String> rewardNames = modulesFile.getRewardStructNames();
@@ -329,21 +342,18 @@ public class ModelParser {
 
         updater.calculateStateRewards(state, rewardValues);
 
-        Map<String, Object> variables = new HashMap<>();
-        for (int i = 0; i < state.varValues.length; i++) {
-            variables.put(modulesFile.getVarName(i), state.varValues[i]);
-        }
+        Map<String, Object> variables = getParameters(state);
 
         Map<String, Double> rewards = new TreeMap<>();
         for (int i = 0; i < numRewards; i++) {
             rewards.put(rewardNames.get(i), rewardValues[i]);
         }
 
-        return new prism.api.State(stateidentifier.toString(), state.toString(), variables, parent.getLabelMap(state), rewards, new TreeMap<>());
+        return new prism.api.State(stateidentifier, state.toString(), variables, parent.getLabelMap(state), rewards, new TreeMap<>());
     }
 
-    private Transition convertApiTransition(parser.State out, int choice_index, Choice<Double> choice, Map<parser.State, Double> distribution) throws Exception {
-        BigInteger identifier = transitionIdentifier(out, choice_index);
+    Transition convertApiTransition(parser.State out, int choice_index, Choice<Double> choice, Map<parser.State, Double> distribution, Updater updater) throws Exception {
+        String identifier = encoder.transitionIdentifier(out, choice_index);
 
         int numRewards = modulesFile.getNumRewardStructs();
         List<String> rewardNames = modulesFile.getRewardStructNames();
@@ -354,7 +364,7 @@ public class ModelParser {
 
         Map<String, Double> outDistribution = new HashMap<>();
         for (parser.State state : distribution.keySet()) {
-            outDistribution.put(stateIdentifier(state).toString(), distribution.get(state));
+            outDistribution.put(encoder.identifier(state), distribution.get(state));
         }
 
         Map<String, Double> rewards = new TreeMap<>();
@@ -362,7 +372,7 @@ public class ModelParser {
             rewards.put(rewardNames.get(i), rewardValues[i]);
         }
 
-        return new Transition(identifier.toString(), stateIdentifier(out).toString(), choice.getModuleOrAction(), outDistribution, rewards, null, null, null);
+        return new Transition(identifier, encoder.identifier(out), choice.getModuleOrAction(), outDistribution, rewards, null, null, null);
     }
 
     // Output Functions
@@ -371,79 +381,69 @@ public class ModelParser {
         List<parser.State> initialStates = this.initials;
         List<prism.api.State> states = new ArrayList<>();
 
+        Updater updater = getUpdater();
         for (parser.State state : initialStates) {
-            states.add(convertApiState(state));
+            states.add(convertApiState(state, updater));
         }
         
         return new Graph(parent, states, new ArrayList<>());
     }
 
     public Graph getGraph() throws Exception {
-        List<parser.State> states = new ArrayList<>(this.initials);
-        List<parser.State> visited = new ArrayList<>();
+        return getGraph(parent.getExploreStates(), parent.getExploreDepth());
+    }
 
+    /**
+     * Explores the reachable states breadth first, expanding at most the given number of states up to the given depth.
+     * A limit of 0 means no limit.
+     */
+    public Graph getGraph(int maxStates, int maxDepth) throws Exception {
         List<prism.api.State> outStates = new ArrayList<>();
         List<Transition> transitions = new ArrayList<>();
-
-        while (!states.isEmpty()) {
-
-            parser.State state = states.remove(0);
-            outStates.add(convertApiState(state));
-            visited.add(state);
-
-            TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-            updater.calculateTransitions(state, transitionList);
-
-            for (int i = 0; i < transitionList.getNumChoices(); i++) {
-                Choice<Double> choice = transitionList.getChoice(i);
-
-                Map<parser.State, Double> probabilities = new HashMap<>();
-
-                for (int j = 0; j < choice.size(); j++) {
-                    double probability = choice.getProbability(j);
-                    parser.State target = choice.computeTarget(j, state, modulesFile.createVarList());
-                    if (!(states.contains(target) | visited.contains(target))) {
-                        states.add(target);
-                    }
-                    probabilities.put(target, probability);
-                }
-
-                transitions.add(convertApiTransition(state, i, choice, probabilities));
-            }
-        }
-
+        explore(maxStates, maxDepth, outStates::add, transitions::add);
         return new Graph(parent, outStates, transitions);
     }
 
+    /**
+     * Explores the reachable states breadth first and hands every state and transition to the consumers as soon as it
+     * is found. States beyond the limits are still reported, but their transitions are not. The consumers are called
+     * from the worker threads of the explorer, but never concurrently.
+     */
+    public void explore(int maxStates, int maxDepth, Consumer<prism.api.State> stateConsumer, Consumer<Transition> transitionConsumer) {
+        getExplorer().explore(this.initials, maxStates, maxDepth, stateConsumer, transitionConsumer);
+    }
+
     public Graph getSubGraph(List<String> stateIDs) throws Exception {
         List<parser.State> states = new ArrayList<>();
         List<prism.api.State> outStates = new ArrayList<>();
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(translateStateIdentifier(stateID));
         }
+        Set<parser.State> contained = new HashSet<>(states);
 
+        Updater updater = getUpdater();
         for (parser.State state : states) {
-            outStates.add(convertApiState(state));
+            outStates.add(convertApiState(state, updater));
 
             TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
             updater.calculateTransitions(state, transitionList);
             for (int i = 0; i < transitionList.getNumChoices(); i++) {
-                boolean contained = true;
+                boolean inside = true;
                 Choice<Double> choice = transitionList.getChoice(i);
                 Map<parser.State, Double> probabilities = new HashMap<>();
 
                 for (int j = 0; j < choice.size(); j++) {
                     double probability = choice.getProbability(j);
-                    parser.State target = choice.computeTarget(j, state, modulesFile.createVarList());
-                    if (!states.contains(target)) {
-                        contained = false;
+                    parser.State target = choice.computeTarget(j, state, varList);
+                    if (!contained.contains(target)) {
+                        inside = false;
                     }
                     probabilities.put(target, probability);
                 }
-                if (contained) {
-                    transitions.add(convertApiTransition(state, i, choice, probabilities));
+                if (inside) {
+                    transitions.add(convertApiTransition(state, i, choice, probabilities, updater));
                 }
             }
         }
@@ -456,31 +456,11 @@ public class ModelParser {
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(translateStateIdentifier(stateID));
         }
+        getExplorer().expand(states, outStates::add, transitions::add);
 
-        for (parser.State state : states) {
-            outStates.add(convertApiState(state));
-
-            TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-            updater.calculateTransitions(state, transitionList);
-            for (int i = 0; i < transitionList.getNumChoices(); i++) {
-                Choice<Double> choice = transitionList.getChoice(i);
-
-                Map<parser.State, Double> probabilities = new HashMap<>();
-
-                for (int j = 0; j < choice.size(); j++) {
-                    double probability = choice.getProbability(j);
-                    parser.State target = choice.computeTarget(j, state, modulesFile.createVarList());
-                    outStates.add(convertApiState(target));
-                    probabilities.put(target, probability);
-                }
-
-                transitions.add(convertApiTransition(state, i, choice, probabilities));
-            }
-        }
         return new Graph(parent, outStates, transitions);
-
     }
 
     public Graph resetGraph(List<String> stateIDs, List<String> unexploredStateIDs) throws Exception {
@@ -489,34 +469,19 @@ public class ModelParser {
         List<Transition> transitions = new ArrayList<>();
 
         for (String stateID : stateIDs) {
-            states.add(translateStateIdentifier(new BigInteger(stateID)));
+            states.add(translateStateIdentifier(stateID));
         }
+        getExplorer().expand(states, outStates::add, transitions::add);
 
-        for (parser.State state : states) {
-            outStates.add(convertApiState(state));
-
-            TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
-            updater.calculateTransitions(state, transitionList);
-            for (int i = 0; i < transitionList.getNumChoices(); i++) {
-                Choice<Double> choice = transitionList.getChoice(i);
-
-                Map<parser.State, Double> probabilities = new HashMap<>();
-
-                for (int j = 0; j < choice.size(); j++) {
-                    double probability = choice.getProbability(j);
-                    parser.State target = choice.computeTarget(j, state, modulesFile.createVarList());
-                    outStates.add(convertApiState(target));
-                    probabilities.put(target, probability);
-                }
-
-                transitions.add(convertApiTransition(state, i, choice, probabilities));
-            }
+        Set<String> reported = new HashSet<>();
+        for (prism.api.State state : outStates) {
+            reported.add(state.getId());
         }
-
+        Updater updater = getUpdater();
         for (String stateID : unexploredStateIDs) {
-            if (outStates.stream().noneMatch(s -> s.getId().equals(stateID))){
-                parser.State state = translateStateIdentifier(new BigInteger(stateID));
-                outStates.add(convertApiState(state));
+            if (reported.add(stateID)){
+                parser.State state = translateStateIdentifier(stateID);
+                outStates.add(convertApiState(state, updater));
             }
         }
 
@@ -12,6 +12,12 @@ public interface Namespace {
     String ENTRY_S_ID = "state_id";
     String ENTRY_S_NAME = "state_name";
     String ENTRY_S_INIT = "initials";
+    String ENTRY_S_DEAD = "deadlocks";
+    // Bitmask of the labels holding in a state, bit i belongs to label i of the model
+    String ENTRY_S_LABELS = "labels";
+    // Strongly connected component of a state and whether no transition leaves it
+    String ENTRY_S_SCC = "scc";
+    String ENTRY_S_BSCC = "bottom_scc";
     String ENTRY_REW = "reward_";
     String ENTRY_PROP = "property_";
     String ENTRY_SCHED = "scheduler_";
@@ -19,6 +25,12 @@ public interface Namespace {
     String ENTRY_T_OUT = "origin";
     String ENTRY_T_PROB = "probabilityDistribution";
     String ENTRY_T_ACT = "action";
+    // Whether a transition can leave the strongly connected component of its origin
+    String ENTRY_T_SCC_EXIT = "scc_exit";
+    String ENTRY_TT_TARGET = "target_id";
+    String ENTRY_TT_PROB = "probability";
+    String ENTRY_RES_PROP = "property_id";
+    String ENTRY_RES_VALUE = "value";
 
     String ENTRY_R_ID = "id";
     String ENTRY_R_NAME = "name";
@@ -34,16 +46,41 @@ public interface Namespace {
 
     String ENTRY_SCH_ID = "id";
 
+    // Choices of the schedulers, one row per scheduler and transition it chooses
+    String ENTRY_CH_SCHED = "scheduler_id";
+
     String TABLE_STATES_BASE = "states";
     String TABLE_TRANS_BASE = "transitions";
     String TABLE_SCHED_BASE = "scheduler";
+    String TABLE_TARGETS_BASE = "transition_targets";
+    String TABLE_RES_BASE = "results";
+    String TABLE_TRES_BASE = "transition_results";
+    String TABLE_SCC_BASE = "components";
+    String TABLE_TSCC_BASE = "transition_components";
+    String TABLE_CHOICES_BASE = "scheduler_choices";
+    String VIEW_STATES_BASE = "states_view";
+    String VIEW_TRANS_BASE = "transitions_view";
 
     String TABLE_STATES_GEN = "\"%s\"." + TABLE_STATES_BASE;
     String TABLE_TRANS_GEN = "\"%s\"." + TABLE_TRANS_BASE;
     String TABLE_SCHED_GEN = "\"%s\"." + TABLE_SCHED_BASE;
+    String TABLE_TARGETS_GEN = "\"%s\"." + TABLE_TARGETS_BASE;
+    String TABLE_RES_GEN = "\"%s\"." + TABLE_RES_BASE;
+    String TABLE_TRES_GEN = "\"%s\"." + TABLE_TRES_BASE;
+    String TABLE_SCC_GEN = "\"%s\"." + TABLE_SCC_BASE;
+    String TABLE_TSCC_GEN = "\"%s\"." + TABLE_TSCC_BASE;
+    String TABLE_CHOICES_GEN = "\"%s\"." + TABLE_CHOICES_BASE;
+    String VIEW_STATES_GEN = "\"%s\"." + VIEW_STATES_BASE;
+    String VIEW_TRANS_GEN = "\"%s\"." + VIEW_TRANS_BASE;
 
     String TABLE_PANES = "PANES";
 
+    String SQL_TYPE_TEXT = "TEXT";
+
+    String SQL_TYPE_ID = "BIGINT";
+
+    String SQL_TYPE_VALUE = "DOUBLE PRECISION";
+
     //Set<String> ENTRY_S_RESERVED = new HashSet<>(Arrays.asList(ENTRY_S_ID, ENTRY_S_NAME, ENTRY_C_SUB, ENTRY_S_INIT, ENTRY_S_REW));
 
     String PROJECT_MODEL = "model.prism";
@@ -58,11 +95,17 @@ public interface Namespace {
 
     String LOG_FILE = "time.log";
 
+    String SNAPSHOT_GRAPH = ".graph";
+
+    String SNAPSHOT_RESULTS = ".results";
+
     String STYLE_FILE = "style.csv";
 
-    Set<String> FILES_RESERVED = new HashSet<>(Arrays.asList(PROJECT_MODEL, PROFEAT_MODEL, SCHEDULER_FILE, TEMP_FILE, STYLE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
+    String ENGINE_FILE = "engines.properties";
 
-    Set<String> FILES_INVISIBLE = new HashSet<>(Arrays.asList(TEMP_FILE, STYLE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
+    Set<String> FILES_RESERVED = new HashSet<>(Arrays.asList(PROJECT_MODEL, PROFEAT_MODEL, SCHEDULER_FILE, TEMP_FILE, STYLE_FILE, ENGINE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
+
+    Set<String> FILES_INVISIBLE = new HashSet<>(Arrays.asList(TEMP_FILE, STYLE_FILE, ENGINE_FILE, LOG_FILE, DATABASE_FILE, DATABASE_FILE + "-shm", DATABASE_FILE + "-wal"));
 
     Set<String> PROJECTS_RESERVED = new HashSet<>(Arrays.asList("postgres", "template1"));
 
@@ -105,6 +148,8 @@ public interface Namespace {
 
     String EVENT_RESET = "MODEL_RESET";
 
+    String EVENT_JOB = "MC_JOB";
+
     static String getLanguage(String filename){
         String language = filename.substring(filename.lastIndexOf(".") + 1);
         switch (language){
@@ -28,8 +28,19 @@ public class Project implements Namespace{
     public final boolean debug;
     public final long cuddMaxMem;
     public final int numIterations;
+    public final int numThreads;
+    public final boolean overlapChecks;
+    public final boolean typedSchema;
+    public final long graphStoreLimit;
+    public final boolean graphSnapshots;
+    public final int exploreStates;
+    public final int exploreDepth;
     private final String rootDir;
 
+    private final EngineSelection engines;
+
+    private final PRISMServerConfiguration configuration;
+
     private final File outLog;
 
     private Set<File> propertyFiles;
@@ -38,20 +49,25 @@ public class Project implements Namespace{
     private String newestVersion;
 
     public static Project reset(Project original) throws Exception {
-        return new Project(original.id, original.rootDir, original.taskManager, original.database, original.cuddMaxMem, original.numIterations, original.debug);
+        return new Project(original.id, original.rootDir, original.taskManager, original.database, original.configuration);
     }
 
     public Project(String id, String rootDir, TaskManager taskManager, Database database, PRISMServerConfiguration config) throws Exception {
-        this(id, rootDir, taskManager, database, config.getCUDDMaxMem(), config.getIterations(), config.getDebug());
-    }
-
-    public Project(String id, String rootDir, TaskManager taskManager, Database database, long cuddMaxMem, int numIterations, boolean debug) throws Exception {
         this.id = id;
         this.taskManager = taskManager;
-        this.debug = debug;
-        this.cuddMaxMem = cuddMaxMem;
-        this.numIterations = numIterations;
+        this.configuration = config;
+        this.debug = config.getDebug();
+        this.cuddMaxMem = config.getCUDDMaxMem();
+        this.numIterations = config.getIterations();
+        this.numThreads = Math.max(1, config.getBuildThreads());
+        this.overlapChecks = config.getOverlapChecks();
+        this.typedSchema = config.getTypedSchema();
+        this.graphStoreLimit = config.getGraphStoreLimit();
+        this.graphSnapshots = config.getGraphSnapshots();
+        this.exploreStates = Math.max(0, config.getExploreStates());
+        this.exploreDepth = Math.max(0, config.getExploreDepth());
         this.rootDir = rootDir;
+        this.engines = new EngineSelection(new File(String.format("%s/%s/", rootDir, id) + ENGINE_FILE), Engine.parse(config.getEngine()));
 
         this.outLog =  new File(String.format("%s/%s/", rootDir, id) + LOG_FILE);
         Files.deleteIfExists(outLog.toPath());
@@ -143,6 +159,38 @@ public class Project implements Namespace{
         return cuddMaxMem;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public boolean isOverlapChecks() {
+        return overlapChecks;
+    }
+
+    public boolean isTypedSchema() {
+        return typedSchema;
+    }
+
+    public EngineSelection getEngines() {
+        return engines;
+    }
+
+    public long getGraphStoreLimit() {
+        return graphStoreLimit;
+    }
+
+    public boolean isGraphSnapshots() {
+        return graphSnapshots;
+    }
+
+    public int getExploreStates() {
+        return exploreStates;
+    }
+
+    public int getExploreDepth() {
+        return exploreDepth;
+    }
+
     public void refreshProject(){
         //TODO Establish Behaviour for modified files
     }
@@ -191,7 +239,7 @@ public class Project implements Namespace{
 
         for (File file : Objects.requireNonNull(new File(String.format("%s/%s", rootDir, id)).listFiles())) {
             String fileName = file.getName();
-            if (!Namespace.FILES_INVISIBLE.contains(fileName)){
+            if (!Namespace.FILES_INVISIBLE.contains(fileName) && !fileName.endsWith(Namespace.SNAPSHOT_GRAPH) && !fileName.endsWith(Namespace.SNAPSHOT_RESULTS)){
                 structure.add(file.getName());
             }
         }
@@ -239,6 +287,62 @@ public class Project implements Namespace{
         return models.get(version).getGraph();
     }
 
+    public void writeGraph(GraphWriter writer) throws IOException {
+        writeGraph(writer, this.defaultVersion());
+    }
+
+    public void writeGraph(GraphWriter writer, String version) throws IOException {
+        models.get(version).writeGraph(writer);
+    }
+
+    public BitSet getReachable(String scheduler){
+        return getReachable(scheduler, this.defaultVersion());
+    }
+
+    public BitSet getReachable(String scheduler, String version){
+        return models.get(version).getReachable(scheduler);
+    }
+
+    public void writeInducedGraph(GraphWriter writer, String scheduler) throws IOException {
+        writeInducedGraph(writer, scheduler, this.defaultVersion());
+    }
+
+    public void writeInducedGraph(GraphWriter writer, String scheduler, String version) throws IOException {
+        models.get(version).writeInducedGraph(writer, scheduler);
+    }
+
+    public Page getStatePage(Optional<String> after, int limit, GraphFilter filter){
+        return getStatePage(after, limit, filter, this.defaultVersion());
+    }
+
+    public Page getStatePage(Optional<String> after, int limit, GraphFilter filter, String version){
+        return models.get(version).getStatePage(after, limit, filter);
+    }
+
+    public Page getTransitionPage(Optional<String> after, int limit, GraphFilter filter){
+        return getTransitionPage(after, limit, filter, this.defaultVersion());
+    }
+
+    public Page getTransitionPage(Optional<String> after, int limit, GraphFilter filter, String version){
+        return models.get(version).getTransitionPage(after, limit, filter);
+    }
+
+    public SccInfo getSccInfo(List<String> stateIDs){
+        return getSccInfo(stateIDs, this.defaultVersion());
+    }
+
+    public SccInfo getSccInfo(List<String> stateIDs, String version){
+        return models.get(version).getSccInfo(stateIDs);
+    }
+
+    public Graph getAggregatedGraph(List<String> groupings, List<String> expanded){
+        return getAggregatedGraph(groupings, expanded, this.defaultVersion());
+    }
+
+    public Graph getAggregatedGraph(List<String> groupings, List<String> expanded, String version){
+        return models.get(version).getAggregatedGraph(groupings, expanded);
+    }
+
     public Graph getSubGraph(List<String> stateIDs){
         return getSubGraph(stateIDs, this.defaultVersion());
     }
@@ -255,6 +359,14 @@ public class Project implements Namespace{
         return models.get(version).getOutgoing(stateIDs);
     }
 
+    public Graph getIncoming(List<String> stateIDs){
+        return getIncoming(stateIDs, this.defaultVersion());
+    }
+
+    public Graph getIncoming(List<String> stateIDs, String version){
+        return models.get(version).getIncoming(stateIDs);
+    }
+
     public Graph getState(String stateID){
         return getState(stateID, this.defaultVersion());
     }
@@ -4,9 +4,9 @@ import org.jdbi.v3.core.result.ResultIterator;
 import parser.ast.ExpressionReward;
 import parser.ast.PropertiesFile;
 import parser.type.TypeDouble;
+import prism.Prism;
 import prism.PrismException;
 import prism.Result;
-import prism.StateValues;
 import prism.api.Transition;
 import prism.api.VariableInfo;
 import prism.core.Model;
@@ -14,13 +14,12 @@ import prism.core.Scheduler.Criteria;
 import prism.core.Scheduler.CriteriaSort;
 import prism.core.Scheduler.Scheduler;
 import prism.core.Utility.Timer;
-import prism.db.Batch;
+import prism.db.BulkWriter;
 import prism.db.PersistentQuery;
 import prism.db.mappers.StateAndValueMapper;
 import prism.db.mappers.TransitionMapper;
 import strat.MDStrategy;
 
-import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Map;
@@ -41,7 +40,7 @@ public class Expectation extends Property{
     }
 
     @Override
-    public VariableInfo modelCheck() throws PrismException {
+    public VariableInfo modelCheck(Prism prism) throws PrismException {
         if (alreadyChecked) {
             return this.getPropertyInfo();
         }
@@ -51,152 +50,146 @@ public class Expectation extends Property{
         }
         Result result;
         try (Timer time = new Timer(String.format("Checking %s", this.getName()), model.getLog())) {
-            result = model.getModelChecker().getPrism().modelCheck(propertiesFile, expression);
+            result = this.check(prism);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        try (Timer time = new Timer(String.format("Insert %s to db", this.getName()), model.getLog())) {
-            StateValues vals = (StateValues) result.getVector();
-            StateAndValueMapper map = new StateAndValueMapper(model.getModelParser());
+        try (Model.ResultsLock lock = model.lockResults(); Timer time = new Timer(String.format("Insert %s to db", this.getName()), model.getLog())) {
+            boolean dense = this.writeDenseValues(prism, result, rewardID.orElse(-1));
+            StateAndValueMapper map = dense ? null : this.readValues(prism, result);
 
-            vals.iterate(map, false);
-            Map<BigInteger, Double> values = map.output();
-
-            model.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", model.getTableStates(), this.getPropertyCollumn()));
-            model.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", model.getTableTrans(), this.getPropertyCollumn()));
-
-            try (Batch toExecute = model.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", model.getTableStates(), this.getPropertyCollumn(), ENTRY_S_ID), 2)) {
-                for (BigInteger stateID : values.keySet()) {
-                    toExecute.addToBatch(String.valueOf(values.get(stateID)), String.valueOf(stateID));
-                }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+            if (!dense) {
+                this.writeStateValues(map);
             }
 
-            MDStrategy strategy = (MDStrategy) result.getStrategy();
-
-            try (Batch toExecute = model.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", model.getTableTrans(), this.getPropertyCollumn(), ENTRY_T_ID), 2)) {
-                String transitionQuery = String.format("SELECT * FROM %s", model.getTableTrans());
+            MDStrategy strategy = result.getStrategy() instanceof MDStrategy ? (MDStrategy) result.getStrategy() : null;
 
-                String rewardName = "";
-                if (rewardID.isPresent())
-                    rewardName = model.getModulesFile().getRewardStructNames().get(rewardID.get());
+            if (!dense && !this.aggregateTransitionValues(rewardID.map(r -> ENTRY_REW + r).orElse(null))) {
+                try (BulkWriter toExecute = model.getDatabase().createBulkWriter(model.getTableTransResults(), ENTRY_RES_PROP, ENTRY_T_ID, ENTRY_RES_VALUE)) {
+                    String transitionQuery = String.format("SELECT * FROM %s", model.getViewTrans());
 
-                try (PersistentQuery query = model.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(model))) {
-                    while (it.hasNext()) {
-                        Transition t = it.next();
+                    String rewardName = "";
+                    if (rewardID.isPresent())
+                        rewardName = model.getModulesFile().getRewardStructNames().get(rewardID.get());
 
-                        double value = t.getReward(rewardName);
-                        for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                            value += entry.getValue() * values.get(new BigInteger(entry.getKey()));
-                        }
-
-                        toExecute.addToBatch(String.valueOf(value), String.valueOf(t.getNumId()));
-                    }
-                }
-
-            /*try (Batch toExecute = project.getDatabase().createBatch(String.format("UPDATE %s SET %s = ?, %s = ? WHERE %s = ?", project.getTableTrans(), this.getPropertyCollumn(), this.getSchedulerCollumn(), ENTRY_T_ID), 3)) {
-                String transitionQuery = String.format("SELECT * FROM %s", project.getTableTrans());
-
-                String rewardName = "";
-                if (rewardID.isPresent())
-                    rewardName = project.getModulesFile().getRewardStructNames().get(rewardID.get());
-
-                if (strategy != null) {
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                    try (PersistentQuery query = model.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(model))) {
                         while (it.hasNext()) {
                             Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
 
-                            double value = 0.0;
+                            double value = t.getReward(rewardName);
                             for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                value += entry.getValue() * map.get(entry.getKey());
                             }
 
-                            if (!strategy.isChoiceDefined(stateID) || t.getAction().equals(String.format("[%s]", strategy.getChoiceAction(stateID)))) {
-                                toExecute.addToBatch(String.valueOf(value), "1.0", String.valueOf(t.getNumId()));
-                            }
+                            toExecute.addRow(String.valueOf(id), String.valueOf(t.getNumId()), String.valueOf(value));
                         }
                     }
-                } else if (minimum) {
-                    Map<Integer, Double> min = new HashMap<>();
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
 
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                /*try (Batch toExecute = project.getDatabase().createBatch(String.format("UPDATE %s SET %s = ?, %s = ? WHERE %s = ?", project.getTableTrans(), this.getPropertyCollumn(), this.getSchedulerCollumn(), ENTRY_T_ID), 3)) {
+                    String transitionQuery = String.format("SELECT * FROM %s", project.getTableTrans());
+
+                    String rewardName = "";
+                    if (rewardID.isPresent())
+                        rewardName = project.getModulesFile().getRewardStructNames().get(rewardID.get());
+
+                    if (strategy != null) {
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
 
-                            if (!min.containsKey(stateID)) {
-                                min.put(stateID, value);
-                            } else {
-                                if (min.get(stateID) > value) {
-                                    min.replace(stateID, value);
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
+
+                                if (!strategy.isChoiceDefined(stateID) || t.getAction().equals(String.format("[%s]", strategy.getChoiceAction(stateID)))) {
+                                    toExecute.addToBatch(String.valueOf(value), "1.0", String.valueOf(t.getNumId()));
                                 }
                             }
                         }
-                    }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                    } else if (minimum) {
+                        Map<Integer, Double> min = new HashMap<>();
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = t.getReward(rewardName);
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                if (!min.containsKey(stateID)) {
+                                    min.put(stateID, value);
+                                } else {
+                                    if (min.get(stateID) > value) {
+                                        min.replace(stateID, value);
+                                    }
+                                }
                             }
+                        }
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = t.getReward(rewardName);
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
 
-                            toExecute.addToBatch(String.valueOf(value), min.get(stateID) < value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
+                                toExecute.addToBatch(String.valueOf(value), min.get(stateID) < value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
+                            }
                         }
-                    }
-                } else {
-                    Map<Integer, Double> max = new HashMap<>();
+                    } else {
+                        Map<Integer, Double> max = new HashMap<>();
 
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
 
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                                double value = t.getReward(rewardName);
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            if (!max.containsKey(stateID)) {
-                                max.put(stateID, value);
-                            } else {
-                                if (max.get(stateID) < value) {
-                                    max.replace(stateID, value);
+                                if (!max.containsKey(stateID)) {
+                                    max.put(stateID, value);
+                                } else {
+                                    if (max.get(stateID) < value) {
+                                        max.replace(stateID, value);
+                                    }
                                 }
                             }
                         }
-                    }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = t.getReward(rewardName);
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            double value = t.getReward(rewardName);
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                toExecute.addToBatch(String.valueOf(value), max.get(stateID) > value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
                             }
-
-                            toExecute.addToBatch(String.valueOf(value), max.get(stateID) > value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
                         }
-                    }
-                }*/
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+                    }*/
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
             }
+            alreadyChecked = true;
+            model.refreshViews();
+
             Criteria criteria = new CriteriaSort(this.getPropertyCollumn(), minimum ? CriteriaSort.Direction.ASC: CriteriaSort.Direction.DESC);
             this.scheduler = Scheduler.createScheduler(this.model, this.getName(), this.id, Collections.singletonList(criteria));
             model.addScheduler(scheduler);
             this.newMaximum();
-            alreadyChecked = true;
 
             return this.getPropertyInfo();
         } catch (Exception e) {
@@ -5,9 +5,9 @@ import parser.ast.ExpressionProb;
 import parser.ast.PropertiesFile;
 import parser.ast.RelOp;
 import parser.type.TypeDouble;
+import prism.Prism;
 import prism.PrismException;
 import prism.Result;
-import prism.StateValues;
 import prism.api.Transition;
 import prism.api.VariableInfo;
 import prism.core.Model;
@@ -15,13 +15,12 @@ import prism.core.Scheduler.Criteria;
 import prism.core.Scheduler.CriteriaSort;
 import prism.core.Scheduler.Scheduler;
 import prism.core.Utility.Timer;
-import prism.db.Batch;
+import prism.db.BulkWriter;
 import prism.db.PersistentQuery;
 import prism.db.mappers.StateAndValueMapper;
 import prism.db.mappers.TransitionMapper;
 import strat.MDStrategy;
 
-import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Map;
@@ -35,7 +34,7 @@ public class Probability extends Property{
     }
 
     @Override
-    public VariableInfo modelCheck() throws PrismException {
+    public VariableInfo modelCheck(Prism prism) throws PrismException {
         if (alreadyChecked) {
             return this.getPropertyInfo();
         }
@@ -46,138 +45,132 @@ public class Probability extends Property{
 
         Result result;
         try (Timer time = new Timer(String.format("Checking %s", this.getName()), model.getLog())) {
-            result = model.getModelChecker().getPrism().modelCheck(propertiesFile, expression);
+            result = this.check(prism);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        try (Timer time = new Timer(String.format("Insert %s to db", this.getName()), model.getLog())) {
-            StateValues vals = (StateValues) result.getVector();
-            StateAndValueMapper map = new StateAndValueMapper(model.getModelParser());
+        try (Model.ResultsLock lock = model.lockResults(); Timer time = new Timer(String.format("Insert %s to db", this.getName()), model.getLog())) {
+            boolean dense = this.writeDenseValues(prism, result, -1);
+            StateAndValueMapper map = dense ? null : this.readValues(prism, result);
 
-            vals.iterate(map, false);
-            Map<BigInteger, Double> values = map.output();
-
-            model.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", model.getTableStates(), this.getPropertyCollumn()));
-            model.getDatabase().execute(String.format("ALTER TABLE %s ADD COLUMN %s TEXT", model.getTableTrans(), this.getPropertyCollumn()));
-
-            try (Batch toExecute = model.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", model.getTableStates(), this.getPropertyCollumn(), ENTRY_S_ID), 2)) {
-                for (BigInteger stateID : values.keySet()) {
-                    toExecute.addToBatch(String.valueOf(values.get(stateID)), String.valueOf(stateID));
-                }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+            if (!dense) {
+                this.writeStateValues(map);
             }
 
-            MDStrategy strategy = (MDStrategy) result.getStrategy();
+            MDStrategy strategy = result.getStrategy() instanceof MDStrategy ? (MDStrategy) result.getStrategy() : null;
 
             //try (Batch toExecute = model.getDatabase().createBatch(String.format("UPDATE %s SET %s = ?, %s = ? WHERE %s = ?", model.getTransitionTableName(), this.getPropertyCollumn(), this.getSchedulerCollumn(), ENTRY_T_ID), 3)) {
-            try (Batch toExecute = model.getDatabase().createBatch(String.format("UPDATE %s SET %s = ? WHERE %s = ?", model.getTableTrans(), this.getPropertyCollumn(), ENTRY_T_ID), 2)) {
-                String transitionQuery = String.format("SELECT * FROM %s", model.getTableTrans());
-                try (PersistentQuery query = model.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(model))) {
-                    while (it.hasNext()) {
-                        Transition t = it.next();
-
-                        double value = 0.0;
-                        for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                            value += entry.getValue() * values.get(new BigInteger(entry.getKey()));
-                        }
-                        toExecute.addToBatch(String.valueOf(value), String.valueOf(t.getNumId()));
-                    }
-                }
-                /*if (strategy != null) {
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+            if (!dense && !this.aggregateTransitionValues(null)) {
+                try (BulkWriter toExecute = model.getDatabase().createBulkWriter(model.getTableTransResults(), ENTRY_RES_PROP, ENTRY_T_ID, ENTRY_RES_VALUE)) {
+                    String transitionQuery = String.format("SELECT * FROM %s", model.getViewTrans());
+                    try (PersistentQuery query = model.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(model))) {
                         while (it.hasNext()) {
                             Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
 
                             double value = 0.0;
                             for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
-
-                            if (!strategy.isChoiceDefined(stateID) || t.getAction().equals(String.format("[%s]", strategy.getChoiceAction(stateID)))) {
-                                toExecute.addToBatch(String.valueOf(value), "1.0", String.valueOf(t.getNumId()));
+                                value += entry.getValue() * map.get(entry.getKey());
                             }
+                            toExecute.addRow(String.valueOf(id), String.valueOf(t.getNumId()), String.valueOf(value));
                         }
                     }
-                }
-                else if (minimum) {
-                    Map<Integer, Double> min = new HashMap<>();
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
-
-                            double value = 0.0;
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                    /*if (strategy != null) {
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            if (!min.containsKey(stateID)) {
-                                min.put(stateID, value);
-                            } else {
-                                if (min.get(stateID) > value) {
-                                    min.replace(stateID, value);
+                                if (!strategy.isChoiceDefined(stateID) || t.getAction().equals(String.format("[%s]", strategy.getChoiceAction(stateID)))) {
+                                    toExecute.addToBatch(String.valueOf(value), "1.0", String.valueOf(t.getNumId()));
                                 }
                             }
                         }
                     }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                    else if (minimum) {
+                        Map<Integer, Double> min = new HashMap<>();
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            double value = 0.0;
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                if (!min.containsKey(stateID)) {
+                                    min.put(stateID, value);
+                                } else {
+                                    if (min.get(stateID) > value) {
+                                        min.replace(stateID, value);
+                                    }
+                                }
                             }
-                            toExecute.addToBatch(String.valueOf(value), min.get(stateID) < value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
                         }
-                    }
-                } else {
-                    Map<Integer, Double> max = new HashMap<>();
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
+                                toExecute.addToBatch(String.valueOf(value), min.get(stateID) < value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
+                            }
+                        }
+                    } else {
+                        Map<Integer, Double> max = new HashMap<>();
 
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
 
-                            double value = 0.0;
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
-                            }
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            if (!max.containsKey(stateID)) {
-                                max.put(stateID, value);
-                            } else {
-                                if (max.get(stateID) < value) {
-                                    max.replace(stateID, value);
+                                if (!max.containsKey(stateID)) {
+                                    max.put(stateID, value);
+                                } else {
+                                    if (max.get(stateID) < value) {
+                                        max.replace(stateID, value);
+                                    }
                                 }
                             }
                         }
-                    }
-                    try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
-                        while (it.hasNext()) {
-                            Transition t = it.next();
-                            int stateID = Integer.parseInt(t.getSource());
+                        try (PersistentQuery query = project.getDatabase().openQuery(transitionQuery); ResultIterator<Transition> it = query.iterator(new TransitionMapper(project))) {
+                            while (it.hasNext()) {
+                                Transition t = it.next();
+                                int stateID = Integer.parseInt(t.getSource());
+
+                                double value = 0.0;
+                                for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
+                                    value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                }
 
-                            double value = 0.0;
-                            for (Map.Entry<String, Double> entry : t.getProbabilityDistribution().entrySet()) {
-                                value += entry.getValue() * values.get(Long.parseLong(entry.getKey()));
+                                toExecute.addToBatch(String.valueOf(value), max.get(stateID) > value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
                             }
-
-                            toExecute.addToBatch(String.valueOf(value), max.get(stateID) > value ? "0.0" : "1.0", String.valueOf(t.getNumId()));
                         }
-                    }
-                }*/
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+                    }*/
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
             }
+            alreadyChecked = true;
+            model.refreshViews();
+
             Criteria criteria = new CriteriaSort(this.getPropertyCollumn(), minimum ? CriteriaSort.Direction.ASC: CriteriaSort.Direction.DESC);
             this.scheduler = Scheduler.createScheduler(this.model, this.getName(), this.id, Collections.singletonList(criteria));
             model.addScheduler(scheduler);
             this.newMaximum();
-            alreadyChecked = true;
 
             return this.getPropertyInfo();
         } catch (Exception e) {
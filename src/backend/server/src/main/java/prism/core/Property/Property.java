@@ -1,32 +1,39 @@
 package prism.core.Property;
 
-import org.jdbi.v3.core.result.ResultIterator;
-import parser.VarList;
 import parser.ast.*;
 import parser.type.TypeDouble;
 import prism.Pair;
+import prism.Prism;
 import prism.PrismException;
-import prism.api.Transition;
+import prism.Result;
+import prism.StateValues;
+import prism.StateValuesDV;
+import prism.DoubleVector;
+import prism.PrismLangException;
 import prism.api.VariableInfo;
+import prism.core.GraphStore;
 import prism.core.Model;
+import prism.core.ModelParser;
 import prism.core.Namespace;
 import prism.core.Project;
 import prism.core.Scheduler.Scheduler;
-import prism.db.Batch;
-import prism.db.PersistentQuery;
+import prism.core.Scheduler.SchedulerExport;
+import prism.core.Utility.StateEncoder;
+import prism.db.BulkWriter;
 import prism.db.mappers.EntryMapper;
-import prism.db.mappers.PairMapper;
+import prism.db.mappers.StateAndValueMapper;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public abstract class Property implements Namespace {
 
+    // Analysis of the graph store holding the order of the symbolic vectors
+    private static final String SYMBOLIC_ORDER = "symbolic_order";
+
     protected int id;
 
     protected Model model;
@@ -51,7 +58,7 @@ public abstract class Property implements Namespace {
 
         Map<String, VariableInfo> info = (Map<String, VariableInfo>) model.getInfo().getStateEntry(OUTPUT_RESULTS);
 
-        if (model.getDatabase().question(String.format("SELECT column_name FROM information_schema.columns WHERE table_schema = '%s' AND table_name = '%s' AND column_name = '%s'", model.getVersion(), Namespace.TABLE_STATES_BASE, this.getPropertyCollumn()))) {
+        if (model.getModelChecker().isBuilt() && model.getDatabase().question(String.format("SELECT %s FROM %s WHERE %s = %s LIMIT 1", ENTRY_RES_PROP, model.getTableResults(), ENTRY_RES_PROP, id))) {
             this.newMaximum();
             this.scheduler = Scheduler.loadScheduler(this.getName(), this.id, model);
             model.addScheduler(scheduler);
@@ -69,13 +76,53 @@ public abstract class Property implements Namespace {
     }
 
     protected void newMaximum(){
-        Optional<Double> out = model.getDatabase().executeLookupQuery(String.format("SELECT MAX(CAST(%s as REAL)) FROM %s", this.getPropertyCollumn(), model.getTableStates()), Double.class);
+        Optional<Double> out = model.getDatabase().executeLookupQuery(String.format("SELECT MAX(%s) FROM %s WHERE %s = %s", ENTRY_RES_VALUE, model.getTableResults(), ENTRY_RES_PROP, id), Double.class);
         if (out.isPresent()){
             this.maximum = Math.ceil(out.get());
         }
 
     }
 
+    /**
+     * Replaces the stored results of this property by the given state values, written in one bulk load into the
+     * result table
+     */
+    protected void writeStateValues(StateAndValueMapper map) throws SQLException {
+        model.getDatabase().execute(String.format("DELETE FROM %s WHERE %s = %s", model.getTableResults(), ENTRY_RES_PROP, id));
+        model.getDatabase().execute(String.format("DELETE FROM %s WHERE %s = %s", model.getTableTransResults(), ENTRY_RES_PROP, id));
+        String propertyID = String.valueOf(id);
+        try (BulkWriter toExecute = model.getDatabase().createBulkWriter(model.getTableResults(), ENTRY_RES_PROP, ENTRY_S_ID, ENTRY_RES_VALUE)) {
+            map.forEach((stateID, value) -> {
+                try {
+                    toExecute.addRow(propertyID, stateID, String.valueOf(value));
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Computes the value of every transition as expectation over the values of its targets directly in the database,
+     * plus the given reward column if present. Returns false if the model does not allow this and the values need to
+     * be computed manually.
+     */
+    protected boolean aggregateTransitionValues(String rewardColumn) throws SQLException {
+        if (!model.hasTransitionTargets() || (rewardColumn != null && !model.isTypedSchema())) {
+            return false;
+        }
+        String aggregation = String.format("SELECT tt.%s, SUM(tt.%s * r.%s) AS %s FROM %s tt JOIN %s r ON r.%s = %s AND r.%s = tt.%s GROUP BY tt.%s"
+                , ENTRY_T_ID, ENTRY_TT_PROB, ENTRY_RES_VALUE, ENTRY_RES_VALUE, model.getTableTargets(), model.getTableResults(), ENTRY_RES_PROP, id, ENTRY_S_ID, ENTRY_TT_TARGET, ENTRY_T_ID);
+        if (rewardColumn == null) {
+            model.getDatabase().execute(String.format("INSERT INTO %s (%s, %s, %s) SELECT %s, agg.%s, agg.%s FROM (%s) AS agg"
+                    , model.getTableTransResults(), ENTRY_RES_PROP, ENTRY_T_ID, ENTRY_RES_VALUE, id, ENTRY_T_ID, ENTRY_RES_VALUE, aggregation));
+        } else {
+            model.getDatabase().execute(String.format("INSERT INTO %s (%s, %s, %s) SELECT %s, agg.%s, agg.%s + COALESCE(t.%s, 0) FROM (%s) AS agg JOIN %s t ON t.%s = agg.%s"
+                    , model.getTableTransResults(), ENTRY_RES_PROP, ENTRY_T_ID, ENTRY_RES_VALUE, id, ENTRY_T_ID, ENTRY_RES_VALUE, rewardColumn, aggregation, model.getTableTrans(), ENTRY_T_ID, ENTRY_T_ID));
+        }
+        return true;
+    }
+
     public static Property createProperty(Model model, int id, PropertiesFile propertiesFile, parser.ast.Property prismProperty){
         Expression expression = prismProperty.getExpression();
 
@@ -97,7 +144,7 @@ public abstract class Property implements Namespace {
     }
 
     public Map<Long, Double> getPropertyMap() {
-        List<Pair<Long, Double>> list = model.getDatabase().executeCollectionQuery(String.format("SELECT %s, %s FROM %s", ENTRY_S_ID, getPropertyCollumn(), model.getTableStates()), new EntryMapper(getPropertyCollumn()));
+        List<Pair<Long, Double>> list = model.getDatabase().executeCollectionQuery(String.format("SELECT %s, %s FROM %s WHERE %s = %s", ENTRY_S_ID, ENTRY_RES_VALUE, model.getTableResults(), ENTRY_RES_PROP, id), new EntryMapper(ENTRY_RES_VALUE));
         Map<Long, Double> out = new HashMap<>();
         for (Pair<Long, Double> p : list){
             out.put(p.getKey(), p.getValue());
@@ -113,6 +160,10 @@ public abstract class Property implements Namespace {
         return ENTRY_PROP + id;
     }
 
+    public boolean isChecked(){
+        return alreadyChecked;
+    }
+
     public String getSchedulerCollumn(){
         return ENTRY_SCHED + id;
     }
@@ -129,143 +180,132 @@ public abstract class Property implements Namespace {
         model.getInfo().setTransitionEntry(OUTPUT_RESULTS, info);
     }
 
-    public abstract VariableInfo modelCheck() throws PrismException;
-
-    public void printScheduler(String filename, boolean limit) {
-        File f = new File(filename);
-        ModulesFile modulesFile = model.getModulesFile();
-        String state_table = model.getTableStates();
-
-        if (limit){
-            try {
-                state_table = this.createReachableTable();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    /**
+     * Values of all states in a result, which is a vector of the symbolic engines or of the explicit engine
+     */
+    protected StateAndValueMapper readValues(Prism prism, Result result) throws PrismException {
+        StateAndValueMapper map = new StateAndValueMapper(model.getModelParser());
+        Object vector = result.getVector();
+        if (vector instanceof StateValues) {
+            ((StateValues) vector).iterate(map, false);
+        } else if (vector instanceof explicit.StateValues) {
+            explicit.StateValues values = (explicit.StateValues) vector;
+            List<parser.State> states = prism.getBuiltModelExplicit().getStatesList();
+            for (int i = 0; i < values.getSize(); i++) {
+                map.accept(states.get(i), toDouble(values.getValue(i)));
             }
+        } else {
+            throw new PrismException(String.format("No state values for %s", this.getName()));
         }
+        return map;
+    }
 
-        int size = model.getDatabase().executeLookupQuery(String.format("SELECT COUNT(*) FROM %s", state_table), Integer.class).orElse(0);
-
-        try(BufferedWriter writer = new BufferedWriter(new FileWriter(f))) {
-            //HEADER
-            VarList varList = modulesFile.createVarList();
-            writer.write(String.format("%s;", varList.getNumVars()));
-            System.out.printf("%s;", varList.getNumVars());
-            StringBuffer joins = new StringBuffer();
-            StringBuffer order = new StringBuffer();
-            for (int i = 0; i < varList.getNumVars();i++){
-                joins.append(String.format("LEFT JOIN (SELECT * FROM split WHERE colNum=%s) as split%s ON %s.ROWID = split%s.string_id\n", i+1, i+1, state_table, i+1));
-                order.append(String.format("CAST(split%s.value AS INTEGER), \n", i+1));
-
-                writer.write(String.format("%s[%s..%s];", varList.getName(i), varList.getLow(i), varList.getHigh(i)));
-                System.out.printf("%s[%s..%s];", varList.getName(i), varList.getLow(i), varList.getHigh(i));
+    /**
+     * Stores the values of a result and of all choices computed from them over the in-memory graph, which avoids maps
+     * keyed by state identifiers and the aggregation in the database. Values are kept in arrays indexed like the
+     * states and choices of the graph. Returns false if the graph is not held in memory, the caller then has to store
+     * the values otherwise.
+     */
+    protected boolean writeDenseValues(Prism prism, Result result, int rewardIndex) throws PrismException, SQLException {
+        Optional<GraphStore> loaded = model.getResultStore();
+        StateEncoder encoder = model.getModelParser().getStateEncoder();
+        if (loaded.isEmpty() || !encoder.isCompact()) {
+            return false;
+        }
+        GraphStore store = loaded.get();
+        double[] values = new double[store.getNumStates()];
+        Arrays.fill(values, Double.NaN);
+        Object vector = result.getVector();
+        if (vector instanceof StateValues) {
+            // Vectors of the symbolic engines are ordered like the reachable states of the symbolic model
+            StateValuesDV converted = ((StateValues) vector).convertToStateValuesDV();
+            DoubleVector dv = converted.getDoubleVector();
+            int[] order = store.getAnalysis(SYMBOLIC_ORDER, s -> symbolicOrder(s, prism.getBuiltModel()));
+            IntStream.range(0, order.length).parallel().forEach(k -> {
+                if (order[k] >= 0) values[order[k]] = dv.getElement(k);
+            });
+            if (converted != vector) {
+                converted.clear();
             }
-            writer.write(String.format("%s;%s;%s", modulesFile.getSynchs().size(), modulesFile.getSynchs().stream().map(s -> "[" + s + "]").collect(Collectors.joining(";")), size));
-            System.out.printf("%s;%s;%s\n", modulesFile.getSynchs().size(), modulesFile.getSynchs().stream().map(s -> "[" + s + "]").collect(Collectors.joining(";")), size);
-            //BODY
-            writer.newLine();
-
-            String transitionQuery = String.format(
-                    "WITH RECURSIVE split(string_id, value, str, colNum) AS ( \n" +
-                            "WITH const AS (SELECT ';' AS delimiter)\n" +
-                            "    SELECT %s.ROWID, '', %s||delimiter, 0 FROM %s, const\n" +
-                            "    UNION ALL SELECT\n" +
-                            "    string_id,\n" +
-                            "    substr(str, 0, instr(str, delimiter)),\n" +
-                            "    substr(str, instr(str, delimiter) + length(delimiter)),\n" +
-                            "    colNum+1\n" +
-                            "    FROM split,const WHERE str!=''\n" +
-                            ") \n" +
-                            "SELECT %s, GROUP_CONCAT(%s, ';') AS actions \n" +
-                            "FROM %s\n" +
-                            "%s\n" +
-                            "JOIN %s ON %s = %s \n" +
-                            "WHERE %s = 1 GROUP BY %s\n" +
-                            "ORDER BY %s %s"
-                    , state_table
-                    , ENTRY_S_NAME
-                    , state_table
-                    , ENTRY_S_NAME
-                    , ENTRY_T_ACT
-                    , state_table
-                    , joins.toString()
-                    , model.getTableTrans()
-                    , ENTRY_S_ID
-                    , ENTRY_T_OUT
-                    , this.getSchedulerCollumn()
-                    , ENTRY_S_NAME
-                    , order.toString()
-                    , ENTRY_S_NAME);
-
-            try(PersistentQuery query = model.getDatabase().openQuery(transitionQuery); ResultIterator<Pair<String, String>> it = query.iterator(new PairMapper<>(ENTRY_S_NAME, "actions", String.class, String.class))) {
-                while (it.hasNext()) {
-                    Pair<String, String> out = it.next();
-                    String s = String.format("%s;%s", out.getKey(), String.join(";", out.getValue()));
-                    writer.write(s);
-                    writer.newLine();
+        } else if (vector instanceof explicit.StateValues) {
+            explicit.StateValues explicitValues = (explicit.StateValues) vector;
+            List<parser.State> states = prism.getBuiltModelExplicit().getStatesList();
+            IntStream.range(0, explicitValues.getSize()).parallel().forEach(k -> {
+                int i = store.getStateIndex(encoder.encode(states.get(k)));
+                if (i >= 0) values[i] = toDouble(explicitValues.getValue(k));
+            });
+        } else {
+            throw new PrismException(String.format("No state values for %s", this.getName()));
+        }
+        double[] choiceValues = store.expectChoices(values, rewardIndex);
+
+        model.getDatabase().execute(String.format("DELETE FROM %s WHERE %s = %s", model.getTableResults(), ENTRY_RES_PROP, id));
+        model.getDatabase().execute(String.format("DELETE FROM %s WHERE %s = %s", model.getTableTransResults(), ENTRY_RES_PROP, id));
+        String propertyID = String.valueOf(id);
+        try (BulkWriter toExecute = model.getDatabase().createBulkWriter(model.getTableResults(), ENTRY_RES_PROP, ENTRY_S_ID, ENTRY_RES_VALUE)) {
+            for (int i = 0; i < values.length; i++) {
+                if (!Double.isNaN(values[i])) {
+                    toExecute.addRow(propertyID, Long.toString(store.getStateId(i)), Double.toString(values[i]));
                 }
             }
-        } catch (IOException | PrismException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                if (limit) this.removeReachableTable(state_table);
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+        }
+        try (BulkWriter toExecute = model.getDatabase().createBulkWriter(model.getTableTransResults(), ENTRY_RES_PROP, ENTRY_T_ID, ENTRY_RES_VALUE)) {
+            for (int c = 0; c < choiceValues.length; c++) {
+                toExecute.addRow(propertyID, Long.toString(store.getChoiceId(c)), Double.toString(choiceValues[c]));
             }
         }
+        return true;
     }
 
-    private String createReachableTable() throws Exception {
-        Set<String> visited = new HashSet<>();
-        Set<String> visiting = new HashSet<>(model.getInitialStates());
-        String table_name = model.getTableStates() + "_reach";
-
-        Map<String, List<Transition>> outgoing = new HashMap<>();
-
-        for (Transition t : model.getAllTransitions()){
-            String s_id = t.getSource();
-            if (!outgoing.containsKey(s_id)){
-                outgoing.put(s_id, new ArrayList<>());
+    /**
+     * Store index of every reachable state of the symbolic model, in the order of the vectors of the symbolic engines.
+     * Computed once per graph, as it parses every state.
+     */
+    private int[] symbolicOrder(GraphStore store, prism.Model symbolic) {
+        ModelParser parser = model.getModelParser();
+        List<String> states = symbolic.getReachableStates().exportToStringList();
+        int[] order = new int[states.size()];
+        IntStream.range(0, order.length).parallel().forEach(k -> {
+            try {
+                order[k] = store.getStateIndex(parser.stateIdentifier(parser.parseState(parser.normalizeStateName(states.get(k)))));
+            } catch (PrismLangException e) {
+                throw new RuntimeException(e);
             }
-            outgoing.get(s_id).add(t);
-        }
-
+        });
+        return order;
+    }
 
-        model.getDatabase().execute(String.format("CREATE TABLE %s (%s INTEGER PRIMARY KEY NOT NULL, %s TEXT, %s BOOLEAN)", table_name, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT));
+    private static double toDouble(Object value) {
+        return value instanceof Boolean ? ((Boolean) value ? 1.0 : 0.0) : ((Number) value).doubleValue();
+    }
 
-        String stateInsertCall = String.format("INSERT INTO %s SELECT %s,%s,%s FROM %s WHERE %s = ?", table_name, ENTRY_S_ID, ENTRY_S_NAME, ENTRY_S_INIT, model.getTableStates(), ENTRY_S_ID);
+    /**
+     * Only computes the result of this property with the given PRISM instance, without storing anything
+     */
+    public Result check(Prism prism) throws PrismException {
+        return prism.modelCheck(propertiesFile, expression);
+    }
 
-        try(Batch toExecute = model.getDatabase().createBatch(stateInsertCall, 1)){
-            while(!visiting.isEmpty()){
-                Set<String> toVisit = new HashSet<>();
+    public VariableInfo modelCheck() throws PrismException {
+        return modelCheck(model.getModelChecker().getPrism());
+    }
 
-                for (String stateID : visiting){
-                    toExecute.addToBatch(String.valueOf(stateID));
+    /**
+     * Checks this property with the given PRISM instance, which has to hold the built model. The results are stored
+     * while holding the results lock of the model, so checks on other instances can run in parallel.
+     */
+    public abstract VariableInfo modelCheck(Prism prism) throws PrismException;
 
-                    //See all outgoing
-                    List<Transition> out = outgoing.get(stateID);
-                    for (Transition vert : out){
-                        if (vert.getScheduler().get(this.getName()) > 0){
-                            for (String reachable : vert.getProbabilityDistribution().keySet()){
-                                String r = reachable;
-                                if (!(visited.contains(r) | visiting.contains(r))){
-                                    toVisit.add(r);
-                                }
-                            }
-                        }
-                    }
-                }
+    public void printScheduler(String filename, boolean limit) {
+        printScheduler(filename, limit, SchedulerExport.Format.TEXT, false);
+    }
 
-                visited.addAll(visiting);
-                visiting = toVisit;
-            }
+    public void printScheduler(String filename, boolean limit, SchedulerExport.Format format, boolean gzip) {
+        try (SchedulerExport export = new SchedulerExport(new File(filename), format, gzip)) {
+            model.exportScheduler(this.getName(), export, limit);
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException(e);
         }
-
-        return table_name;
     }
 
-    private void removeReachableTable(String state_table) throws SQLException {
-        model.getDatabase().execute(String.format("DROP TABLE IF EXISTS %s", state_table));
-    }
 }
@@ -6,4 +6,15 @@ public interface Criteria {
 
     public static Pattern CriteriaPattern = Pattern.compile("^(SORT|FILTER)\\s+(.*?)( ASC| DESC)?\\s*$");
     public String getOrder();
+
+    /**
+     * Column of the transition view the criteria is evaluated on
+     */
+    public String getCollumn();
+
+    /**
+     * Compares two choices by their values in the column, negative if the first one comes first in the order. Missing
+     * values are NaN and ordered like NULL in the database, above all other values.
+     */
+    public int compare(double first, double second);
 }
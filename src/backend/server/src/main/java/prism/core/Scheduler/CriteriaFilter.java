@@ -22,4 +22,26 @@ public class CriteriaFilter implements Criteria{
         }
         throw new RuntimeException("Unsupported limit type");
     }
+
+    public String getCollumn(){
+        return collumn;
+    }
+
+    public int compare(double first, double second){
+        // Choices within the limit come first, as the condition is sorted descending
+        return Double.compare(satisfies(second), satisfies(first));
+    }
+
+    private double satisfies(double value){
+        if (Double.isNaN(value)){
+            return Double.NaN;
+        }
+        switch (limitType){
+            case UPPER:
+                return value > limitValue ? 1 : 0;
+            case LOWER:
+                return value < limitValue ? 1 : 0;
+        }
+        throw new RuntimeException("Unsupported limit type");
+    }
 }
@@ -14,4 +14,12 @@ public class CriteriaSort implements Criteria{
     public String getOrder(){
         return String.format("%s %s", collumn, direction);
     }
+
+    public String getCollumn(){
+        return collumn;
+    }
+
+    public int compare(double first, double second){
+        return direction == Direction.ASC ? Double.compare(first, second) : Double.compare(second, first);
+    }
 }
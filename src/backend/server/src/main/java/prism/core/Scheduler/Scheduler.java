@@ -5,7 +5,10 @@ import parser.VarList;
 import parser.ast.ModulesFile;
 import prism.Pair;
 import prism.PrismException;
+import prism.core.GraphStore;
 import prism.core.Model;
+import prism.core.Utility.Timer;
+import prism.db.BulkWriter;
 import prism.db.PersistentQuery;
 import prism.db.mappers.ArrayMapper;
 import prism.db.mappers.PairMapper;
@@ -34,7 +37,7 @@ public class Scheduler {
     }
 
     public static Scheduler createScheduler(Model model, String name, int id, List<Criteria> criterias) throws SQLException {
-        String table = model.getTableTrans();
+        String choicesTable = model.getTableChoices();
         String schedTable = model.getTableSched();
 
         Optional<String> entry = model.getDatabase().executeLookupQuery(String.format("SELECT %s FROM %s WHERE %s = '%s'", ENTRY_SCH_NAME, schedTable, ENTRY_SCH_ID, id), String.class);
@@ -57,19 +60,44 @@ public class Scheduler {
                 order.append(", ").append(criterias.get(i).getOrder());
             }
         }
-        String scheduler_collumn = ENTRY_SCHED + id;
-
-        String creationQuery = String.format("ALTER TABLE %s ADD COLUMN %s INTEGER NOT NULL DEFAULT 0", table, scheduler_collumn);
-        String updateQuery = String.format("WITH cte AS (SELECT *, dense_rank() OVER(PARTITION BY %s ORDER BY %s) AS r FROM %s) UPDATE %s SET %s=1 WHERE %s IN (SELECT %s FROM cte WHERE r=1)", partition, order, table, table, scheduler_collumn, ENTRY_T_ID, ENTRY_T_ID);
+        // Choices left over from an attempt that did not finish
+        String clearQuery = String.format("DELETE FROM %s WHERE %s = %s", choicesTable, ENTRY_CH_SCHED, id);
+        // Property values used for sorting are only visible through the view
+        String insertQuery = String.format("INSERT INTO %s (%s, %s) SELECT %s, %s FROM (SELECT %s, dense_rank() OVER(PARTITION BY %s ORDER BY %s) AS r FROM %s) ranked WHERE r=1", choicesTable, ENTRY_CH_SCHED, ENTRY_T_ID, id, ENTRY_T_ID, ENTRY_T_ID, partition, order, model.getViewTrans());
         String infoQuery = String.format("INSERT INTO %s (%s, %s) VALUES(%s, '%s')", schedTable, ENTRY_SCH_ID, ENTRY_SCH_NAME, id, name);
 
-        model.getDatabase().execute(creationQuery);
-        model.getDatabase().execute(updateQuery);
+        try (Timer time = new Timer(String.format("Create scheduler %s", name), model.getLog())) {
+            Optional<GraphStore> store = model.getResultStore();
+            BitSet chosen = store.map(s -> SchedulerEngine.choose(s, criterias)).orElse(null);
+            model.getDatabase().execute(clearQuery);
+            if (chosen != null) {
+                storeChoices(model, store.get(), id, chosen);
+            } else {
+                model.getDatabase().execute(insertQuery);
+            }
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
         model.getDatabase().execute(infoQuery);
+        model.refreshViews();
 
         return new Scheduler(name, id, model);
     }
 
+    /**
+     * Bulk loads the identifiers of the chosen choices into the choice table, keyed by the scheduler
+     */
+    private static void storeChoices(Model model, GraphStore store, int id, BitSet chosen) throws SQLException {
+        String scheduler = String.valueOf(id);
+        try (BulkWriter writer = model.getDatabase().createBulkWriter(model.getTableChoices(), ENTRY_CH_SCHED, ENTRY_T_ID)) {
+            for (int c = chosen.nextSetBit(0); c >= 0; c = chosen.nextSetBit(c + 1)) {
+                writer.addRow(scheduler, Long.toString(store.getChoiceId(c)));
+            }
+        }
+    }
+
     public static Scheduler loadScheduler(String name, int id, Model parent){
         return new Scheduler(name, id, parent);
     }
@@ -117,8 +145,9 @@ public class Scheduler {
             String transitionQuery = String.format(
                         "SELECT %s, array_agg(%s) AS actions \n" +
                         "FROM %s\n" +
-                        "JOIN %s ON %s = %s \n" +
-                        "WHERE %s = 1 GROUP BY %s\n" +
+                        "JOIN %s t ON %s = %s \n" +
+                        "JOIN %s c ON c.%s = t.%s \n" +
+                        "WHERE c.%s = %s GROUP BY %s\n" +
                         "ORDER BY %s"
                     , ENTRY_S_NAME
                     , ENTRY_T_ACT
@@ -126,7 +155,11 @@ public class Scheduler {
                     , parent.getTableTrans()
                     , ENTRY_S_ID
                     , ENTRY_T_OUT
-                    , this.getCollumnName()
+                    , parent.getTableChoices()
+                    , ENTRY_T_ID
+                    , ENTRY_T_ID
+                    , ENTRY_CH_SCHED
+                    , this.id
                     , ENTRY_S_NAME
                     , ENTRY_S_NAME);
 
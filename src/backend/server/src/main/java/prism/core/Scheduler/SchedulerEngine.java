@@ -0,0 +1,87 @@
+package prism.core.Scheduler;
+
+import prism.core.GraphStore;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Chooses the choices of a scheduler on the in-memory graph. Every state keeps all of its choices that come first in the
+ * order of the criteria, ties included, which is the first dense rank per origin of the database query. States are
+ * independent, so they are evaluated in parallel in one pass over their choices.
+ */
+public class SchedulerEngine {
+
+    private SchedulerEngine() {
+    }
+
+    /**
+     * Choices of the scheduler, indexed like the choices of the store. Returns null if a criteria uses a column that is
+     * not held in memory, the scheduler then has to be computed by the database.
+     */
+    public static BitSet choose(GraphStore store, List<Criteria> criterias) {
+        ChoiceOrder order = order(store, criterias);
+        if (order == null) {
+            return null;
+        }
+        boolean[] chosen = new boolean[store.getNumChoices()];
+        IntStream.range(0, store.getNumStates()).parallel().forEach(i -> {
+            int start = store.getChoiceStart(i);
+            int end = store.getChoiceEnd(i);
+            int best = start;
+            for (int c = start + 1; c < end; c++) {
+                if (order.compare(c, best) < 0) {
+                    best = c;
+                }
+            }
+            for (int c = start; c < end; c++) {
+                chosen[c] = order.compare(c, best) == 0;
+            }
+        });
+        BitSet choices = new BitSet(chosen.length);
+        for (int c = 0; c < chosen.length; c++) {
+            if (chosen[c]) choices.set(c);
+        }
+        return choices;
+    }
+
+    private interface ChoiceOrder {
+        int compare(int first, int second);
+    }
+
+    private static ChoiceOrder order(GraphStore store, List<Criteria> criterias) {
+        if (criterias == null || criterias.isEmpty()) {
+            // Ordered by the name of the action, like the database does without criteria
+            Integer[] sorted = new Integer[store.getNumActions()];
+            Arrays.setAll(sorted, a -> a);
+            Arrays.sort(sorted, Comparator.comparing(store::getActionName));
+            int[] rank = new int[sorted.length];
+            for (int k = 0; k < sorted.length; k++) {
+                boolean tied = k > 0 && store.getActionName(sorted[k]).equals(store.getActionName(sorted[k - 1]));
+                rank[sorted[k]] = tied ? rank[sorted[k - 1]] : k;
+            }
+            return (first, second) -> Integer.compare(rank[store.getAction(first)], rank[store.getAction(second)]);
+        }
+        Criteria[] order = criterias.toArray(new Criteria[0]);
+        IntToDoubleFunction[] columns = new IntToDoubleFunction[order.length];
+        for (int k = 0; k < order.length; k++) {
+            columns[k] = store.getChoiceColumn(order[k].getCollumn());
+            if (columns[k] == null) {
+                return null;
+            }
+        }
+        return (first, second) -> {
+            for (int k = 0; k < order.length; k++) {
+                int compared = order[k].compare(columns[k].applyAsDouble(first), columns[k].applyAsDouble(second));
+                if (compared != 0) {
+                    return compared;
+                }
+            }
+            return 0;
+        };
+    }
+}
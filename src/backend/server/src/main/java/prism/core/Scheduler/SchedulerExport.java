@@ -0,0 +1,163 @@
+package prism.core.Scheduler;
+
+import parser.VarList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the choices of a scheduler state by state into a file, optionally compressed with gzip. Rows are written as
+ * they are given, callers pass them sorted by state identifier, which sorts them by the values of the variables.
+ *
+ * TEXT starts with the line "vars;name[low..high];...;actions;[action];...;states" followed by one line
+ * "state_name;action;..." per state.
+ *
+ * BINARY is little endian. It starts with the bytes "PMCS" and the format version (int32), the variables as count and
+ * (name, low, high) and the number of states (int64). Each row is the state identifier (int64), the number of actions
+ * (int32) and their numbers (int32). An action is numbered by its first occurrence, the number is then directly followed
+ * by its name. The file ends with the identifier -1. Strings are an int32 byte length followed by UTF-8 bytes.
+ */
+public class SchedulerExport implements Closeable {
+
+    public enum Format {
+        TEXT("csv"), BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String name) {
+            try {
+                return Format.valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Unknown scheduler format %s", name));
+            }
+        }
+    }
+
+    private static final int FORMAT = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Format format;
+    private final OutputStream out;
+    private final Writer text;
+    private final Map<String, Integer> actions = new HashMap<>();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    public SchedulerExport(File file, Format format, boolean gzip) throws IOException {
+        this.format = format;
+        OutputStream stream = new FileOutputStream(file);
+        this.out = gzip ? new GZIPOutputStream(stream, BUFFER_SIZE) : new BufferedOutputStream(stream, BUFFER_SIZE);
+        this.text = format == Format.TEXT ? new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE) : null;
+    }
+
+    public void header(VarList varList, List<String> synchs, long size) throws IOException {
+        if (format == Format.TEXT) {
+            text.write(String.valueOf(varList.getNumVars()));
+            text.write(';');
+            for (int i = 0; i < varList.getNumVars(); i++) {
+                text.write(String.format("%s[%s..%s];", varList.getName(i), varList.getLow(i), varList.getHigh(i)));
+            }
+            text.write(String.valueOf(synchs.size()));
+            text.write(';');
+            text.write(synchs.stream().map(s -> "[" + s + "]").collect(Collectors.joining(";")));
+            text.write(';');
+            text.write(String.valueOf(size));
+            text.write('\n');
+            return;
+        }
+        ensure(12);
+        buffer.put("PMCS".getBytes(StandardCharsets.US_ASCII)).putInt(FORMAT).putInt(varList.getNumVars());
+        for (int i = 0; i < varList.getNumVars(); i++) {
+            putString(varList.getName(i));
+            ensure(8);
+            buffer.putInt(varList.getLow(i)).putInt(varList.getHigh(i));
+        }
+        ensure(8);
+        buffer.putLong(size);
+    }
+
+    /**
+     * Writes the actions chosen in a state. Binary rows need identifiers that fit into a long.
+     */
+    public void row(String stateID, String stateName, List<String> chosen) throws IOException {
+        if (format == Format.TEXT) {
+            text.write(stateName);
+            for (String action : chosen) {
+                text.write(';');
+                text.write(action);
+            }
+            text.write('\n');
+            return;
+        }
+        long id;
+        try {
+            id = Long.parseLong(stateID);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("State %s has no numeric identifier", stateID));
+        }
+        ensure(12);
+        buffer.putLong(id).putInt(chosen.size());
+        for (String action : chosen) {
+            Integer number = actions.get(action);
+            ensure(4);
+            if (number != null) {
+                buffer.putInt(number);
+            } else {
+                buffer.putInt(actions.size());
+                actions.put(action, actions.size());
+                putString(action);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == Format.TEXT) {
+                text.flush();
+            } else {
+                ensure(8);
+                buffer.putLong(-1);
+                flush();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        flush();
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
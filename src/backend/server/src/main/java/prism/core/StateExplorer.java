@@ -0,0 +1,187 @@
+package prism.core;
+
+import prism.Evaluator;
+import prism.api.Transition;
+import prism.core.Utility.ConcurrentLongHashSet;
+import prism.core.Utility.Prism.Updater;
+import prism.core.Utility.StateEncoder;
+import simulator.Choice;
+import simulator.TransitionList;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Explores the state space of a model that is not built yet on several threads. Each layer of the breadth first search
+ * is split into tasks of a fork join pool, so idle workers steal the remaining work of busy ones. Every worker computes
+ * successors with its own Updater, discovered states are shared in a concurrent set of their encodings.
+ */
+public class StateExplorer {
+
+    // Number of states a task handles without splitting further
+    private static final int GRAIN = 64;
+
+    // Idle workers are kept that long, so the next search reuses their Updaters instead of creating new ones
+    private static final long KEEP_ALIVE_MINUTES = 60;
+
+    // Shared by the explorers of all models, which all use the configured number of build threads. Its workers are
+    // daemon threads, so it lives as long as the server and needs no shutdown.
+    private static volatile ForkJoinPool sharedPool;
+
+    private final ModelParser parser;
+
+    private final ForkJoinPool pool;
+
+    public StateExplorer(ModelParser parser, int numThreads) {
+        this.parser = parser;
+        this.pool = sharedPool(Math.max(1, numThreads));
+    }
+
+    private static ForkJoinPool sharedPool(int numThreads) {
+        if (sharedPool == null) {
+            synchronized (StateExplorer.class) {
+                if (sharedPool == null) {
+                    sharedPool = new ForkJoinPool(numThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                            numThreads, numThreads + 256, 1, null, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+                }
+            }
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Breadth first search from the given states, expanding at most maxStates states up to depth maxDepth (0 for no
+     * limit). States beyond the limits are still reported, but their transitions are not.
+     */
+    public void explore(List<parser.State> initials, int maxStates, int maxDepth, Consumer<prism.api.State> stateConsumer, Consumer<Transition> transitionConsumer) {
+        StateEncoder encoder = parser.getStateEncoder();
+        Predicate<parser.State> visited;
+        if (encoder.isCompact()) {
+            ConcurrentLongHashSet set = new ConcurrentLongHashSet(pool.getParallelism());
+            visited = state -> set.add(encoder.encode(state));
+        } else {
+            Set<parser.State> set = ConcurrentHashMap.newKeySet();
+            visited = set::add;
+        }
+
+        Output output = new Output(stateConsumer, transitionConsumer);
+        AtomicInteger budget = maxStates > 0 ? new AtomicInteger(maxStates) : null;
+
+        List<parser.State> layer = new ArrayList<>();
+        for (parser.State initial : initials) {
+            if (visited.test(initial)) {
+                layer.add(initial);
+            }
+        }
+
+        int depth = 0;
+        while (!layer.isEmpty()) {
+            boolean expand = maxDepth <= 0 || depth < maxDepth;
+            layer = pool.invoke(new ExpandTask(layer, 0, layer.size(), expand, false, visited, budget, output));
+            depth++;
+        }
+    }
+
+    /**
+     * Expands each of the given states once, reporting the states, their transitions and all of their successors
+     */
+    public void expand(List<parser.State> states, Consumer<prism.api.State> stateConsumer, Consumer<Transition> transitionConsumer) {
+        if (states.isEmpty()) {
+            return;
+        }
+        pool.invoke(new ExpandTask(states, 0, states.size(), true, true, state -> false, null, new Output(stateConsumer, transitionConsumer)));
+    }
+
+    private static class Output {
+        private final Consumer<prism.api.State> stateConsumer;
+        private final Consumer<Transition> transitionConsumer;
+
+        Output(Consumer<prism.api.State> stateConsumer, Consumer<Transition> transitionConsumer) {
+            this.stateConsumer = stateConsumer;
+            this.transitionConsumer = transitionConsumer;
+        }
+
+        synchronized void accept(List<prism.api.State> states, List<Transition> transitions) {
+            states.forEach(stateConsumer);
+            transitions.forEach(transitionConsumer);
+        }
+    }
+
+    private class ExpandTask extends RecursiveTask<List<parser.State>> {
+        private final List<parser.State> states;
+        private final int from;
+        private final int to;
+        private final boolean expand;
+        private final boolean reportTargets;
+        private final Predicate<parser.State> visited;
+        private final AtomicInteger budget;
+        private final Output output;
+
+        ExpandTask(List<parser.State> states, int from, int to, boolean expand, boolean reportTargets, Predicate<parser.State> visited, AtomicInteger budget, Output output) {
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.expand = expand;
+            this.reportTargets = reportTargets;
+            this.visited = visited;
+            this.budget = budget;
+            this.output = output;
+        }
+
+        @Override
+        protected List<parser.State> compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                ExpandTask left = new ExpandTask(states, from, middle, expand, reportTargets, visited, budget, output);
+                left.fork();
+                List<parser.State> right = new ExpandTask(states, middle, to, expand, reportTargets, visited, budget, output).compute();
+                List<parser.State> discovered = left.join();
+                discovered.addAll(right);
+                return discovered;
+            }
+
+            Updater updater = parser.getUpdater();
+            List<prism.api.State> outStates = new ArrayList<>();
+            List<Transition> transitions = new ArrayList<>();
+            List<parser.State> discovered = new ArrayList<>();
+            try {
+                for (int s = from; s < to; s++) {
+                    parser.State state = states.get(s);
+                    outStates.add(parser.convertApiState(state, updater));
+                    if (!expand || (budget != null && budget.getAndDecrement() <= 0)) {
+                        continue;
+                    }
+
+                    TransitionList<Double> transitionList = new TransitionList<>(Evaluator.forDouble());
+                    updater.calculateTransitions(state, transitionList);
+                    for (int i = 0; i < transitionList.getNumChoices(); i++) {
+                        Choice<Double> choice = transitionList.getChoice(i);
+                        Map<parser.State, Double> probabilities = new HashMap<>();
+
+                        for (int j = 0; j < choice.size(); j++) {
+                            parser.State target = choice.computeTarget(j, state, parser.getVarList());
+                            if (reportTargets) {
+                                outStates.add(parser.convertApiState(target, updater));
+                            } else if (visited.test(target)) {
+                                discovered.add(target);
+                            }
+                            probabilities.merge(target, choice.getProbability(j), Double::sum);
+                        }
+
+                        transitions.add(parser.convertApiTransition(state, i, choice, probabilities, updater));
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            output.accept(outStates, transitions);
+            return discovered;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package prism.core.Utility;
 
 import parser.ast.Expression;
-import parser.ast.ModulesFile;
 import parser.type.Type;
 import parser.type.TypeBool;
 import parser.type.TypeDouble;
@@ -114,15 +113,7 @@ public class BaseState {
 
     private Expression parseExpression(String expression) throws PrismLangException
     {
-        ModulesFile model = parent.getModulesFile();
-        Expression expr = parent.getModelParser().parseSingleExpressionString(expression);
-        expr = (Expression) expr.findAllFormulas(model.getFormulaList());
-        expr = (Expression) expr.expandFormulas(model.getFormulaList(), false);
-        expr = (Expression) expr.findAllConstants(model.getConstantList());
-        expr = (Expression) expr.expandConstants(model.getConstantList());
-        expr = (Expression) expr.findAllVars(model.getVarNames(), model.getVarTypes());
-        expr.typeCheck();
-        return expr;
+        return parent.getModelParser().parseStateExpression(expression);
     }
 
     public List<String> getLabels() throws Exception {
@@ -0,0 +1,52 @@
+package prism.core.Utility;
+
+/**
+ * Thread-safe set of long values, striped over several LongHashSets that are locked independently.
+ */
+public class ConcurrentLongHashSet {
+
+    private final LongHashSet[] stripes;
+
+    private final int mask;
+
+    public ConcurrentLongHashSet(int concurrency) {
+        int numStripes = Integer.highestOneBit(Math.max(1, concurrency) * 4 - 1) << 1;
+        this.stripes = new LongHashSet[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new LongHashSet();
+        }
+        this.mask = numStripes - 1;
+    }
+
+    private LongHashSet stripe(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return stripes[(int) (h >>> 40) & mask];
+    }
+
+    /**
+     * Adds the key and returns whether it was not contained before
+     */
+    public boolean add(long key) {
+        LongHashSet stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.add(key);
+        }
+    }
+
+    public boolean contains(long key) {
+        LongHashSet stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.contains(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LongHashSet stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,271 @@
+package prism.core.Utility;
+
+import parser.VarList;
+import parser.ast.Module;
+import parser.ast.ModulesFile;
+
+import java.math.BigInteger;
+
+/**
+ * Mixed-radix encoding of variable valuations into state identifiers.
+ *
+ * If the number of possible states fits into a long, identifiers are computed with precomputed long strides without
+ * any allocation. Only for oversized variable spaces the encoder falls back to BigInteger arithmetic.
+ */
+public class StateEncoder {
+
+    private static final int TYPE_INT = 0;
+    private static final int TYPE_BOOL = 1;
+    private static final int TYPE_UNKNOWN = -1;
+
+    private final int numVars;
+
+    // All arrays are indexed by the position of the variable in the VarList
+    private final int[] low;
+    private final int[] high;
+    private final int[] range;
+    private final int[] position;
+    private final int[] type;
+    private final String[] typeName;
+
+    private final long[] strides;
+    private final BigInteger[] bigStrides;
+
+    private final BigInteger maxStateIndex;
+    private final BigInteger maxChoices;
+    private final long maxStateIndexLong;
+    private final boolean compact;
+    private final boolean decodable;
+
+    public StateEncoder(ModulesFile modulesFile, VarList varList) {
+        this.numVars = varList.getNumVars();
+        this.low = new int[numVars];
+        this.high = new int[numVars];
+        this.range = new int[numVars];
+        this.position = new int[numVars];
+        this.type = new int[numVars];
+        this.typeName = new String[numVars];
+        this.strides = new long[numVars];
+        this.bigStrides = new BigInteger[numVars];
+
+        // The last variable is the least significant digit
+        boolean decodable = true;
+        BigInteger prevRange = BigInteger.ONE;
+        for (int i = numVars - 1; i >= 0; i--) {
+            low[i] = varList.getLow(i);
+            high[i] = varList.getHigh(i);
+            range[i] = (high[i] - low[i]) + 1;
+            position[i] = modulesFile.getVarIndex(varList.getName(i));
+            typeName[i] = varList.getType(i).getTypeString();
+            switch (typeName[i]) {
+                case "int":
+                    type[i] = TYPE_INT;
+                    break;
+                case "bool":
+                    type[i] = TYPE_BOOL;
+                    break;
+                default:
+                    type[i] = TYPE_UNKNOWN;
+                    decodable = false;
+            }
+            bigStrides[i] = prevRange;
+            prevRange = prevRange.multiply(BigInteger.valueOf(range[i]));
+        }
+        this.maxStateIndex = prevRange;
+        this.maxChoices = maxChoices(modulesFile);
+        this.decodable = decodable;
+        this.compact = maxStateIndex.bitLength() < Long.SIZE;
+        this.maxStateIndexLong = compact ? maxStateIndex.longValue() : -1;
+        if (compact) {
+            for (int i = 0; i < numVars; i++) {
+                strides[i] = bigStrides[i].longValueExact();
+            }
+        }
+    }
+
+    /**
+     * Whether all state identifiers fit into a long
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Whether all variables can be restored from a state identifier
+     */
+    public boolean isDecodable() {
+        return decodable;
+    }
+
+    /**
+     * Whether the identifiers of all transitions fit into a long
+     */
+    public boolean transitionsFitLong() {
+        return maxStateIndex.multiply(maxChoices).bitLength() < Long.SIZE;
+    }
+
+    /**
+     * Upper bound of the choices of a state. Every unlabelled command is a choice of its own, every action one per
+     * combination of the commands of the modules synchronising on it.
+     */
+    private static BigInteger maxChoices(ModulesFile modulesFile) {
+        int numSynchs = modulesFile.getNumSynchs();
+        BigInteger[] combinations = new BigInteger[numSynchs + 1];
+        long unlabelled = 0;
+        for (int m = 0; m < modulesFile.getNumModules(); m++) {
+            Module module = modulesFile.getModule(m);
+            long[] commands = new long[numSynchs + 1];
+            for (int c = 0; c < module.getNumCommands(); c++) {
+                commands[module.getCommand(c).getSynchIndex()]++;
+            }
+            unlabelled += commands[0];
+            for (int j = 1; j <= numSynchs; j++) {
+                if (commands[j] > 0) {
+                    BigInteger previous = combinations[j] == null ? BigInteger.ONE : combinations[j];
+                    combinations[j] = previous.multiply(BigInteger.valueOf(commands[j]));
+                }
+            }
+        }
+        BigInteger choices = BigInteger.valueOf(unlabelled);
+        for (int j = 1; j <= numSynchs; j++) {
+            if (combinations[j] != null) {
+                choices = choices.add(combinations[j]);
+            }
+        }
+        return choices.max(BigInteger.ONE);
+    }
+
+    public BigInteger getMaxStateIndex() {
+        return maxStateIndex;
+    }
+
+    private int digit(parser.State state, int i) {
+        Object value = state.varValues[position[i]];
+        switch (type[i]) {
+            case TYPE_INT:
+                return (int) value - low[i];
+            case TYPE_BOOL:
+                return (boolean) value ? 1 : 0;
+            default:
+                throw new RuntimeException("Unknown type: " + typeName[i]);
+        }
+    }
+
+    private int digit(int[] values, int i) {
+        int value = values[position[i]];
+        if (value < low[i] || value > high[i]) {
+            throw new RuntimeException("Value " + value + " is out of range");
+        }
+        return value - low[i];
+    }
+
+    public long encode(parser.State state) {
+        long index = 0;
+        for (int i = 0; i < numVars; i++) {
+            index += strides[i] * digit(state, i);
+        }
+        return index;
+    }
+
+    public long encode(int[] values) {
+        long index = 0;
+        for (int i = 0; i < numVars; i++) {
+            index += strides[i] * digit(values, i);
+        }
+        return index;
+    }
+
+    public BigInteger encodeBig(parser.State state) {
+        BigInteger index = BigInteger.ZERO;
+        for (int i = 0; i < numVars; i++) {
+            index = index.add(bigStrides[i].multiply(BigInteger.valueOf(digit(state, i))));
+        }
+        return index;
+    }
+
+    public BigInteger encodeBig(int[] values) {
+        BigInteger index = BigInteger.ZERO;
+        for (int i = 0; i < numVars; i++) {
+            index = index.add(bigStrides[i].multiply(BigInteger.valueOf(digit(values, i))));
+        }
+        return index;
+    }
+
+    /**
+     * Textual identifier of a state, as stored in the database and used by the API
+     */
+    public String identifier(parser.State state) {
+        return compact ? Long.toString(encode(state)) : encodeBig(state).toString();
+    }
+
+    public String identifier(int[] values) {
+        return compact ? Long.toString(encode(values)) : encodeBig(values).toString();
+    }
+
+    /**
+     * Textual identifier of the choice-th outgoing transition of a state
+     */
+    public String transitionIdentifier(parser.State state, int choice) {
+        if (compact) {
+            long id = encode(state);
+            try {
+                return Long.toString(transitionId(id, choice));
+            } catch (ArithmeticException e) {
+                return transitionIdBig(BigInteger.valueOf(id), choice).toString();
+            }
+        }
+        return transitionIdBig(encodeBig(state), choice).toString();
+    }
+
+    /**
+     * Identifier of the choice-th outgoing transition of a state. Throws an ArithmeticException if it does not fit into
+     * a long.
+     */
+    public long transitionId(long stateId, int choice) {
+        return Math.addExact(stateId, Math.multiplyExact(maxStateIndexLong, choice));
+    }
+
+    public BigInteger transitionIdBig(BigInteger stateId, int choice) {
+        return stateId.add(maxStateIndex.multiply(BigInteger.valueOf(choice)));
+    }
+
+    /**
+     * Parses a textual identifier. Only valid if the encoder is compact.
+     */
+    public long parse(String identifier) {
+        return Long.parseLong(identifier);
+    }
+
+    public parser.State decode(long identifier) {
+        parser.State state = new parser.State(numVars);
+        for (int i = 0; i < numVars; i++) {
+            set(state, i, (int) ((identifier / strides[i]) % range[i]));
+        }
+        return state;
+    }
+
+    public parser.State decode(BigInteger identifier) {
+        parser.State state = new parser.State(numVars);
+        for (int i = 0; i < numVars; i++) {
+            set(state, i, identifier.divide(bigStrides[i]).mod(BigInteger.valueOf(range[i])).intValue());
+        }
+        return state;
+    }
+
+    public parser.State decode(String identifier) {
+        return compact ? decode(parse(identifier)) : decode(new BigInteger(identifier));
+    }
+
+    private void set(parser.State state, int i, int digit) {
+        switch (type[i]) {
+            case TYPE_INT:
+                state.setValue(position[i], digit + low[i]);
+                break;
+            case TYPE_BOOL:
+                state.setValue(position[i], digit > 0);
+                break;
+            default:
+                throw new RuntimeException("Unknown type: " + typeName[i]);
+        }
+    }
+}
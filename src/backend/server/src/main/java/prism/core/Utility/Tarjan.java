@@ -0,0 +1,84 @@
+package prism.core.Utility;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Strongly connected components of a graph in compressed sparse row form, computed by Tarjan's algorithm with
+ * explicit stacks instead of recursion, so that arbitrarily long paths cannot overflow the call stack.
+ */
+public class Tarjan {
+
+    private Tarjan() {
+    }
+
+    /**
+     * Component of every node, numbered in the order the components are completed. This is a reverse topological
+     * order: edges only lead from a component to components with the same or a lower number.
+     *
+     * @param numNodes number of nodes
+     * @param start index of the first successor of a node
+     * @param end index behind the last successor of a node
+     * @param successor node at a successor index
+     */
+    public static int[] components(int numNodes, IntUnaryOperator start, IntUnaryOperator end, IntUnaryOperator successor) {
+        int[] index = new int[numNodes];
+        int[] low = new int[numNodes];
+        int[] component = new int[numNodes];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+
+        // Nodes of unfinished components, and the path of the depth first search with the next successor to visit
+        int[] stack = new int[numNodes];
+        int[] path = new int[numNodes];
+        int[] next = new int[numNodes];
+        int stackSize = 0;
+        int pathSize = 0;
+        int counter = 0;
+        int numComponents = 0;
+
+        for (int root = 0; root < numNodes; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            path[pathSize] = root;
+            next[pathSize++] = start.applyAsInt(root);
+
+            while (pathSize > 0) {
+                int v = path[pathSize - 1];
+                int k = next[pathSize - 1];
+                if (k < end.applyAsInt(v)) {
+                    next[pathSize - 1] = k + 1;
+                    int w = successor.applyAsInt(k);
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[stackSize++] = w;
+                        path[pathSize] = w;
+                        next[pathSize++] = start.applyAsInt(w);
+                    } else if (component[w] < 0) {
+                        // w is still on the stack
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                pathSize--;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        component[w] = numComponents;
+                    } while (w != v);
+                    numComponents++;
+                }
+                if (pathSize > 0) {
+                    int u = path[pathSize - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        return component;
+    }
+}
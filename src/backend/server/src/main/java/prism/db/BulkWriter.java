@@ -0,0 +1,124 @@
+package prism.db;
+
+import org.jdbi.v3.core.Handle;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes large amounts of rows into a single table. Counterpart to Batch for inserts where the fastest loading mechanism
+ * of the connected database should be used. Instances are created by the Database depending on its dialect.
+ */
+public abstract class BulkWriter implements AutoCloseable {
+
+    Handle handle;
+
+    String table;
+
+    List<String> columns;
+
+    List<String> finish;
+
+    long rows;
+
+    long start;
+
+    boolean failed = false;
+
+    boolean debug;
+
+    /**
+     * Writer whose connection and transaction this one shares, null if it has its own
+     */
+    BulkWriter owner;
+
+    protected BulkWriter(Handle handle, String table, List<String> columns, List<String> prepare, List<String> finish, boolean debug) {
+        this.handle = handle;
+        this.table = table;
+        this.columns = columns;
+        this.finish = finish;
+        this.debug = debug;
+        this.rows = 0;
+        this.start = System.currentTimeMillis();
+        for (String statement : prepare) {
+            handle.execute(statement);
+        }
+    }
+
+    protected BulkWriter(BulkWriter owner, String table, List<String> columns, boolean debug) {
+        this(owner.handle, table, columns, Collections.emptyList(), Collections.emptyList(), debug);
+        this.owner = owner;
+    }
+
+    public void addRow(String ... values) throws SQLException {
+        if (values.length != columns.size()){
+            throw new SQLException("Wrong number of arguments");
+        }
+        try {
+            write(values);
+        } catch (SQLException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+        rows++;
+    }
+
+    protected abstract void write(String[] values) throws SQLException;
+
+    /**
+     * Makes all written rows visible in the table
+     */
+    protected abstract void complete() throws SQLException;
+
+    /**
+     * Discards all rows written so far
+     */
+    protected abstract void abort();
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (failed) {
+                fail();
+                return;
+            }
+            complete();
+            for (String statement : finish) {
+                handle.execute(statement);
+            }
+            if (owner == null) {
+                commit();
+            }
+            if (debug) {
+                long time = System.currentTimeMillis() - start;
+                System.out.printf("%s: wrote %s rows into %s in %s ms%n", getClass().getSimpleName(), rows, table, time);
+            }
+        } catch (SQLException e) {
+            fail();
+            throw new RuntimeException(e);
+        } finally {
+            if (owner == null) {
+                handle.close();
+            }
+        }
+    }
+
+    /**
+     * Discards the rows, a writer sharing the transaction of another leaves that to the owner
+     */
+    private void fail() {
+        if (owner == null) {
+            abort();
+        } else {
+            owner.failed = true;
+        }
+    }
+
+    protected void commit() {
+    }
+}
@@ -0,0 +1,95 @@
+package prism.db;
+
+import org.jdbi.v3.core.Handle;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * BulkWriter streaming all rows into a single COPY ... FROM STDIN of PostgreSQL.
+ */
+public class CopyBulkWriter extends BulkWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final CopyIn copy;
+
+    private final StringBuilder buffer;
+
+    protected CopyBulkWriter(Handle handle, String table, List<String> columns, List<String> prepare, List<String> finish, boolean debug) throws SQLException {
+        super(handle, table, columns, prepare, finish, debug);
+        this.buffer = new StringBuilder(BUFFER_SIZE + 1024);
+        PGConnection connection = handle.getConnection().unwrap(PGConnection.class);
+        this.copy = connection.getCopyAPI().copyIn(String.format("COPY %s (%s) FROM STDIN", table, String.join(",", columns)));
+    }
+
+    @Override
+    protected void write(String[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+            escape(values[i]);
+        }
+        buffer.append('\n');
+        if (buffer.length() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    // Text format of COPY: backslash escapes for the delimiters, \N for null
+    private void escape(String value) {
+        if (value == null) {
+            buffer.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                default:
+                    buffer.append(c);
+            }
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    protected void complete() throws SQLException {
+        flush();
+        copy.endCopy();
+    }
+
+    @Override
+    protected void abort() {
+        try {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.jdbi.v3.core.statement.PreparedBatch;
 import prism.server.TaskManager;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,10 +19,15 @@ import java.util.Optional;
  */
 public class Database{
 
+    // Rows fetched at once by cursors streaming large tables
+    public static final int FETCH_SIZE = 10000;
+
     protected Jdbi jdbi;
 
     private final boolean debug;
 
+    private Boolean postgres = null;
+
     public Database(Jdbi jdbi, boolean debug){
         this.jdbi = jdbi;
         this.debug = debug;
@@ -68,6 +75,23 @@ public class Database{
         }
     }
 
+    public void executeTransaction(List<String> qrys) {
+        executeTransaction(qrys, debug);
+    }
+
+    public void executeTransaction(List<String> qrys, boolean debug) {
+        try(Handle handle = jdbi.open()){
+            handle.useTransaction(h -> {
+                for (String qry : qrys){
+                    if (debug){
+                        System.out.println("EXECUTE: " + qry);
+                    }
+                    h.execute(qry);
+                }
+            });
+        }
+    }
+
     public void insertBatch(String head, List<String> ... collumns) {
         insertBatch(head, debug, collumns);
     }
@@ -101,6 +125,54 @@ public class Database{
         return new prism.db.Batch(h, statement, arguments, getMaxBatchSize(), debug);
     }
 
+    /**
+     * Opens a writer loading rows into the given columns of a table. Uses COPY on PostgreSQL and prepared batches in a
+     * single transaction otherwise.
+     */
+    public BulkWriter createBulkWriter(String table, String ... columns){
+        return createBulkWriter(table, Arrays.asList(columns), Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Opens a writer that shares the connection and transaction of another writer, so that a single writer loads several
+     * tables on databases allowing only one at a time (SQLite). It has to be closed before the writer it shares with,
+     * which commits all rows. On PostgreSQL the writer gets a connection of its own.
+     */
+    public BulkWriter createBulkWriter(BulkWriter shared, String table, String ... columns){
+        if (isPostgres()) {
+            return createBulkWriter(table, columns);
+        }
+        return new PreparedBulkWriter(shared, table, Arrays.asList(columns), getMaxBatchSize(), debug);
+    }
+
+    /**
+     * Opens a writer setting a single column of existing rows, identified by a key column. Rows are loaded in bulk into
+     * a temporary table and applied with one UPDATE when the writer is closed. Rows are given as (key, value).
+     */
+    public BulkWriter createBulkUpdate(String table, String keyColumn, String keyType, String valueColumn, String valueType){
+        String temp = "bulk_update";
+        List<String> prepare = Arrays.asList(
+                String.format("DROP TABLE IF EXISTS %s", temp),
+                String.format("CREATE TEMP TABLE %s (bulk_key %s, bulk_value %s)", temp, keyType, valueType));
+        List<String> finish = Arrays.asList(
+                String.format("UPDATE %s SET %s = %s.bulk_value FROM %s WHERE %s.%s = %s.bulk_key", table, valueColumn, temp, temp, table, keyColumn, temp),
+                String.format("DROP TABLE %s", temp));
+        return createBulkWriter(temp, Arrays.asList("bulk_key", "bulk_value"), prepare, finish);
+    }
+
+    private BulkWriter createBulkWriter(String table, List<String> columns, List<String> prepare, List<String> finish){
+        Handle h = jdbi.open();
+        try {
+            if (isPostgres()) {
+                return new CopyBulkWriter(h, table, columns, prepare, finish, debug);
+            }
+            return new PreparedBulkWriter(h, table, columns, prepare, finish, getMaxBatchSize(), debug);
+        } catch (SQLException | RuntimeException e) {
+            h.close();
+            throw new RuntimeException(e);
+        }
+    }
+
     //public Query executeQuery(String qry) throws SQLException {
     //    try(Handle handle = jdbi.open()) {
     //        return handle.createQuery(qry);
@@ -193,6 +265,14 @@ public class Database{
         return new PersistentQuery(h, qry, debug);
     }
 
+    /**
+     * Opens a query whose rows are streamed from the database in portions of fetchSize rows
+     */
+    public  PersistentQuery openCursor(String qry, int fetchSize) {
+        Handle h = jdbi.open();
+        return new PersistentQuery(h, qry, fetchSize, debug);
+    }
+
     public boolean question(String qry){
         return question(qry, debug);
     }
@@ -210,6 +290,20 @@ public class Database{
         }
     }
 
+    /**
+     * Whether the connected database is PostgreSQL (as opposed to the SQLite files used by the command line tools)
+     */
+    public boolean isPostgres() {
+        if (postgres == null) {
+            try (Handle handle = jdbi.open()) {
+                postgres = handle.getConnection().getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return postgres;
+    }
+
     public int getMaxBatchSize() {
         return 500000;
     }
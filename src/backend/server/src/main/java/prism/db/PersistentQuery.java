@@ -18,12 +18,26 @@ public class PersistentQuery implements AutoCloseable{
     boolean debug;
 
     protected PersistentQuery(Handle handle, String statement, boolean debug){
+        this(handle, statement, 0, debug);
+    }
+
+    /**
+     * With a positive fetch size, rows are fetched from a server side cursor in portions of this size instead of all at
+     * once. PostgreSQL only uses cursors inside a transaction, which is held open until the query is closed.
+     */
+    protected PersistentQuery(Handle handle, String statement, int fetchSize, boolean debug){
         this.handle = handle;
         this.statement = statement;
         if (debug){
             System.out.println("Query: " + statement);
         }
+        if (fetchSize > 0) {
+            handle.begin();
+        }
         query = handle.createQuery(statement);
+        if (fetchSize > 0) {
+            query.setFetchSize(fetchSize);
+        }
         this.debug = debug;
     }
 
@@ -38,6 +52,9 @@ public class PersistentQuery implements AutoCloseable{
     @Override
     public void close() {
         query.close();
+        if (handle.isInTransaction()) {
+            handle.rollback();
+        }
         handle.close();
     }
 }
@@ -0,0 +1,74 @@
+package prism.db;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BulkWriter for databases without a bulk loading mechanism (SQLite). Inserts rows with prepared batches inside a
+ * single transaction.
+ */
+public class PreparedBulkWriter extends BulkWriter {
+
+    private final String statement;
+
+    private final int maxBatchSize;
+
+    private PreparedBatch batch;
+
+    private int batchSize;
+
+    protected PreparedBulkWriter(Handle handle, String table, List<String> columns, List<String> prepare, List<String> finish, int maxBatchSize, boolean debug) {
+        super(handle, table, columns, prepare, finish, debug);
+        this.statement = String.format("INSERT INTO %s (%s) VALUES (%s)", table, String.join(",", columns), String.join(",", Collections.nCopies(columns.size(), "?")));
+        this.maxBatchSize = maxBatchSize;
+        handle.begin();
+        this.batch = handle.prepareBatch(statement);
+        this.batchSize = 0;
+    }
+
+    protected PreparedBulkWriter(BulkWriter owner, String table, List<String> columns, int maxBatchSize, boolean debug) {
+        super(owner, table, columns, debug);
+        this.statement = String.format("INSERT INTO %s (%s) VALUES (%s)", table, String.join(",", columns), String.join(",", Collections.nCopies(columns.size(), "?")));
+        this.maxBatchSize = maxBatchSize;
+        this.batch = handle.prepareBatch(statement);
+        this.batchSize = 0;
+    }
+
+    @Override
+    protected void write(String[] values) {
+        for (int j = 0; j < values.length; j++){
+            batch.bind(j, values[j]);
+        }
+        batch.add();
+        if (++batchSize >= maxBatchSize){
+            execute();
+        }
+    }
+
+    private void execute() {
+        if (batchSize == 0) {
+            return;
+        }
+        batch.execute();
+        batch = handle.prepareBatch(statement);
+        batchSize = 0;
+    }
+
+    @Override
+    protected void complete() {
+        execute();
+    }
+
+    @Override
+    protected void commit() {
+        handle.commit();
+    }
+
+    @Override
+    protected void abort() {
+        handle.rollback();
+    }
+}
@@ -17,19 +17,26 @@ public class DistributionMapper implements RowMapper<Map<String, Double>> {
 
     @Override
     public Map<String, Double> map(ResultSet rs, StatementContext ctx) throws SQLException {
-        double roundingFactor = 1000;
-        String out = rs.getString(Namespace.ENTRY_T_PROB);
+        return decode(rs.getString(Namespace.ENTRY_T_PROB));
+    }
+
+    /**
+     * Decodes a distribution of the form "id:prob;id:prob" in a single scan, without splitting the string
+     */
+    public static Map<String, Double> decode(String out) throws SQLException {
         Map<String, Double> ret = new HashMap<>();
         if (out == null) return ret;
-        for (String entry : out.split(";")){
-            String[] e = entry.split(":");
-            if (e.length != 2){
-                throw new SQLException();
+        int length = out.length();
+        int start = 0;
+        while (start < length) {
+            int colon = out.indexOf(':', start);
+            int end = out.indexOf(';', start);
+            if (end < 0) end = length;
+            if (colon < 0 || colon > end) {
+                throw new SQLException("Invalid distribution entry: " + out.substring(start, end));
             }
-//            double doubleVal = Double.parseDouble(e[1]);
-//            doubleVal = ((double)Math.round(doubleVal*roundingFactor))/roundingFactor;
-//            System.out.println(doubleVal);
-            ret.put(e[0], Double.parseDouble(e[1]));
+            ret.put(out.substring(start, colon), Double.parseDouble(out.substring(colon + 1, end)));
+            start = end + 1;
         }
         return ret;
     }
@@ -2,30 +2,73 @@ package prism.db.mappers;
 
 import prism.StateAndValueConsumer;
 import prism.core.ModelParser;
+import prism.core.Utility.LongDoubleMap;
+import prism.core.Utility.StateEncoder;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 public class StateAndValueMapper implements StateAndValueConsumer {
 
-    private final ModelParser modelParser;
-    private final Map<BigInteger, Double> valueMap;
+    private final StateEncoder encoder;
+
+    // Only one of both is used, depending on whether state identifiers fit into a long
+    private final LongDoubleMap valueMap;
+    private final Map<BigInteger, Double> bigValueMap;
 
     public StateAndValueMapper(ModelParser modelParser) {
-        this.modelParser = modelParser;
-        this.valueMap = new HashMap<>();
+        this.encoder = modelParser.getStateEncoder();
+        if (encoder.isCompact()) {
+            this.valueMap = new LongDoubleMap();
+            this.bigValueMap = null;
+        } else {
+            this.valueMap = null;
+            this.bigValueMap = new HashMap<>();
+        }
     }
 
     @Override
     public void accept(int[] varValues, double value, long stateIndex) {
-        BigInteger s_id = modelParser.stateIdentifier(varValues);
-        valueMap.put(s_id, value);
+        if (valueMap != null) {
+            valueMap.put(encoder.encode(varValues), value);
+        } else {
+            bigValueMap.put(encoder.encodeBig(varValues), value);
+        }
+    }
+
+    /**
+     * Adds the value of a state of an explicit model, which are given as states instead of variable values
+     */
+    public void accept(parser.State state, double value) {
+        if (valueMap != null) {
+            valueMap.put(encoder.encode(state), value);
+        } else {
+            bigValueMap.put(encoder.encodeBig(state), value);
+        }
+    }
+
+    public double get(long stateID) {
+        return valueMap.get(stateID, Double.NaN);
+    }
+
+    public double get(String stateID) {
+        if (valueMap != null) {
+            return valueMap.get(encoder.parse(stateID), Double.NaN);
+        }
+        return bigValueMap.getOrDefault(new BigInteger(stateID), Double.NaN);
+    }
+
+    public int size() {
+        return valueMap != null ? valueMap.size() : bigValueMap.size();
     }
 
-    public Map<BigInteger, Double> output(){
-        return valueMap;
+    public void forEach(BiConsumer<String, Double> consumer) {
+        if (valueMap != null) {
+            valueMap.forEach((k, v) -> consumer.accept(Long.toString(k), v));
+        } else {
+            bigValueMap.forEach((k, v) -> consumer.accept(k.toString(), v));
+        }
     }
 }
@@ -3,11 +3,13 @@ package prism.db.mappers;
 import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.statement.StatementContext;
 import prism.PrismLangException;
+import prism.api.AP;
 import prism.api.State;
 import prism.core.Model;
 import prism.core.Namespace;
 
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.TreeMap;
@@ -26,6 +28,9 @@ public class StateMapper implements RowMapper<State> {
 
     private final RewardMapper rewardMapper;
 
+    // Whether the result set contains the precomputed labels, determined on the first row
+    private Boolean labelColumns = null;
+
 
     public StateMapper(Model model) {
         this.model = model;
@@ -37,14 +42,41 @@ public class StateMapper implements RowMapper<State> {
     @Override
     public State map(final ResultSet rs, final StatementContext ctx) throws SQLException {
         //if (views == null) {
+            String id = rs.getString(Namespace.ENTRY_S_ID);
+            String name = rs.getString(Namespace.ENTRY_S_NAME);
             try {
-                return new State(rs.getString(Namespace.ENTRY_S_ID), rs.getString(Namespace.ENTRY_S_NAME), model.getModelParser().parseParameters(rs.getString(Namespace.ENTRY_S_NAME)), model.getLabelMap(model.getModelParser().parseState(rs.getString(Namespace.ENTRY_S_NAME))), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
+                parser.State state = model.getModelParser().readState(id, name);
+                return new State(id, name, model.getModelParser().getParameters(state), labels(rs, state), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
             }catch (PrismLangException e) {
-                return new State(rs.getString(Namespace.ENTRY_S_ID), rs.getString(Namespace.ENTRY_S_NAME), new TreeMap<>(), new TreeMap<>(), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
+                return new State(id, name, new TreeMap<>(), new TreeMap<>(), rewardMapper.map(rs, ctx), propertyMapper.map(rs, ctx));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         //}
         //return new State(rs.getString(Namespace.ENTRY_C_NAME), views.stream().map(c -> Long.toString(c.getId())).collect(Collectors.toList()), viewMapper.map(rs, ctx));
     }
+
+    // Reads the flags computed during the build, the label expressions are only evaluated for rows without them
+    private TreeMap<String, AP> labels(ResultSet rs, parser.State state) throws Exception {
+        if (labelColumns == null) {
+            labelColumns = model.hasLabelColumns() && hasColumn(rs, Namespace.ENTRY_S_LABELS) && hasColumn(rs, Namespace.ENTRY_S_DEAD);
+        }
+        if (labelColumns) {
+            long bits = rs.getLong(Namespace.ENTRY_S_LABELS);
+            if (!rs.wasNull()) {
+                return model.getLabelMap(rs.getBoolean(Namespace.ENTRY_S_INIT), rs.getBoolean(Namespace.ENTRY_S_DEAD), i -> (bits >>> i & 1) != 0);
+            }
+        }
+        return model.getLabelMap(state);
+    }
+
+    private static boolean hasColumn(ResultSet rs, String column) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (meta.getColumnLabel(i).equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -4,11 +4,16 @@ import com.codahale.metrics.annotation.Timed;
 import io.dropwizard.setup.Environment;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import prism.api.GraphWriter;
 import prism.api.Message;
+import prism.core.GraphFilter;
+import prism.core.Project;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.*;
@@ -27,17 +32,22 @@ public class ModelResource extends Resource {
 
     @GET
     @Timed
-    @Operation(summary = "Returns entire graph")
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_NDJSON, GraphWriter.MEDIA_TYPE_BINARY})
+    @Operation(summary = "Returns entire graph", description = "Streams the graph while it is read, as JSON, newline delimited JSON or in the binary format, depending on the Accept header")
     public Response createUpperGraph(
             @Parameter(description = "identifier of project")
             @PathParam("project_id") String projectID,
-            @QueryParam("version") Optional<String> version
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
     ) {
         try{
             refreshProject(projectID);
             if (!tasks.containsProject(projectID)) return error(new Message(String.format("Project %s not found", projectID)));
-            if (version.isPresent()) return ok(tasks.getProject(projectID).getGraph(version.get()));
-            return ok(tasks.getProject(projectID).getGraph());
+            Project project = tasks.getProject(projectID);
+            return streamGraph(headers, writer -> {
+                if (version.isPresent()) project.writeGraph(writer, version.get());
+                else project.writeGraph(writer);
+            });
         } catch (Exception e) {
             return error(e);
         }
@@ -60,46 +70,195 @@ public class ModelResource extends Resource {
 
     @Path("/subgraph")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_BINARY})
     @Timed(name="subgraph")
     @Operation(summary = "Returns interconnected subgraph of all given nodes", description = "Returns single Node Object with identifier 'id'")
     public Response getSubGraph(
             @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
             @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
-            @QueryParam("version") Optional<String> version
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
     ) {
         refreshProject(projectID);
-        if(version.isPresent()) return ok(tasks.getProject(projectID).getSubGraph(nodeIDs, version.get()));
-        return ok(tasks.getProject(projectID).getSubGraph(nodeIDs));
+        if(version.isPresent()) return graph(headers, tasks.getProject(projectID).getSubGraph(nodeIDs, version.get()));
+        return graph(headers, tasks.getProject(projectID).getSubGraph(nodeIDs));
     }
 
     @Path("/reset")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_BINARY})
     @Timed(name="subgraph")
     @Operation(summary = "Returns interconnected subgraph of all given nodes", description = "Returns single Node Object with identifier 'id'")
     public Response resetGraph(
             @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
             @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
             @Parameter(description = "Identifier of target node that is not explored", required = true) @QueryParam("idu") List<String> unexploredNodeIDs,
-            @QueryParam("version") Optional<String> version
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
     ) {
         refreshProject(projectID);
-        if(version.isPresent()) return ok(tasks.getProject(projectID).resetGraph(nodeIDs, unexploredNodeIDs, version.get()));
-        return ok(tasks.getProject(projectID).resetGraph(nodeIDs, unexploredNodeIDs));
+        if(version.isPresent()) return graph(headers, tasks.getProject(projectID).resetGraph(nodeIDs, unexploredNodeIDs, version.get()));
+        return graph(headers, tasks.getProject(projectID).resetGraph(nodeIDs, unexploredNodeIDs));
     }
 
     @Path("/outgoing")
     @GET
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_BINARY})
     @Timed(name="outgoing")
     @Operation(summary = "Returns all outgoing edges", description = "Returns all edges starting in state 'id'")
     public Response getOutgoing(
             @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
             @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        if(version.isPresent()) return graph(headers, tasks.getProject(projectID).getOutgoing(nodeIDs, version.get()));
+        return graph(headers, tasks.getProject(projectID).getOutgoing(nodeIDs));
+    }
+
+    @Path("/incoming")
+    @GET
+    @Timed(name="incoming")
+    @Operation(summary = "Returns all incoming edges", description = "Returns all edges leading into state 'id', together with their source states")
+    public Response getIncoming(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "Identifier of target node", required = true) @QueryParam("id") List<String> nodeIDs,
+            @QueryParam("version") Optional<String> version
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        try {
+            if(version.isPresent()) return ok(tasks.getProject(projectID).getIncoming(nodeIDs, version.get()));
+            return ok(tasks.getProject(projectID).getIncoming(nodeIDs));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/components")
+    @GET
+    @Timed(name="components")
+    @Operation(summary = "Returns the strongly connected components", description = "Computes the strongly connected components on the first request and stores them as columns scc and bottom_scc of the states and scc_exit of the transitions. Returns their number and the components of the states 'id'")
+    public Response getComponents(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "Identifier of a state") @QueryParam("id") List<String> nodeIDs,
             @QueryParam("version") Optional<String> version
     ) {
         refreshProject(projectID);
         if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
-        if(version.isPresent()) return ok(tasks.getProject(projectID).getOutgoing(nodeIDs, version.get()));
-        return ok(tasks.getProject(projectID).getOutgoing(nodeIDs));
+        try {
+            if(version.isPresent()) return ok(tasks.getProject(projectID).getSccInfo(nodeIDs, version.get()));
+            return ok(tasks.getProject(projectID).getSccInfo(nodeIDs));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/induced")
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_NDJSON, GraphWriter.MEDIA_TYPE_BINARY})
+    @Timed(name="induced")
+    @Operation(summary = "Returns the sub-model induced by a scheduler", description = "Streams the states reachable from the initial states under scheduler 'scheduler' together with the transitions the scheduler chooses in them, in the format requested by the Accept header")
+    public Response getInducedGraph(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "name of a scheduler", required = true) @QueryParam("scheduler") String scheduler,
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        try {
+            Project project = tasks.getProject(projectID);
+            // Searched before streaming starts, so unknown schedulers are reported as errors
+            if (version.isPresent()) project.getReachable(scheduler, version.get());
+            else project.getReachable(scheduler);
+            return streamGraph(headers, writer -> {
+                if (version.isPresent()) project.writeInducedGraph(writer, scheduler, version.get());
+                else project.writeInducedGraph(writer, scheduler);
+            });
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/aggregate")
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, GraphWriter.MEDIA_TYPE_BINARY})
+    @Timed(name="aggregate")
+    @Operation(summary = "Returns an aggregated graph", description = "Groups the states by the given groupings, one level of detail each (variables:x,y, predicate:expression, scc, distance:granularity or actions). Groups on the first level are shown unless they are given as 'expand', in which case their groups on the next level, or their states on the last level, are shown instead")
+    public Response getAggregatedGraph(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "grouping of each level", required = true) @QueryParam("by") List<String> groupings,
+            @Parameter(description = "identifier of an expanded group node") @QueryParam("expand") List<String> expanded,
+            @QueryParam("version") Optional<String> version,
+            @Context HttpHeaders headers
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        try {
+            if(version.isPresent()) return graph(headers, tasks.getProject(projectID).getAggregatedGraph(groupings, expanded, version.get()));
+            return graph(headers, tasks.getProject(projectID).getAggregatedGraph(groupings, expanded));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/states")
+    @GET
+    @Timed(name="states")
+    @Operation(summary = "Returns a page of states", description = "Returns up to 'limit' states following the cursor 'after', ordered by identifier and filtered by label, property value range and reachability under a scheduler. The cursor of the next page is returned as 'next'")
+    public Response getStates(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "cursor of the previous page") @QueryParam("after") Optional<String> after,
+            @Parameter(description = "maximum number of states") @QueryParam("limit") @DefaultValue("1000") int limit,
+            @Parameter(description = "label the states have to satisfy") @QueryParam("label") String label,
+            @Parameter(description = "property whose value has to lie within min and max") @QueryParam("property") String property,
+            @QueryParam("min") Double min,
+            @QueryParam("max") Double max,
+            @Parameter(description = "scheduler the states have to be reachable under") @QueryParam("scheduler") String scheduler,
+            @QueryParam("version") Optional<String> version
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        try {
+            GraphFilter filter = new GraphFilter(label, property, min, max, scheduler);
+            if(version.isPresent()) return ok(tasks.getProject(projectID).getStatePage(after, limit, filter, version.get()));
+            return ok(tasks.getProject(projectID).getStatePage(after, limit, filter));
+        } catch (IllegalArgumentException e) {
+            return badRequest(new Message(e.getMessage()));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/transitions")
+    @GET
+    @Timed(name="transitions")
+    @Operation(summary = "Returns a page of transitions", description = "Returns up to 'limit' transitions following the cursor 'after', ordered by identifier and filtered by the label of their origin, property value range and scheduler membership. The cursor of the next page is returned as 'next'")
+    public Response getTransitions(
+            @Parameter(description = "identifier of project") @PathParam("project_id") String projectID,
+            @Parameter(description = "cursor of the previous page") @QueryParam("after") Optional<String> after,
+            @Parameter(description = "maximum number of transitions") @QueryParam("limit") @DefaultValue("1000") int limit,
+            @Parameter(description = "label the origins have to satisfy") @QueryParam("label") String label,
+            @Parameter(description = "property whose value has to lie within min and max") @QueryParam("property") String property,
+            @QueryParam("min") Double min,
+            @QueryParam("max") Double max,
+            @Parameter(description = "scheduler the transitions have to be chosen by") @QueryParam("scheduler") String scheduler,
+            @QueryParam("version") Optional<String> version
+    ) {
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) return error(String.format("project %s not open", projectID));
+        try {
+            GraphFilter filter = new GraphFilter(label, property, min, max, scheduler);
+            if(version.isPresent()) return ok(tasks.getProject(projectID).getTransitionPage(after, limit, filter, version.get()));
+            return ok(tasks.getProject(projectID).getTransitionPage(after, limit, filter));
+        } catch (IllegalArgumentException e) {
+            return badRequest(new Message(e.getMessage()));
+        } catch (Exception e) {
+            return error(e);
+        }
     }
 
     @Path("/initial")
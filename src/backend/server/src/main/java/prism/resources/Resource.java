@@ -1,13 +1,18 @@
 package prism.resources;
 
 import io.dropwizard.setup.Environment;
+import prism.api.Graph;
+import prism.api.GraphWriter;
 import prism.api.Message;
 import prism.core.Namespace;
 import prism.core.Project;
 import prism.server.PRISMServerConfiguration;
 import prism.server.TaskManager;
 
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -48,11 +53,83 @@ public abstract class Resource {
         return Response.status(Response.Status.NOT_FOUND).entity(m).build();
     }
 
+    protected static Response badRequest(Message m){
+        return Response.status(Response.Status.BAD_REQUEST).entity(m).build();
+    }
+
     protected static Response error(Object o){
         System.out.println(o);
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(o).build();
     }
 
+    /**
+     * Source of a graph that is written while it is read
+     */
+    protected interface GraphSource {
+        void write(GraphWriter writer) throws IOException;
+    }
+
+    /**
+     * Graph format requested by the Accept header. JSON unless NDJSON or the binary format are named explicitly.
+     */
+    protected static String graphMediaType(HttpHeaders headers) {
+        for (MediaType type : headers.getAcceptableMediaTypes()) {
+            if (type.isWildcardType() || type.isWildcardSubtype()) {
+                continue;
+            }
+            String name = type.getType() + "/" + type.getSubtype();
+            if (name.equals(GraphWriter.MEDIA_TYPE_NDJSON) || name.equals(GraphWriter.MEDIA_TYPE_BINARY) || name.equals(MediaType.APPLICATION_JSON)) {
+                return name;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    protected Response streamGraph(HttpHeaders headers, GraphSource source) {
+        String mediaType = graphMediaType(headers);
+        StreamingOutput output = out -> {
+            CountingOutputStream counted = new CountingOutputStream(out);
+            long start = System.nanoTime();
+            try (GraphWriter writer = GraphWriter.create(mediaType, counted, environment.getObjectMapper())) {
+                source.write(writer);
+            }
+            if (debug) {
+                System.out.printf("Graph response: %s bytes as %s in %s ms%n", counted.count, mediaType, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        };
+        return Response.ok(output, mediaType).build();
+    }
+
+    /**
+     * Answers with a graph in the format requested by the Accept header
+     */
+    protected Response graph(HttpHeaders headers, Graph graph) {
+        if (graphMediaType(headers).equals(MediaType.APPLICATION_JSON) && !debug) {
+            return ok(graph);
+        }
+        return streamGraph(headers, writer -> writer.write(graph));
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     protected static Response abstractionMissing(long abstractionID){
         return missing(new Message(String.format("AbstractionID %s has not been found", abstractionID)));
     }
@@ -6,10 +6,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
-import prism.PrismException;
 import prism.api.Message;
 import prism.api.Pane;
 import prism.api.Status;
+import prism.core.Engine;
+import prism.core.EngineSelection;
 import prism.core.Model;
 import prism.core.Namespace;
 import prism.core.Project;
@@ -69,8 +70,29 @@ public class TaskResource extends Resource {
             @QueryParam("version") Optional<String> version
     ) throws Exception {
         refreshProject(projectID);
-        if (version.isPresent()) return ok(new Status(tasks.getProject(projectID).getModel(version.get()), tasks.status()));
-        return ok(new Status(tasks.getProject(projectID).getDefaultModel(), tasks.status()));
+        if (version.isPresent()) return ok(new Status(tasks.getProject(projectID).getModel(version.get()), tasks.status(projectID)));
+        return ok(new Status(tasks.getProject(projectID).getDefaultModel(), tasks.status(projectID)));
+    }
+
+    @Path("/cancel")
+    @GET
+    @Timed(name="cancel")
+    @Operation(summary = "cancels tasks of the project", description = "Cancels the queued or running task named 'task', or all tasks of the project if no task is given. Running tasks are interrupted.")
+    public Response cancelTasks(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID,
+            @Parameter(description = "name of a task")
+            @QueryParam("task") Optional<String> task
+    ){
+        if (!tasks.containsProject(projectID)) {
+            return error(String.format("Project %s does not exist", projectID));
+        }
+        if (task.isPresent()) {
+            if (!tasks.cancelTask(projectID, task.get())) return error(String.format("Task %s not found", task.get()));
+            return ok(new Message(String.format("Cancelled task %s", task.get())));
+        }
+        tasks.cancelTasks(projectID);
+        return ok(new Message(String.format("Cancelled all tasks of project %s", projectID)));
     }
 
     @Deprecated
@@ -315,6 +337,7 @@ public class TaskResource extends Resource {
         if (!tasks.containsProject(projectID)) {
             return error(String.format("Project %s does not exist", projectID));
         }
+        List<String> jobs = new ArrayList<>();
         try {
 
             Project p = tasks.getProject(projectID);
@@ -327,24 +350,87 @@ public class TaskResource extends Resource {
                     m = p.getDefaultModel();
             }
 
-            for (String propertyName : properties) {
-                m.getProperty(propertyName).ifPresent(property -> {
-                    try {
-                        m.checkProperty(propertyName);
-                        if (debug){
-                            System.out.println("Checking property " + propertyName);
-                        }
-                    } catch (PrismException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-
+            jobs.addAll(m.checkProperties(properties));
+            if (debug){
+                System.out.println("Checking properties " + String.join(", ", properties));
             }
         } catch (Exception e) {
             return error(e);
         }
 
-        return ok(new Message(String.format("Started checking %s in project %s", String.join(", ", properties), projectID)));
+        return ok(new Message(String.format("Started checking %s in project %s", String.join(", ", properties), projectID), jobs));
+    }
+
+    @Path("/jobs")
+    @GET
+    @Timed(name="jobs")
+    @Operation(summary = "returns jobs of the project", description = "Returns the jobs of the project, or only job 'id', that changed after revision 'since'. If none did, waits up to 'wait' milliseconds (at most 30 s) for a change before returning an empty list, so clients can follow progress with one open request at a time. Changes are also sent as socket event MC_JOB.")
+    public Response getJobs(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID,
+            @Parameter(description = "identifier of a job")
+            @QueryParam("id") Optional<String> jobID,
+            @Parameter(description = "revision already known to the client")
+            @QueryParam("since") @DefaultValue("0") long since,
+            @Parameter(description = "milliseconds to wait for a change")
+            @QueryParam("wait") @DefaultValue("0") long wait
+    ){
+        if (!tasks.containsProject(projectID)) {
+            return error(String.format("Project %s does not exist", projectID));
+        }
+        try {
+            return ok(tasks.awaitJobs(projectID, jobID, since, wait));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/engine")
+    @GET
+    @Timed(name="engine")
+    @Operation(summary = "returns the engines of the project", description = "Returns the engine of the project, the engines set for single properties and the winners of the benchmarks of the auto engine")
+    public Response getEngines(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID
+    ){
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) {
+            return error(String.format("Project %s does not exist", projectID));
+        }
+        try {
+            return ok(tasks.getProject(projectID).getEngines().toMap());
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @Path("/engine")
+    @POST
+    @Timed(name="setEngine")
+    @Operation(summary = "sets an engine of the project", description = "Sets the engine (mtbdd, sparse, hybrid, explicit or auto) used for all properties of the project, or only for 'property' if given. The engine 'default' makes the property use the engine of the project again. Applies to the next check.")
+    public Response setEngine(
+            @Parameter(description = "identifier of project")
+            @PathParam("project_id") String projectID,
+            @Parameter(description = "name of the engine")
+            @QueryParam("engine") String engine,
+            @Parameter(description = "property that should use the engine")
+            @QueryParam("property") Optional<String> property
+    ){
+        refreshProject(projectID);
+        if (!tasks.containsProject(projectID)) {
+            return error(String.format("Project %s does not exist", projectID));
+        }
+        try {
+            EngineSelection engines = tasks.getProject(projectID).getEngines();
+            if (property.isPresent()) {
+                engines.setEngine(property.get(), "default".equalsIgnoreCase(engine) ? null : Engine.parse(engine));
+                return ok(new Message(String.format("Property %s uses engine %s", property.get(), engines.getEngine(property.get()).getName())));
+            }
+            engines.setDefault(Engine.parse(engine));
+            return ok(new Message(String.format("Project %s uses engine %s", projectID, engines.getDefault().getName())));
+        } catch (Exception e) {
+            return error(e);
+        }
     }
 
     @Path("/pane/all")
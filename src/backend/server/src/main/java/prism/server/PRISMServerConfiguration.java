@@ -20,6 +20,34 @@ public class PRISMServerConfiguration extends Configuration {
 
     private int iterations = 50000;
 
+    private int buildThreads = getRuntime().availableProcessors();
+
+    // Whether checks with the explicit engine run next to the symbolic checks of the same model version. The symbolic
+    // checks share the single CUDD of the model version and always run one after another.
+    private boolean overlapChecks = false;
+
+    // Default PRISM engine of projects: mtbdd, sparse, hybrid, explicit or auto to benchmark them on the first check
+    private String engine = "mtbdd";
+
+    private boolean typedSchema = true;
+
+    // Maximum number of transition targets of a model version held in memory, 0 disables the in-memory graph
+    private long graphStoreLimit = 20_000_000;
+
+    // Whether in-memory graphs are persisted as snapshot files in the project directory
+    private boolean graphSnapshots = true;
+
+    // Limits of the exploration of models that are not built yet, 0 for no limit
+    private int exploreStates = 1_000_000;
+
+    private int exploreDepth = 0;
+
+    // Number of tasks running at once, tasks of one project always run one after another
+    private int taskWorkers = 2;
+
+    // Maximum number of queued tasks, 0 for no limit
+    private int taskQueueSize = 1000;
+
     private String initModel = "0";
 
     private int socketPort = 8082;
@@ -64,6 +92,106 @@ public class PRISMServerConfiguration extends Configuration {
         this.iterations = iterations;
     }
 
+    @JsonProperty
+    public int getBuildThreads() {
+        return buildThreads;
+    }
+
+    @JsonProperty
+    public void setBuildThreads(int buildThreads) {
+        this.buildThreads = buildThreads;
+    }
+
+    @JsonProperty
+    public boolean getOverlapChecks() {
+        return overlapChecks;
+    }
+
+    @JsonProperty
+    public void setOverlapChecks(boolean overlapChecks) {
+        this.overlapChecks = overlapChecks;
+    }
+
+    @JsonProperty
+    public String getEngine() {
+        return engine;
+    }
+
+    @JsonProperty
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    @JsonProperty
+    public boolean getTypedSchema() {
+        return typedSchema;
+    }
+
+    @JsonProperty
+    public void setTypedSchema(boolean typedSchema) {
+        this.typedSchema = typedSchema;
+    }
+
+    @JsonProperty
+    public long getGraphStoreLimit() {
+        return graphStoreLimit;
+    }
+
+    @JsonProperty
+    public void setGraphStoreLimit(long graphStoreLimit) {
+        this.graphStoreLimit = graphStoreLimit;
+    }
+
+    @JsonProperty
+    public boolean getGraphSnapshots() {
+        return graphSnapshots;
+    }
+
+    @JsonProperty
+    public void setGraphSnapshots(boolean graphSnapshots) {
+        this.graphSnapshots = graphSnapshots;
+    }
+
+    @JsonProperty
+    public int getExploreStates() {
+        return exploreStates;
+    }
+
+    @JsonProperty
+    public void setExploreStates(int exploreStates) {
+        this.exploreStates = exploreStates;
+    }
+
+    @JsonProperty
+    public int getExploreDepth() {
+        return exploreDepth;
+    }
+
+    @JsonProperty
+    public void setExploreDepth(int exploreDepth) {
+        this.exploreDepth = exploreDepth;
+    }
+
+    @JsonProperty
+    public int getTaskWorkers() {
+        return taskWorkers;
+    }
+
+    @JsonProperty
+    public void setTaskWorkers(int taskWorkers) {
+        this.taskWorkers = taskWorkers;
+    }
+
+    @JsonProperty
+    public int getTaskQueueSize() {
+        return taskQueueSize;
+    }
+
+    @JsonProperty
+    public void setTaskQueueSize(int taskQueueSize) {
+        this.taskQueueSize = taskQueueSize;
+    }
+
     @JsonProperty
     public String getInitModel() {
         return initModel;
@@ -2,7 +2,20 @@ package prism.server;
 
 public interface Task extends Runnable {
 
-    public enum Type {Build, Check, Misc}
+    // Queued tasks with a lower priority value run first, so a build precedes the checks on its model
+    public enum Type {
+        Build(0), Check(1), Misc(2);
+
+        private final int priority;
+
+        Type(int priority) {
+            this.priority = priority;
+        }
+
+        public int priority() {
+            return priority;
+        }
+    }
 
     public String status();
 
@@ -13,4 +26,11 @@ public interface Task extends Runnable {
     public String projectID();
 
     public String version();
+
+    /**
+     * Completed fraction between 0 and 1, negative if the task does not know it
+     */
+    public default double progress() {
+        return -1;
+    }
 }
@@ -12,6 +12,7 @@ import prism.Prism;
 import prism.PrismDevNullLog;
 import prism.PrismLangException;
 import prism.PrismPrintStreamLog;
+import prism.api.Job;
 import prism.api.Status;
 import prism.core.Namespace;
 import prism.core.Project;
@@ -21,21 +22,43 @@ import prism.resources.Resource;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Runs tasks on a pool of workers. Tasks of one project run one after another, tasks of different projects in
+ * parallel. The next task is the queued one with the best priority of its type whose project is idle, ties are broken
+ * by the order in which they were queued. Tasks without a project are never held back.
+ *
+ * Every task is tracked as a job with its state, progress and timings. Each change of a job, and the progress of
+ * running jobs once per PROGRESS_INTERVAL, is sent as EVENT_JOB and wakes up clients waiting in awaitJobs.
+ */
 public class TaskManager implements Executor, Managed {
 
     private static final Logger logger = LoggerFactory.getLogger(TaskManager.class);
 
+    private static final long PROGRESS_INTERVAL = 1000;
+    private static final int FINISHED_JOBS = 100;
+    private static final long MAX_WAIT = 30_000;
+
     private final Environment environment;
     private final PRISMServerConfiguration configuration;
 
-    private final Queue<Task> tasks = new ArrayDeque<>();
+    private final int workers;
+    private final int queueSize;
+    private final TreeSet<Queued> tasks = new TreeSet<>(Comparator.comparingInt((Queued q) -> q.type().priority()).thenComparingLong(q -> q.sequence));
+    private final List<Queued> running = new ArrayList<>();
+    private long sequence = 0;
     private ExecutorService executor;
-    private Task active;
+
+    // All jobs in the order they were queued, finished ones only up to FINISHED_JOBS
+    private final Map<String, Queued> jobs = new LinkedHashMap<>();
+    private long revision = 0;
+    // Job events collected while the lock is held, sent by sendEvents once it is released
+    private final List<Job> events = new ArrayList<>();
+    private final ScheduledExecutorService progressReporter;
 
     private final Database adminConnection;
 
@@ -48,7 +71,11 @@ public class TaskManager implements Executor, Managed {
     public TaskManager(Environment environment, PRISMServerConfiguration configuration) {
         this.environment = environment;
         this.configuration = configuration;
-        this.executor = Executors.newSingleThreadExecutor();
+        this.workers = Math.max(1, configuration.getTaskWorkers());
+        this.queueSize = configuration.getTaskQueueSize() > 0 ? configuration.getTaskQueueSize() : Integer.MAX_VALUE;
+        this.executor = Executors.newFixedThreadPool(workers);
+        this.progressReporter = Executors.newSingleThreadScheduledExecutor();
+        this.progressReporter.scheduleAtFixedRate(this::reportProgress, PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
         this.socketServer =  new SocketServer(configuration);
         this.activeProjects = new HashMap<>();
 
@@ -74,7 +101,7 @@ public class TaskManager implements Executor, Managed {
                     return;
                 }
             }
-            Status status = new Status(this.activeProjects.get(id).getDefaultModel(), this.status());
+            Status status = new Status(this.activeProjects.get(id).getDefaultModel(), this.status(id));
             ackRequest.sendAckData(status);
         });
     }
@@ -82,7 +109,10 @@ public class TaskManager implements Executor, Managed {
     public TaskManager() {
         this.environment = null;
         this.configuration = null;
-        this.executor = Executors.newSingleThreadExecutor();
+        this.workers = 1;
+        this.queueSize = Integer.MAX_VALUE;
+        this.executor = Executors.newFixedThreadPool(workers);
+        this.progressReporter = null;
         this.socketServer = null;
         this.activeProjects = new HashMap<>();
         this.adminConnection = null;
@@ -90,35 +120,15 @@ public class TaskManager implements Executor, Managed {
 
     @Override
     public void start() throws Exception {
-        this.executor = Executors.newSingleThreadExecutor();
         this.socketServer.open();
-        if (active != null) {
-            logger.info("Executing task {}\n", active.name());
-            executor.execute(active);
-        }
-    }
-
-    public void startAgain() throws Exception {
-        this.executor = Executors.newSingleThreadExecutor();
-        if (active != null) {
-            logger.info("Executing task {}\n", active.name());
-            executor.execute(active);
-        }
+        scheduleNext();
     }
 
     @Override
     public void stop() throws Exception {
         try {
             this.socketServer.close();
-            this.executor.shutdownNow();
-        } catch (Exception e) {
-            System.err.println("Error shutting down: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    public void stopTemp() throws Exception {
-        try {
+            this.progressReporter.shutdownNow();
             this.executor.shutdownNow();
         } catch (Exception e) {
             System.err.println("Error shutting down: " + e.getMessage());
@@ -134,8 +144,8 @@ public class TaskManager implements Executor, Managed {
                     return;
                 }
                 Status status;
-                if (version.isPresent()) status = new Status(this.activeProjects.get(id).getModel(version.get()), this.status());
-                else status = new Status(this.activeProjects.get(id).getDefaultModel(), this.status());
+                if (version.isPresent()) status = new Status(this.activeProjects.get(id).getModel(version.get()), this.status(id));
+                else status = new Status(this.activeProjects.get(id).getDefaultModel(), this.status(id));
                 socketServer.send(Namespace.EVENT_STATUS, status);
             }catch (Exception e){
                 System.err.println("Error sending status to server: " + e.getMessage());
@@ -186,23 +196,66 @@ public class TaskManager implements Executor, Managed {
         return activeProjects.containsKey(projectID);
     }
 
-    private void interruptTasks(String projectID) throws Exception {
-        this.stopTemp();
-        List<Task> toRemove = new ArrayList<>();
-        for(Task task : tasks){
-            if (task.projectID().equals(projectID)){
-                toRemove.add(task);
+    /**
+     * Removes the queued tasks of a project and interrupts its running task. Other projects are not affected.
+     */
+    public void cancelTasks(String projectID) {
+        synchronized (this) {
+            for (Queued q : new ArrayList<>(tasks)) {
+                if (q.projectID().equals(projectID)) {
+                    tasks.remove(q);
+                    cancel(q);
+                }
             }
+            for (Queued q : new ArrayList<>(running)) {
+                if (q.projectID().equals(projectID)) {
+                    cancel(q);
+                }
+            }
+            scheduleNext();
         }
-        tasks.removeAll(toRemove);
-        if (active != null && active.projectID().equals(projectID)){
-            active = tasks.poll();
+        sendEvents();
+        sendStatus(projectID, Optional.empty());
+    }
+
+    /**
+     * Cancels the queued or running task of a project with the given job id or name. Returns false if the project has
+     * none.
+     */
+    public boolean cancelTask(String projectID, String name) {
+        Queued found;
+        synchronized (this) {
+            Predicate<Queued> named = q -> q.projectID().equals(projectID) && (q.id.equals(name) || q.name().equals(name));
+            found = running.stream().filter(named).findFirst()
+                    .orElse(tasks.stream().filter(named).findFirst().orElse(null));
+            if (found == null) {
+                return false;
+            }
+            tasks.remove(found);
+            cancel(found);
+            scheduleNext();
+        }
+        sendEvents();
+        sendStatus(found.projectID(), Optional.ofNullable(found.version()));
+        return true;
+    }
+
+    private void cancel(Queued q) {
+        q.cancelled = true;
+        if (q.future != null) {
+            q.future.cancel(true);
+        }
+        // A task that has not started never will, one that has frees its project when it returns
+        if (!q.started) {
+            running.remove(q);
+            q.state = Job.State.cancelled;
+            q.finished = System.currentTimeMillis();
+            changed(q);
         }
-        this.startAgain();
     }
 
     public void removeProject(String projectID) throws Exception {
-        this.interruptTasks(projectID);
+        this.cancelTasks(projectID);
         activeProjects.get(projectID).removeFiles();
         activeProjects.remove(projectID);
         this.adminConnection.execute(String.format("DROP DATABASE \"%s\"; DROP USER \"%s\"", projectID, projectID));
@@ -220,26 +273,27 @@ public class TaskManager implements Executor, Managed {
     }
 
     public void clearDatabase(String projectID) throws Exception {
-        this.interruptTasks(projectID);
+        this.cancelTasks(projectID);
         activeProjects.get(projectID).clearTables();
         for (String version : activeProjects.get(projectID).getVersions()) {
             activeProjects.get(projectID).getDatabase().execute(String.format("DROP SCHEMA IF EXISTS \"%s\" CASCADE;", version));
         }
     }
 
-    public boolean containsTask(Task.Type type, String projectID){
-        if (active != null && active.type().equals(type) && active.projectID().equals(projectID)){
-            return true;
-        }
-        for(Task task : tasks){
-            if (task.type().equals(type) && task.projectID().equals(projectID)){
-                return true;
-            }
-        }
-        return false;
+    public synchronized boolean containsTask(Task.Type type, String projectID){
+        return contains(type, projectID, null);
     }
 
-    public synchronized void execute(final Runnable r) {
+    public synchronized boolean containsTask(Task.Type type, String projectID, String version){
+        return contains(type, projectID, version);
+    }
+
+    private boolean contains(Task.Type type, String projectID, String version){
+        return running.stream().anyMatch(q -> !q.cancelled && q.matches(type, projectID, version))
+                || tasks.stream().anyMatch(q -> q.matches(type, projectID, version));
+    }
+
+    public void execute(final Runnable r) {
         execute(new Task() {
             @Override
             public String status() {
@@ -269,54 +323,173 @@ public class TaskManager implements Executor, Managed {
         });
     }
 
-    public synchronized void execute(final Task t) {
-        tasks.offer(new Task() {
-            @Override
-            public void run() {
-                try {
-                    t.run();
-                } finally {
-                    logger.info("Task {} executed", t.name());
-                    sendStatus(t.projectID(), Optional.ofNullable(t.version()));
-                    scheduleNext();
-                }
+    /**
+     * Queues a task. Throws a RejectedExecutionException if the queue is full.
+     */
+    public String execute(final Task t) {
+        Queued q;
+        synchronized (this) {
+            if (tasks.size() >= queueSize) {
+                throw new RejectedExecutionException(String.format("Task queue is full, %s was not queued", t.name()));
             }
+            q = new Queued(t, sequence++);
+            jobs.put(q.id, q);
+            tasks.add(q);
+            changed(q);
+            scheduleNext();
+        }
+        sendEvents();
+        return q.id;
+    }
 
-            @Override
-            public String status() { return t.status();}
+    protected synchronized void scheduleNext() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        Iterator<Queued> it = tasks.iterator();
+        while (running.size() < workers && it.hasNext()) {
+            Queued next = it.next();
+            if (!next.projectID().isEmpty() && running.stream().anyMatch(q -> q.projectID().equals(next.projectID()))) {
+                continue;
+            }
+            it.remove();
+            running.add(next);
+            logger.info("Executing task {}\n", next.name());
+            next.future = executor.submit(next);
+        }
+    }
 
-            @Override
-            public String name() { return t.name();}
+    private synchronized boolean begin(Queued q) {
+        if (q.cancelled) {
+            return false;
+        }
+        q.started = true;
+        q.state = Job.State.running;
+        q.startedAt = System.currentTimeMillis();
+        changed(q);
+        return true;
+    }
 
-            @Override
-            public Type type(){ return t.type();}
+    private void finish(Queued q, Throwable error) {
+        synchronized (this) {
+            running.remove(q);
+            q.finished = System.currentTimeMillis();
+            if (q.cancelled) {
+                q.state = Job.State.cancelled;
+            } else if (error != null) {
+                q.state = Job.State.failed;
+                q.error = error.getMessage() != null ? error.getMessage() : error.toString();
+            } else {
+                q.state = Job.State.finished;
+            }
+            changed(q);
+            prune();
+            scheduleNext();
+        }
+        sendEvents();
+        logger.info("Task {} executed", q.name());
+        sendStatus(q.projectID(), Optional.ofNullable(q.version()));
+    }
 
-            @Override
-            public String projectID() { return t.projectID();}
+    /**
+     * Jobs of a project that changed after the given revision. If there are none, waits up to wait milliseconds for a
+     * change, so clients can poll for progress without repeating requests.
+     */
+    public synchronized List<Job> awaitJobs(String projectID, Optional<String> jobID, long since, long wait) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Math.max(0, Math.min(wait, MAX_WAIT));
+        List<Job> changed = changedJobs(projectID, jobID, since);
+        long remaining;
+        while (changed.isEmpty() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            this.wait(remaining);
+            changed = changedJobs(projectID, jobID, since);
+        }
+        return changed;
+    }
 
-            @Override
-            public String version() { return t.version();}
-        });
-        if (active == null) {
-            scheduleNext();
+    private List<Job> changedJobs(String projectID, Optional<String> jobID, long since) {
+        return jobs.values().stream()
+                .filter(q -> q.projectID().equals(projectID) && q.revision > since && (!jobID.isPresent() || q.id.equals(jobID.get())))
+                .map(Queued::toJob)
+                .collect(Collectors.toList());
+    }
+
+    // Called with the lock held
+    private void changed(Queued q) {
+        q.revision = ++revision;
+        notifyAll();
+        if (socketServer != null) {
+            events.add(q.toJob());
         }
     }
 
-    protected synchronized void scheduleNext() {
-        if ((active = tasks.poll()) != null) {
-            logger.info("Executing task {}\n", active.name());
-            executor.execute(active);
+    // Called without the lock, so that slow clients do not block the task manager
+    private void sendEvents() {
+        List<Job> pending;
+        synchronized (this) {
+            if (events.isEmpty()) {
+                return;
+            }
+            pending = new ArrayList<>(events);
+            events.clear();
+        }
+        for (Job job : pending) {
+            try {
+                socketServer.send(Namespace.EVENT_JOB, job);
+            } catch (Exception e) {
+                System.err.println("Error sending job to server: " + e.getMessage());
+            }
         }
     }
 
-    public List<String> status(){
-        List<String> currentTasks = new ArrayList<>();
-        if (active != null) {
-            currentTasks.add(active.status());
-            for (Task task : tasks) {
-                currentTasks.add(task.status());
+    private void prune() {
+        long done = jobs.values().stream().filter(q -> q.finished > 0).count();
+        Iterator<Queued> it = jobs.values().iterator();
+        while (done > FINISHED_JOBS && it.hasNext()) {
+            if (it.next().finished > 0) {
+                it.remove();
+                done--;
+            }
+        }
+    }
+
+    private void reportProgress() {
+        synchronized (this) {
+            for (Queued q : running) {
+                if (!q.started) {
+                    continue;
+                }
+                try {
+                    double p = q.task.progress();
+                    if (p != q.progress) {
+                        q.progress = p;
+                        changed(q);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Progress of task {} failed", q.name(), e);
+                }
             }
-        }else{
+        }
+        sendEvents();
+    }
+
+    /**
+     * Status messages of all running and queued tasks
+     */
+    public synchronized List<String> status(){
+        return messages(q -> true);
+    }
+
+    /**
+     * Status messages of the running and queued tasks of a project
+     */
+    public synchronized List<String> status(String projectID){
+        return messages(q -> q.projectID().equals(projectID));
+    }
+
+    private List<String> messages(java.util.function.Predicate<Queued> filter){
+        List<String> currentTasks = running.stream().filter(filter).map(Queued::status).collect(Collectors.toList());
+        tasks.stream().filter(filter).map(Queued::status).forEach(currentTasks::add);
+        if (currentTasks.isEmpty()) {
             currentTasks.add("All tasks finished");
         }
         return currentTasks;
@@ -340,5 +513,81 @@ public class TaskManager implements Executor, Managed {
     protected void loadProject(String projectID) throws FileNotFoundException {
         Resource.loadProject(this, projectID, configuration);
     }
+
+    /**
+     * A task in the queue or on a worker
+     */
+    private class Queued implements Task {
+        private final Task task;
+        private final long sequence;
+        private final String id;
+        private Future<?> future;
+        private volatile boolean started = false;
+        private volatile boolean cancelled = false;
+
+        // Job information, guarded by the lock of the task manager
+        private Job.State state = Job.State.queued;
+        private final long queued = System.currentTimeMillis();
+        private long startedAt = 0;
+        private long finished = 0;
+        private double progress = -1;
+        private String error = null;
+        private long revision = 0;
+
+        private Queued(Task task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+            this.id = Long.toString(sequence);
+        }
+
+        private Job toJob() {
+            double p = state == Job.State.finished ? 1 : progress;
+            return new Job(id, name(), projectID(), version(), type().name(), state, status(), p, queued, startedAt, finished, error, revision);
+        }
+
+        private boolean matches(Type type, String projectID, String version) {
+            return type().equals(type) && projectID().equals(projectID) && (version == null || version.equals(version()));
+        }
+
+        @Override
+        public void run() {
+            boolean begun = begin(this);
+            sendEvents();
+            if (!begun) {
+                return;
+            }
+            Throwable error = null;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                error = e;
+                logger.error("Task {} failed", task.name(), e);
+            } catch (Error e) {
+                error = e;
+                logger.error("Task {} failed", task.name(), e);
+                throw e;
+            } finally {
+                finish(this, error);
+            }
+        }
+
+        @Override
+        public String status() { return task.status();}
+
+        @Override
+        public String name() { return task.name();}
+
+        @Override
+        public Type type(){ return task.type();}
+
+        @Override
+        public String projectID() { return task.projectID() == null ? "" : task.projectID();}
+
+        @Override
+        public String version() { return task.version();}
+
+        @Override
+        public double progress() { return task.progress();}
+    }
 }
 